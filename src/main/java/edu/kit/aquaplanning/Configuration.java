@@ -98,7 +98,7 @@ public class Configuration {
 	 */
 	
 	public enum PlannerType {
-		forwardSSS, satBased, hegemannSat, parallel, greedy, seqpfolio;
+		forwardSSS, satBased, hegemannSat, parallel, greedy, seqpfolio, hdaStar, ehc, idaStar, anytime;
 	}
 	@Option(paramLabel = "plannerType", names = {"-p", "--planner"}, 
 			description = "Planner type to use: " + USAGE_OPTIONS_AND_DEFAULT, 
@@ -108,7 +108,7 @@ public class Configuration {
 	/* Forward search space planning */
 	
 	public enum HeuristicType {
-		manhattanGoalDistance, relaxedPathLength, actionInterferenceRelaxation, ffTrautmann, ffFroleyks, ffWilliams;
+		manhattanGoalDistance, relaxedPathLength, actionInterferenceRelaxation, ffTrautmann, ffFroleyks, ffWilliams, hAdd, hMax, hFF, landmarkCount, patternDatabase, causalGraph;
 	}
 	@Option(paramLabel = "heuristicClass", names = {"-H", "--heuristic"}, 
 			description = "Heuristic for forward search: " + USAGE_OPTIONS_AND_DEFAULT, 
@@ -119,15 +119,81 @@ public class Configuration {
 			defaultValue = "10")
 	public int heuristicWeight;
 	
+	@Option(paramLabel = "cacheSize", names = {"-hc", "--heuristic-cache"}, 
+			description = "Amount of heuristic values to cache by state, shared among all threads "
+			+ "using the same heuristic (0: no cache) " + USAGE_DEFAULT, defaultValue = "0")
+	public int heuristicCacheSize;
+	
+	@Option(paramLabel = "pdbMaxAtoms", names = {"-pdbs", "--pdb-max-atoms"}, 
+			description = "Maximum amount of atoms in each pattern of the pattern database heuristic " 
+			+ USAGE_DEFAULT, defaultValue = "14")
+	public int pdbMaxAtoms;
+	@Option(names = {"-pdbo", "--pdb-off-heap"}, description = "Store the tables of the pattern "
+			+ "database heuristic in direct (off-heap) memory")
+	public boolean pdbOffHeap;
+	
+	@Option(names = {"-inc", "--incremental-successors"}, description = "Maintain the applicable "
+			+ "actions incrementally from state differences instead of querying a decision tree")
+	public boolean incrementalSuccessors;
+	
+	@Option(names = {"-up", "--unpacked-states"}, description = "Store the states of a search "
+			+ "with one bit per atom instead of packing them into finite-domain variables, "
+			+ "which skips the detection of mutex groups")
+	public boolean unpackedStates;
+	
+	@Option(names = {"-pe", "--parallel-evaluation"}, description = "Compute the heuristic values "
+			+ "of all successors of a node in parallel, with as many threads as specified by -T")
+	public boolean parallelEvaluation;
+	
 	@Option(paramLabel = "searchStrategy", names = {"-s", "--search"}, 
 			description = "Search strategy for forward search: " + USAGE_OPTIONS_AND_DEFAULT, 
 			defaultValue = "bestFirst")
 	public SearchStrategy.Mode searchStrategy;
 	
+	@Option(paramLabel = "openList", names = {"-ol", "--open-list"}, 
+			description = "Open list of heuristical search strategies: " + USAGE_OPTIONS_AND_DEFAULT, 
+			defaultValue = "heap")
+	public SearchStrategy.OpenList openList;
+	
+	@Option(paramLabel = "tieBreaking", names = {"-tb", "--tie-breaking"}, 
+			description = "Tie-breaking among nodes of equal priority in a bucket open list: " 
+			+ USAGE_OPTIONS_AND_DEFAULT, defaultValue = "lifo")
+	public SearchStrategy.TieBreaking tieBreaking;
+	
+	@Option(paramLabel = "beamWidth", names = {"-bw", "--beam-width"}, 
+			description = "Amount of nodes per layer of beam search " + USAGE_DEFAULT, 
+			defaultValue = "100")
+	public int beamWidth;
+	
+	@Option(paramLabel = "maxFrontierSize", names = {"-fc", "--frontier-cap"}, 
+			description = "Maximum amount of nodes in the open list of heuristical search strategies, "
+			+ "beyond which the worst nodes are discarded (0: unbounded) " + USAGE_DEFAULT, 
+			defaultValue = "0")
+	public int maxFrontierSize;
+	
+	@Option(paramLabel = "maxStates", names = {"-tt", "--transposition-table"}, 
+			description = "Maximum amount of states in the transposition table of IDA* " 
+			+ USAGE_DEFAULT, defaultValue = "1000000")
+	public int transpositionTableSize;
+	
+	@Option(names = {"-le", "--lazy-evaluation"}, description = "Defer the heuristic evaluation "
+			+ "of a search node until it is visited, queueing it with the heuristic value of its parent")
+	public boolean lazyEvaluation;
+	
+	@Option(names = {"-po", "--preferred-operators"}, description = "Keep successors reached by "
+			+ "preferred operators of the heuristic (helpful actions) in a second open list, "
+			+ "which is polled in alternation with the regular open list")
+	public boolean preferredOperators;
+	
 	@Option(names = {"-r", "--revisit-states"}, description = "Re-enter a search node "
 			+ "even when the state has been reached before")
 	public boolean revisitStates;
 	
+	@Option(names = {"-sc", "--shared-closed-list"}, description = "Let the forward searches "
+			+ "of a parallel portfolio share a concurrent table of visited states and of dead ends "
+			+ "(which stores each visited state once more, but avoids duplicate expansions)")
+	public boolean sharedClosedList;
+	
 	@Option(names = {"-S", "--seed"}, description = "Random seed to use for randomized search strategies",
 			defaultValue = "1337")
 	public int seed = 1337;
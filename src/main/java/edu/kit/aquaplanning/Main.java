@@ -3,7 +3,11 @@ package edu.kit.aquaplanning;
 import java.io.FileWriter;
 import java.io.IOException;
 import java.net.InetAddress;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
 
+import edu.kit.aquaplanning.Configuration.PlannerType;
 import edu.kit.aquaplanning.grounding.Grounder;
 import edu.kit.aquaplanning.grounding.PlanningGraphGrounder;
 import edu.kit.aquaplanning.grounding.htn.HtnGrounder;
@@ -67,10 +71,23 @@ public class Main {
 	private static void printPlan(Configuration config, Plan plan) throws IOException {
 		
 		if (config.planOutputFile != null) {
-			// Write plan to file
-			FileWriter w = new FileWriter(config.planOutputFile);
-			w.write(plan.toString());
-			w.close();
+			if (config.plannerType == PlannerType.anytime) {
+				// Plans are replaced while the planner runs: write the plan to 
+				// a temporary file which then replaces the plan file, such that 
+				// the plan file is complete whenever the planner is killed
+				String tmpFile = config.planOutputFile + ".tmp";
+				writePlan(tmpFile, plan);
+				try {
+					Files.move(Paths.get(tmpFile), Paths.get(config.planOutputFile), 
+							StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+				} catch (IOException e) {
+					// e.g. no atomic moves on this file system
+					Files.deleteIfExists(Paths.get(tmpFile));
+					writePlan(config.planOutputFile, plan);
+				}
+			} else {
+				writePlan(config.planOutputFile, plan);
+			}
 			Logger.log(Logger.INFO, "Plan written to " + config.planOutputFile + ".");
 		} else {
 			// No output file => Always output plan to stdout
@@ -78,6 +95,28 @@ public class Main {
 		}
 	}
 	
+	private static void writePlan(String file, Plan plan) throws IOException {
+		
+		FileWriter w = new FileWriter(file);
+		w.write(plan.toString());
+		w.close();
+	}
+	
+	/**
+	 * The time for plan optimization: the time remaining until the
+	 * maximum total time, if specified, or else five seconds.
+	 */
+	private static long getOptimizationMillis(Configuration config) {
+		
+		if (config.maxTimeSeconds > 0) {
+			long remaining = config.maxTimeSeconds * 1000L 
+					- (System.currentTimeMillis() - config.startTimeMillis);
+			// (a clock without any duration would never expire)
+			return Math.max(1, remaining);
+		}
+		return 5000;
+	}
+	
 	public static void main(String[] args) throws Exception {
 				
 		// Read configuration from command line arguments
@@ -146,6 +185,18 @@ public class Main {
 				// Step 3: Planning
 				Logger.log(Logger.INFO, "Planning ...");
 				Planner planner = Planner.getPlanner(config);
+				if (config.planOutputFile != null) {
+					// Overwrite the plan file with each improved plan as soon as it is found
+					planner.setPlanListener(improvedPlan -> {
+						if (Validator.planIsValid(planningProblem, improvedPlan)) {
+							try {
+								printPlan(config, improvedPlan);
+							} catch (IOException e) {
+								Logger.log(Logger.ERROR, "Could not output plan: " + e.getMessage());
+							}
+						}
+					});
+				}
 				plan = planner.findPlan(planningProblem);
 			}			
 			
@@ -166,7 +217,7 @@ public class Main {
 					
 					Logger.log(Logger.INFO, "Plan optimization ...");
 					SimplePlanOptimizer o = new SimplePlanOptimizer(planningProblem);
-					plan = o.improvePlan(plan, new Clock(5000)); // TODO set proper time limit
+					plan = o.improvePlan(plan, new Clock(getOptimizationMillis(config)));
 					Logger.log(Logger.INFO, "Final plan has a length of " + plan.getLength() + ".");
 					printPlan(config, plan);
 				}
@@ -0,0 +1,257 @@
+package edu.kit.aquaplanning.grounding;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import edu.kit.aquaplanning.model.ground.Action;
+import edu.kit.aquaplanning.model.ground.AtomSet;
+import edu.kit.aquaplanning.model.ground.ConditionalEffect;
+import edu.kit.aquaplanning.model.ground.Effect;
+import edu.kit.aquaplanning.model.ground.GroundPlanningProblem;
+import edu.kit.aquaplanning.model.ground.StateVariables;
+
+/**
+ * Finds groups of atoms of which at most (or exactly) one is true
+ * in each reachable state of a ground problem, and encodes the problem's
+ * atoms as finite-domain state variables accordingly.
+ *
+ * A group is grown greedily from a seed atom, following the transitions
+ * of actions which delete one atom and add another, as long as at most
+ * one atom of the group is true initially and no action adds two atoms
+ * of the group. The complete group is only accepted if it is "balanced":
+ * each action which adds an atom of the group (which is not already a
+ * precondition) deletes another atom of the group which it requires as
+ * a precondition. By induction over the actions, at most one atom of a
+ * balanced group is true in each reachable state.
+ * Atoms affected by conditional or complex effects are not grouped.
+ */
+public class MutexGroupDetector {
+
+	private GroundPlanningProblem problem;
+	private List<Action> actions;
+	private int numAtoms;
+
+	/**
+	 * Per atom: the actions with the atom as a simple add / delete effect.
+	 */
+	private List<List<Action>> adders;
+	private List<List<Action>> deleters;
+
+	/**
+	 * Per atom: the index of its group, or -1.
+	 */
+	private int[] groupOf;
+	private boolean[] member;
+
+	public MutexGroupDetector(GroundPlanningProblem problem) {
+		this.problem = problem;
+		this.actions = problem.getActions();
+		this.numAtoms = problem.getNumAtoms();
+	}
+
+	/**
+	 * Detects mutex groups and returns the resulting state variables.
+	 */
+	public StateVariables detect() {
+
+		// Changeable atoms, and atoms which may not be grouped
+		AtomSet changeable = new AtomSet(numAtoms);
+		AtomSet excluded = new AtomSet(numAtoms);
+		adders = new ArrayList<>(numAtoms);
+		deleters = new ArrayList<>(numAtoms);
+		for (int atom = 0; atom < numAtoms; atom++) {
+			adders.add(new ArrayList<>());
+			deleters.add(new ArrayList<>());
+		}
+		for (Action action : actions) {
+			AtomSet add = action.getEffectsPos();
+			for (int atom = add.getFirstTrueAtom(); atom >= 0; atom = add.getNextTrueAtom(atom+1)) {
+				adders.get(atom).add(action);
+				changeable.set(atom);
+			}
+			AtomSet del = action.getEffectsNeg();
+			for (int atom = del.getFirstTrueAtom(); atom >= 0; atom = del.getNextTrueAtom(atom+1)) {
+				deleters.get(atom).add(action);
+				changeable.set(atom);
+			}
+			for (ConditionalEffect eff : action.getConditionalEffects()) {
+				excluded.applyTrueAtoms(eff.getEffectsPos());
+				excluded.applyTrueAtoms(eff.getEffectsNeg());
+			}
+			if (action.getComplexEffect() != null) {
+				collectAtoms(action.getComplexEffect(), excluded);
+			}
+		}
+		changeable.applyTrueAtoms(excluded);
+
+		// Grow groups from all seeds
+		AtomSet init = problem.getInitialState().getAtomSet();
+		groupOf = new int[numAtoms];
+		Arrays.fill(groupOf, -1);
+		member = new boolean[numAtoms];
+		List<int[]> groups = new ArrayList<>();
+		List<Boolean> exactlyOne = new ArrayList<>();
+		for (int seed = 0; seed < numAtoms; seed++) {
+			if (!changeable.get(seed) || excluded.get(seed) || groupOf[seed] >= 0) {
+				continue;
+			}
+			List<Integer> group = new ArrayList<>();
+			group.add(seed);
+			member[seed] = true;
+			int numInitial = init.get(seed) ? 1 : 0;
+			for (int i = 0; i < group.size(); i++) {
+				for (int candidate : getCandidates(group.get(i))) {
+					if (member[candidate] || groupOf[candidate] >= 0 || excluded.get(candidate)
+							|| (numInitial > 0 && init.get(candidate))) {
+						continue;
+					}
+					member[candidate] = true;
+					if (addsAtMostOneMember(candidate)) {
+						group.add(candidate);
+						if (init.get(candidate))
+							numInitial++;
+					} else {
+						member[candidate] = false;
+					}
+				}
+			}
+			if (group.size() >= 2 && !isBalanced(group)) {
+				group.subList(1, group.size()).forEach(atom -> member[atom] = false);
+				group.subList(1, group.size()).clear();
+			}
+			if (group.size() >= 2) {
+				int[] atoms = new int[group.size()];
+				for (int i = 0; i < atoms.length; i++) {
+					atoms[i] = group.get(i);
+					groupOf[atoms[i]] = groups.size();
+				}
+				exactlyOne.add(numInitial == 1 && isAlwaysReplaced(atoms));
+				groups.add(atoms);
+			}
+			for (int atom : group) {
+				member[atom] = false;
+			}
+		}
+
+		return new StateVariables(numAtoms, groups, exactlyOne, changeable, problem.getInitialState());
+	}
+
+	private static void collectAtoms(Effect effect, AtomSet atoms) {
+		switch (effect.getType()) {
+		case atom:
+			atoms.set(effect.getAtom().getId());
+			break;
+		case condition:
+		case conjunction:
+			for (Effect child : effect.getChildren())
+				collectAtoms(child, atoms);
+			break;
+		default:
+			break;
+		}
+	}
+
+	/**
+	 * Atoms which are connected to the provided atom by some action
+	 * which deletes one of both and adds the other one.
+	 */
+	private List<Integer> getCandidates(int atom) {
+
+		List<Integer> candidates = new ArrayList<>();
+		for (Action action : deleters.get(atom)) {
+			if (action.getPreconditionsPos().get(atom)) {
+				AtomSet add = action.getEffectsPos();
+				for (int q = add.getFirstTrueAtom(); q >= 0; q = add.getNextTrueAtom(q+1)) {
+					if (!action.getPreconditionsPos().get(q))
+						candidates.add(q);
+				}
+			}
+		}
+		for (Action action : adders.get(atom)) {
+			AtomSet del = action.getEffectsNeg();
+			for (int p = del.getFirstTrueAtom(); p >= 0; p = del.getNextTrueAtom(p+1)) {
+				if (action.getPreconditionsPos().get(p) && !action.getEffectsPos().get(p))
+					candidates.add(p);
+			}
+		}
+		return candidates;
+	}
+
+	/**
+	 * Checks whether each action affecting the provided atom, which
+	 * has just been added to the group, still adds at most one member
+	 * (without requiring it). Once violated, this cannot be repaired
+	 * by adding further atoms.
+	 */
+	private boolean addsAtMostOneMember(int atom) {
+
+		for (Action action : adders.get(atom)) {
+			if (countAddedMembers(action) > 1)
+				return false;
+		}
+		return true;
+	}
+
+	/**
+	 * Checks whether the provided (complete) group is balanced w.r.t.
+	 * all actions adding any of its atoms.
+	 */
+	private boolean isBalanced(List<Integer> group) {
+
+		for (int atom : group) {
+			for (Action action : adders.get(atom)) {
+				int numAdded = countAddedMembers(action);
+				if (numAdded > 1 || (numAdded == 1 && !deletesRequiredMember(action)))
+					return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Amount of member atoms which the action adds
+	 * without requiring them as a precondition.
+	 */
+	private int countAddedMembers(Action action) {
+
+		int numAdded = 0;
+		AtomSet add = action.getEffectsPos();
+		for (int q = add.getFirstTrueAtom(); q >= 0; q = add.getNextTrueAtom(q+1)) {
+			if (member[q] && !action.getPreconditionsPos().get(q))
+				numAdded++;
+		}
+		return numAdded;
+	}
+
+	private boolean deletesRequiredMember(Action action) {
+
+		AtomSet del = action.getEffectsNeg();
+		for (int p = del.getFirstTrueAtom(); p >= 0; p = del.getNextTrueAtom(p+1)) {
+			if (member[p] && action.getPreconditionsPos().get(p) && !action.getEffectsPos().get(p))
+				return true;
+		}
+		return false;
+	}
+
+	/**
+	 * True iff each action which deletes an atom of the provided
+	 * (complete) group adds another atom of the group.
+	 */
+	private boolean isAlwaysReplaced(int[] group) {
+
+		for (int atom : group)
+			member[atom] = true;
+		boolean replaced = true;
+		for (int atom : group) {
+			for (Action action : deleters.get(atom)) {
+				if (!action.getEffectsPos().get(atom) && countAddedMembers(action) != 1) {
+					replaced = false;
+				}
+			}
+		}
+		for (int atom : group)
+			member[atom] = false;
+		return replaced;
+	}
+}
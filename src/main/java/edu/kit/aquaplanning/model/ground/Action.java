@@ -11,8 +11,15 @@ import java.util.function.Function;
  */
 public class Action {
 
+	private static final boolean[] NO_CONDITIONS = new boolean[0];
+
 	private String name;
 	private int cost;
+	/**
+	 * Index of this action in the action list of its ground
+	 * planning problem, or -1 if it is not part of any problem.
+	 */
+	private int id = -1;
 
 	// Properties of a simple (purely conjunctive) action;
 	// For STRIPS planning, only these preconditions and effects
@@ -129,14 +136,31 @@ public class Action {
 	 */
 	public State apply(State state) {
 		
-		// Apply effects
 		State newState = new State(state);
+		apply(state, newState);
+		return newState;
+	}
+	
+	/**
+	 * Writes the result of applying this action to the provided
+	 * state into the provided target state, which is overwritten 
+	 * completely. The target can be reused across calls such that 
+	 * no memory is allocated for successor states. The target 
+	 * must not be the same object as the source state.
+	 * Attention: This method does not check whether the
+	 * action is applicable in this state! Check this beforehand with
+	 * isApplicable(state).
+	 */
+	public void apply(State state, State target) {
+		
+		// Apply effects
+		target.copyFrom(state);
 		// Bitset effects
-		newState.removeAll(effectsNeg);
-		newState.addAll(effectsPos);
+		target.removeAll(effectsNeg);
+		target.addAll(effectsPos);
 		if (complexEffect != null) {
 			// Complex effect
-			newState = complexEffect.applyTo(state);
+			complexEffect.applyTo(state, target);
 		}
 		
 		// Apply (simple) conditional effects, if applicable
@@ -148,12 +172,103 @@ public class Action {
 			
 			if (isActive) {
 				// -- yes: apply the consequences
-				newState.removeAll(condEffect.getEffectsNeg());
-				newState.addAll(condEffect.getEffectsPos());
+				target.removeAll(condEffect.getEffectsNeg());
+				target.addAll(condEffect.getEffectsPos());
+			}
+		}
+	}
+
+	/**
+	 * Applies this action to the provided state in place, with the
+	 * same result as apply(state, target), and records the changed
+	 * words and numeric atoms in the provided log, such that
+	 * revert(state, log) restores the previous state.
+	 * Only an action with a complex effect allocates a temporary
+	 * copy of the state, as its effect is evaluated on the old state.
+	 * Attention: This method does not check whether the
+	 * action is applicable in this state!
+	 */
+	public void applyInPlace(State state, UndoLog log) {
+
+		log.beginFrame();
+		if (complexEffect != null) {
+			State oldState = new State(state);
+			apply(oldState, state);
+			// Record the words and numeric atoms which have changed
+			int numWords = Math.max(oldState.numWords(), state.numWords());
+			for (int w = 0; w < numWords; w++) {
+				if (oldState.getWord(w) != state.getWord(w)) {
+					log.recordWord(w, oldState.getWord(w));
+				}
 			}
+			for (int id = 0; id < oldState.numNumericAtoms(); id++) {
+				if (Float.compare(oldState.getNumeric(id), state.getNumeric(id)) != 0) {
+					log.recordNumeric(id, oldState.getNumeric(id));
+				}
+			}
+			return;
 		}
+
+		// Conditions are evaluated on the old state
+		int numWords = Math.max(effectsPos.numWords(), effectsNeg.numWords());
+		boolean[] active = conditionalEffects.isEmpty() ? NO_CONDITIONS
+				: new boolean[conditionalEffects.size()];
+		for (int i = 0; i < active.length; i++) {
+			ConditionalEffect condEffect = conditionalEffects.get(i);
+			active[i] = state.holdsAll(condEffect.getConditionsPos())
+					&& state.holdsNone(condEffect.getConditionsNeg());
+			if (active[i]) {
+				numWords = Math.max(numWords, Math.max(condEffect.getEffectsPos().numWords(),
+						condEffect.getEffectsNeg().numWords()));
+			}
+		}
+		// Apply all effects word by word, in the same order as apply()
+		for (int w = 0; w < numWords; w++) {
+			long oldWord = state.getWord(w);
+			long word = (oldWord & ~effectsNeg.getWord(w)) | effectsPos.getWord(w);
+			for (int i = 0; i < active.length; i++) {
+				if (active[i]) {
+					ConditionalEffect condEffect = conditionalEffects.get(i);
+					word = (word & ~condEffect.getEffectsNeg().getWord(w))
+							| condEffect.getEffectsPos().getWord(w);
+				}
+			}
+			if (word != oldWord) {
+				log.recordWord(w, oldWord);
+				state.setWord(w, word);
+			}
+		}
+	}
+
+	/**
+	 * Reverts the most recent application of an action to the
+	 * provided state by applyInPlace(state, log).
+	 */
+	public static void revert(State state, UndoLog log) {
+
+		log.undo(state);
+	}
+	
+	/**
+	 * Adds all atoms made true by this action in a delete-relaxed sense,
+	 * evaluated on the provided state, to the provided target state.
+	 * Does not allocate any memory unless the action has a complex effect.
+	 */
+	public void addRelaxedEffects(State state, State target) {
 		
-		return newState;
+		// Bitset effects
+		target.addAll(effectsPos);
+		if (complexEffect != null) {
+			// Complex effect
+			target.addAllTrueAtomsFrom(complexEffect.applyRelaxedTo(state));
+		}
+		
+		// Apply (simple) positive conditional effects, if applicable
+		for (ConditionalEffect condEffect : conditionalEffects) {
+			if (state.holdsAll(condEffect.getConditionsPos())) {
+				target.addAll(condEffect.getEffectsPos());
+			}
+		}
 	}
 	
 	/**
@@ -261,6 +376,18 @@ public class Action {
 		return name;
 	}
 	
+	/**
+	 * Returns the index of this action inside the action list
+	 * of its ground planning problem, or -1 if it has none.
+	 */
+	public int getId() {
+		return id;
+	}
+	
+	public void setId(int id) {
+		this.id = id;
+	}
+	
 	public String getCleanedName() {
 		return getName().replaceAll("\\$.*\\$", "").replaceAll("\\*.*\\*", "");
 	}
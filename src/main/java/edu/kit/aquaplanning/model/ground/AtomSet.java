@@ -1,23 +1,50 @@
 package edu.kit.aquaplanning.model.ground;
 
-import java.util.BitSet;
+import java.util.Arrays;
 import java.util.List;
 
 /**
  * A set of atoms. Can be used to represent a set of true atoms
  * XOR a set of false atoms (not both at the same time).
+ *
+ * Internally, the atoms are packed into an array of 64-bit words
+ * where bit (id % 64) of word (id / 64) denotes the atom of the
+ * respective ID. The array grows on demand, but can also be created
+ * with a fixed width for a given amount of atoms (see AtomSet(int)).
+ *
+ * Each atom is assigned a pseudo-random 64-bit key, and the set maintains
+ * the XOR of the keys of all contained atoms (Zobrist hashing). Every
+ * modification updates this hash by the keys of the changed atoms only,
+ * so the hash is available in constant time (see getHash()).
  */
 public class AtomSet {
 
-	private BitSet atoms;
+	private static final int ADDRESS_BITS = 6;
+	private static final int BITS_PER_WORD = 1 << ADDRESS_BITS;
+	private static final long[] NO_WORDS = new long[0];
+
+	private long[] words;
+	
+	/**
+	 * XOR of the keys of all contained atoms.
+	 */
+	private long hash;
+
+	/**
+	 * Initializes an empty atom set which is able to hold
+	 * the provided amount of atoms without growing.
+	 */
+	public AtomSet(int numAtoms) {
+		this.words = numAtoms > 0 ? new long[numWords(numAtoms)] : NO_WORDS;
+	}
 
 	/**
 	 * Initialized an atom set from a list of Atom objects.
 	 */
 	public AtomSet(List<Atom> atoms) {
-		this.atoms = new BitSet(atoms.size());
+		this(atoms.size());
 		for (Atom atom : atoms) {
-			this.atoms.set(atom.getId(), atom.getValue());
+			set(atom.getId(), atom.getValue());
 		}
 	}
 
@@ -26,19 +53,25 @@ public class AtomSet {
 	 * Only sets the atoms in the list which have the provided value.
 	 */
 	public AtomSet(List<Atom> atoms, boolean filteredValue) {
-		this.atoms = new BitSet(atoms.size());
+		this(atoms.size());
 		for (Atom atom : atoms) {
 			if (atom.getValue() == filteredValue)
-				this.atoms.set(atom.getId(), true);
+				set(atom.getId());
 		}
 	}
 	
+	/**
+	 * The amount of words needed to represent the provided amount of atoms.
+	 */
+	public static int numWords(int numAtoms) {
+		return ((numAtoms - 1) >> ADDRESS_BITS) + 1;
+	}
 
 	/**
 	 * Get the index of first true atom or -1 if none is true
 	 */
 	public int getFirstTrueAtom() {
-		return atoms.nextSetBit(0);
+		return getNextTrueAtom(0);
 	}
 	
 	/**
@@ -46,7 +79,17 @@ public class AtomSet {
 	 * or -1 if none such atom is true
 	 */
 	public int getNextTrueAtom(int i) {
-		return atoms.nextSetBit(i);
+		int w = i >> ADDRESS_BITS;
+		if (w >= words.length)
+			return -1;
+		long word = words[w] & (-1L << i);
+		while (true) {
+			if (word != 0)
+				return (w << ADDRESS_BITS) + Long.numberOfTrailingZeros(word);
+			if (++w == words.length)
+				return -1;
+			word = words[w];
+		}
 	}
 
 	/**
@@ -54,21 +97,39 @@ public class AtomSet {
 	 * (or, if the atom has a value of false, it is *not* contained).
 	 */
 	public boolean get(Atom atom) {
-		return atom.getValue() == atoms.get(atom.getId());
+		return atom.getValue() == get(atom.getId());
 	}
 	
 	/**
 	 * True iff the atom of the provided ID is contained in this set..
 	 */
 	public boolean get(int id) {
-		return atoms.get(id);
+		int w = id >> ADDRESS_BITS;
+		return w < words.length && (words[w] & (1L << id)) != 0;
 	}
 
 	public void set(int id) {
-		atoms.set(id);
+		int w = id >> ADDRESS_BITS;
+		ensureWords(w+1);
+		long bit = 1L << id;
+		if ((words[w] & bit) == 0) {
+			words[w] |= bit;
+			hash ^= key(id);
+		}
 	}
 	public void unset(int id) {
-		atoms.set(id, false);
+		int w = id >> ADDRESS_BITS;
+		long bit = 1L << id;
+		if (w < words.length && (words[w] & bit) != 0) {
+			words[w] &= ~bit;
+			hash ^= key(id);
+		}
+	}
+	private void set(int id, boolean value) {
+		if (value)
+			set(id);
+		else
+			unset(id);
 	}
 	
 	/**
@@ -76,9 +137,17 @@ public class AtomSet {
 	 * are also contained in this AtomSet.
 	 */
 	public boolean all(AtomSet other) {
-		BitSet bs = (BitSet) other.atoms.clone();
-		bs.andNot(atoms);
-		return bs.isEmpty();
+		long[] o = other.words;
+		int common = Math.min(words.length, o.length);
+		for (int w = 0; w < common; w++) {
+			if ((o[w] & ~words[w]) != 0)
+				return false;
+		}
+		for (int w = common; w < o.length; w++) {
+			if (o[w] != 0)
+				return false;
+		}
+		return true;
 	}
 	
 	/**
@@ -86,8 +155,10 @@ public class AtomSet {
 	 * other AtomSet are contained in this AtomSet.
 	 */
 	public boolean none(AtomSet other) {
-		for (int i = other.atoms.nextSetBit(0); i >= 0; i = other.atoms.nextSetBit(i+1)) {
-			if (atoms.get(i))
+		long[] o = other.words;
+		int common = Math.min(words.length, o.length);
+		for (int w = 0; w < common; w++) {
+			if ((o[w] & words[w]) != 0)
 				return false;
 		}
 		return true;
@@ -102,7 +173,12 @@ public class AtomSet {
 	 */
 	public AtomSet and(AtomSet other) {
 		AtomSet b = (AtomSet) this.clone();
-		b.atoms.and(other.atoms);
+		long[] o = other.words;
+		for (int w = 0; w < b.words.length; w++) {
+			long old = b.words[w];
+			b.words[w] &= (w < o.length ? o[w] : 0);
+			b.toggleKeys(w, old ^ b.words[w]);
+		}
 		return b;
 	}
 	
@@ -115,7 +191,12 @@ public class AtomSet {
 	 */
 	public AtomSet xor(AtomSet other) {
 		AtomSet b = (AtomSet) this.clone();
-		b.atoms.xor(other.atoms);
+		long[] o = other.words;
+		b.ensureWords(o.length);
+		for (int w = 0; w < o.length; w++) {
+			b.words[w] ^= o[w];
+			b.toggleKeys(w, o[w]);
+		}
 		return b;
 	}
 	
@@ -123,7 +204,7 @@ public class AtomSet {
 	 * Sets the provided atom as contained in this set.
 	 */
 	public void set(Atom atom) {
-		this.atoms.set(atom.getId(), atom.getValue());
+		set(atom.getId(), atom.getValue());
 	}
 	
 	/**
@@ -131,7 +212,18 @@ public class AtomSet {
 	 * in the other provided AtomSet.
 	 */
 	public void applyTrueAtoms(AtomSet other) {
-		this.atoms.or(other.atoms);
+		long[] o = other.words;
+		int len = o.length;
+		while (len > 0 && o[len-1] == 0)
+			len--;
+		ensureWords(len);
+		for (int w = 0; w < len; w++) {
+			long changed = o[w] & ~words[w];
+			if (changed != 0) {
+				words[w] |= changed;
+				toggleKeys(w, changed);
+			}
+		}
 	}
 	
 	/**
@@ -139,42 +231,184 @@ public class AtomSet {
 	 * in the other provided AtomSet.
 	 */
 	public void applyTrueAtomsAsFalse(AtomSet other) {
-		this.atoms.andNot(other.atoms);
+		long[] o = other.words;
+		int common = Math.min(words.length, o.length);
+		for (int w = 0; w < common; w++) {
+			long changed = o[w] & words[w];
+			if (changed != 0) {
+				words[w] &= ~changed;
+				toggleKeys(w, changed);
+			}
+		}
+	}
+	
+	/**
+	 * In this AtomSet, sets all atoms which occur in the provided
+	 * (complex) effect, including its nested conditional effects.
+	 * If positiveOnly is set, only the atoms which the effect 
+	 * makes true are set.
+	 */
+	public void applyEffectAtoms(Effect effect, boolean positiveOnly) {
+		switch (effect.getType()) {
+		case atom:
+			if (!positiveOnly || effect.getAtom().getValue())
+				set(effect.getAtom().getId());
+			break;
+		case condition:
+		case conjunction:
+			for (Effect child : effect.getChildren())
+				applyEffectAtoms(child, positiveOnly);
+			break;
+		default:
+			break;
+		}
+	}
+	
+	/**
+	 * Returns the IDs of all atoms contained in this set
+	 * in ascending order.
+	 */
+	public int[] toArray() {
+		int[] array = new int[numAtoms()];
+		int i = 0;
+		for (int atom = getFirstTrueAtom(); atom >= 0; atom = getNextTrueAtom(atom+1)) {
+			array[i++] = atom;
+		}
+		return array;
+	}
+
+	/**
+	 * Overwrites the content of this AtomSet with the content
+	 * of the provided other AtomSet. Does not allocate any memory
+	 * if this set is at least as wide as the other set.
+	 */
+	public void copyFrom(AtomSet other) {
+		long[] o = other.words;
+		if (words.length < o.length) {
+			words = new long[o.length];
+		}
+		System.arraycopy(o, 0, words, 0, o.length);
+		Arrays.fill(words, o.length, words.length, 0);
+		hash = other.hash;
+	}
+
+	/**
+	 * Grows this AtomSet (if necessary) such that it is able
+	 * to hold the provided amount of atoms without reallocation.
+	 */
+	public void ensureCapacity(int numAtoms) {
+		if (numAtoms > 0)
+			ensureWords(numWords(numAtoms));
+	}
+
+	private void ensureWords(int numWords) {
+		if (words.length < numWords) {
+			words = Arrays.copyOf(words, numWords);
+		}
 	}
 	
 	/**
 	 * The amount of atoms contained in this set.
 	 */
 	public int numAtoms() {
-		return atoms.cardinality();
+		int sum = 0;
+		for (long word : words) {
+			sum += Long.bitCount(word);
+		}
+		return sum;
 	}
 
 	/**
 	 * The internal size of the allocated set.
 	 */
 	public int size() {
-		return this.atoms.size();
+		return words.length * BITS_PER_WORD;
+	}
+
+	/**
+	 * The amount of 64-bit words allocated by this set.
+	 */
+	public int numWords() {
+		return words.length;
+	}
+
+	/**
+	 * Returns the 64-bit word of the provided index, i.e. the atoms
+	 * [64*index, 64*index+63] in packed form.
+	 */
+	public long getWord(int index) {
+		return index < words.length ? words[index] : 0;
+	}
+	
+	/**
+	 * Overwrites the 64-bit word of the provided index, i.e. the atoms
+	 * [64*index, 64*index+63], with the provided packed atoms.
+	 */
+	public void setWord(int index, long word) {
+		ensureWords(index+1);
+		toggleKeys(index, words[index] ^ word);
+		words[index] = word;
+	}
+	
+	/**
+	 * Returns the 64-bit Zobrist hash of this set, i.e. the XOR of 
+	 * the keys of all contained atoms. Equal sets have equal hashes,
+	 * independent of their widths. (Trivial runtime)
+	 */
+	public long getHash() {
+		return hash;
+	}
+	
+	/**
+	 * XORs the keys of all atoms set in the provided diff
+	 * (relative to word w) into the hash.
+	 */
+	private void toggleKeys(int w, long diff) {
+		while (diff != 0) {
+			hash ^= key((w << ADDRESS_BITS) + Long.numberOfTrailingZeros(diff));
+			diff &= diff - 1;
+		}
+	}
+	
+	/**
+	 * The pseudo-random 64-bit key of the atom of the provided ID
+	 * (SplitMix64 finalizer applied to the ID). Computed on the fly,
+	 * so that no shared key table needs to be maintained.
+	 */
+	public static long key(int atomId) {
+		long z = (atomId + 1) * 0x9E3779B97F4A7C15L;
+		z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+		z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+		return z ^ (z >>> 31);
 	}
 	
 	private AtomSet() {}
 	@Override
 	protected Object clone() {
 		AtomSet newSet = new AtomSet();
-		newSet.atoms = (BitSet) this.atoms.clone();
+		newSet.words = words.length > 0 ? words.clone() : NO_WORDS;
+		newSet.hash = hash;
 		return newSet;
 	}
 	
 	@Override
 	public String toString() {
-		return atoms.toString();
+		StringBuilder out = new StringBuilder("{");
+		for (int i = getFirstTrueAtom(); i >= 0; i = getNextTrueAtom(i+1)) {
+			if (out.length() > 1)
+				out.append(", ");
+			out.append(i);
+		}
+		return out.append("}").toString();
 	}
 
+	/**
+	 * Folds the Zobrist hash of this set, such that AtomSets
+	 * of different widths with equal content have equal hashes.
+	 */
 	@Override
 	public int hashCode() {
-		final int prime = 31;
-		int result = 1;
-		result = prime * result + ((atoms == null) ? 0 : atoms.hashCode());
-		return result;
+		return (int) ((hash >>> 32) ^ hash);
 	}
 
 	@Override
@@ -185,12 +419,20 @@ public class AtomSet {
 			return false;
 		if (getClass() != obj.getClass())
 			return false;
-		AtomSet other = (AtomSet) obj;
-		if (atoms == null) {
-			if (other.atoms != null)
+		long[] o = ((AtomSet) obj).words;
+		int common = Math.min(words.length, o.length);
+		for (int w = 0; w < common; w++) {
+			if (words[w] != o[w])
 				return false;
-		} else if (!atoms.equals(other.atoms))
-			return false;
+		}
+		for (int w = common; w < words.length; w++) {
+			if (words[w] != 0)
+				return false;
+		}
+		for (int w = common; w < o.length; w++) {
+			if (o[w] != 0)
+				return false;
+		}
 		return true;
 	}
 }
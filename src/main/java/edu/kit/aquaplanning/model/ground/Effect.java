@@ -92,6 +92,15 @@ public class Effect {
 		return newState;
 	}
 	
+	/**
+	 * Applies this effect to the provided new state, 
+	 * evaluating all conditions and expressions on the old state.
+	 */
+	public void applyTo(State oldState, State newState) {
+		
+		apply(oldState, newState);
+	}
+	
 	public State applyRelaxedTo(State state) {
 		
 		State newState = new State(state);
@@ -116,8 +125,9 @@ public class Effect {
 			}
 			break;
 		case numeric:
-			function.setValue(expression.evaluate(oldState));
-			newState.set(function);
+			// The new value only goes into the new state: the numeric atom
+			// of the effect is shared by all threads applying the action
+			newState.set(function.getId(), expression.evaluate(oldState));
 			break;
 		}
 	}
@@ -142,9 +152,8 @@ public class Effect {
 		case numeric:
 			// TODO Delete-relaxation extended to numeric effects
 			float result = expression.evaluate(oldState);
-			if (result > oldState.get(function)) {				
-				function.setValue(result);
-				newState.set(function);
+			if (result > oldState.get(function)) {
+				newState.set(function.getId(), result);
 			}
 			break;
 		}
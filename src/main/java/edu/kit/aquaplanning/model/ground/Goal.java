@@ -80,6 +80,14 @@ public class Goal {
 		return true;
 	}
 	
+	/**
+	 * True iff this goal is a complex logical condition 
+	 * instead of a flat list of atoms.
+	 */
+	public boolean isComplex() {
+		return isComplex;
+	}
+	
 	public List<Atom> getAtoms() {
 		if (isComplex) {
 			throw new IllegalArgumentException("Cannot retrieve flat atom list of a complex goal");
@@ -94,6 +102,35 @@ public class Goal {
 		return positiveAtoms;
 	}
 	
+	/**
+	 * Returns the positive atoms which must hold in each state satisfying
+	 * this goal: all positive goal atoms or, for a complex goal, the
+	 * positive atoms of its (possibly nested) top-level conjunction.
+	 */
+	public List<Atom> getNecessaryPositiveAtoms() {
+		if (!isComplex) {
+			return positiveAtoms;
+		}
+		List<Atom> necessary = new ArrayList<>();
+		collectConjunctiveAtoms(complexCondition, necessary);
+		return necessary;
+	}
+	
+	private static void collectConjunctiveAtoms(Precondition condition, List<Atom> atoms) {
+		switch (condition.getType()) {
+		case atom:
+			if (condition.getAtom().getValue())
+				atoms.add(condition.getAtom());
+			break;
+		case conjunction:
+			for (Precondition child : condition.getChildren())
+				collectConjunctiveAtoms(child, atoms);
+			break;
+		default:
+			break;
+		}
+	}
+	
 	public Precondition getComplexCondition() {
 		if (!isComplex) {
 			throw new IllegalArgumentException("Cannot retrieve complex condition object of a simple goal");
@@ -2,6 +2,11 @@ package edu.kit.aquaplanning.model.ground;
 
 import java.util.List;
 
+import edu.kit.aquaplanning.grounding.MutexGroupDetector;
+import edu.kit.aquaplanning.planning.datastructures.ActionIndex;
+import edu.kit.aquaplanning.planning.datastructures.LandmarkGraph;
+import edu.kit.aquaplanning.util.Logger;
+
 /**
  * Represents a planning problem in ground form, i.e. all atoms
  * and actions are flat lists/sets without any parameters.
@@ -19,6 +24,10 @@ public class GroundPlanningProblem {
 	private Boolean hasConditionalEffects;
 	private Boolean hasComplexConditions;
 	
+	private StateVariables stateVariables;
+	private ActionIndex relaxedActionIndex;
+	private LandmarkGraph landmarkGraph;
+	
 	public GroundPlanningProblem(State initState, List<Action> actions, 
 			Goal goal, boolean hasActionCosts, List<String> atomNames, 
 			List<String> numericAtomNames) {
@@ -29,6 +38,13 @@ public class GroundPlanningProblem {
 		this.hasActionCosts = hasActionCosts;
 		this.atomNames = atomNames;
 		this.numericAtomNames = numericAtomNames;
+		
+		// Fix the width of all states derived from the initial state
+		initState.ensureCapacity(getNumAtoms(), numericAtomNames.size());
+		// Number the actions by their position in the list
+		for (int i = 0; i < actions.size(); i++) {
+			actions.get(i).setId(i);
+		}
 	}
 	
 
@@ -40,6 +56,8 @@ public class GroundPlanningProblem {
 		this.hasActionCosts = other.hasActionCosts;
 		this.atomNames = other.atomNames;
 		this.numericAtomNames = other.numericAtomNames;
+		this.stateVariables = other.stateVariables;
+		this.relaxedActionIndex = other.relaxedActionIndex;
 	}
 
 	public State getInitialState() {
@@ -48,6 +66,7 @@ public class GroundPlanningProblem {
 	
 	public void setInitialState(State s) {
 		this.initialState = s;
+		this.landmarkGraph = null;
 	}
 	
 	public List<Action> getActions() {
@@ -60,6 +79,7 @@ public class GroundPlanningProblem {
 	
 	public void setGoal(Goal g) {
 		this.goal = g;
+		this.landmarkGraph = null;
 	}
 	
 	public boolean hasActionCosts() {
@@ -113,6 +133,47 @@ public class GroundPlanningProblem {
 		return numericAtomNames;
 	}
 	
+	/**
+	 * Returns the encoding of the atoms as finite-domain variables,
+	 * which is computed (see MutexGroupDetector) on the first call.
+	 */
+	public synchronized StateVariables getStateVariables() {
+		if (stateVariables == null) {
+			stateVariables = new MutexGroupDetector(this).detect();
+			Logger.log(Logger.INFO_V, "Finite-domain state variables: " + stateVariables);
+		}
+		return stateVariables;
+	}
+	
+	public void setStateVariables(StateVariables stateVariables) {
+		this.stateVariables = stateVariables;
+	}
+	
+	/**
+	 * Returns the delete-relaxed index of the applicable actions, which 
+	 * is built on the first call and shared by all relaxed planning
+	 * graphs of this problem. It may be used by multiple threads.
+	 */
+	public synchronized ActionIndex getRelaxedActionIndex() {
+		if (relaxedActionIndex == null) {
+			relaxedActionIndex = new ActionIndex(this, /*relaxed=*/true);
+		}
+		return relaxedActionIndex;
+	}
+	
+	/**
+	 * Returns the fact landmarks of this problem, which are computed
+	 * on the first call (after the initial state or the goal has been
+	 * set) and shared by all landmark heuristics of this problem.
+	 */
+	public synchronized LandmarkGraph getLandmarkGraph() {
+		if (landmarkGraph == null) {
+			landmarkGraph = new LandmarkGraph(this);
+			Logger.log(Logger.INFO_V, "Landmarks: " + landmarkGraph);
+		}
+		return landmarkGraph;
+	}
+	
 	public int getNumAtoms() {
 		return atomNames.size();
 	}
@@ -1,14 +1,25 @@
 package edu.kit.aquaplanning.model.ground;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
 /**
  * Represents a world state as a set of atoms which are currently true.
+ *
+ * The atoms are packed into 64-bit words (see AtomSet) and the values
+ * of numeric atoms are kept in a primitive array indexed by the ID
+ * of the respective numeric atom. A state can be used as a reusable
+ * buffer: see copyFrom(State) and Action.apply(State, State).
+ * 
+ * A 64-bit hash of the state is carried along and updated incrementally
+ * with each modification (see getHash()).
  */
 public class State {
+
+	private static final float[] NO_NUMERIC_ATOMS = new float[0];
 	
 	/**
 	 * Internal AtomSet of all true atoms.
@@ -17,13 +28,19 @@ public class State {
 	
 	/**
 	 * Truth values of derived atoms, where already known.
+	 * Only allocated when a derived atom is queried.
 	 */
 	private Map<DerivedAtom, Boolean> derivedAtoms;
 	
 	/**
 	 * Maps ID of numeric atom to its current value
 	 */
-	private Map<Integer, Float> numericAtoms;
+	private float[] numericAtoms;
+	
+	/**
+	 * XOR of the keys of all (ID, value) pairs of non-zero numeric atoms.
+	 */
+	private long numericHash;
 	
 	/**
 	 * Creates a state containing exactly all TRUE atoms in the provided list.
@@ -31,8 +48,7 @@ public class State {
 	public State(List<Atom> atomList) {
 		
 		this.atoms = new AtomSet(atomList);
-		this.derivedAtoms = new HashMap<>();
-		this.numericAtoms = new HashMap<>();
+		this.numericAtoms = NO_NUMERIC_ATOMS;
 	}
 	
 	/**
@@ -40,10 +56,10 @@ public class State {
 	 */
 	public State(State other) {
 		
-		atoms = (AtomSet) other.atoms.clone();
-		this.derivedAtoms = new HashMap<>(); // TODO clone?
-		this.numericAtoms = new HashMap<>();
-		this.numericAtoms.putAll(other.numericAtoms);
+		this.atoms = (AtomSet) other.atoms.clone();
+		this.numericAtoms = other.numericAtoms.length > 0 ?
+				other.numericAtoms.clone() : NO_NUMERIC_ATOMS;
+		this.numericHash = other.numericHash;
 	}
 
 	/**
@@ -52,8 +68,39 @@ public class State {
 	public State(AtomSet atomSet) {
 		
 		this.atoms = atomSet;
-		this.derivedAtoms = new HashMap<>();
-		this.numericAtoms = new HashMap<>();
+		this.numericAtoms = NO_NUMERIC_ATOMS;
+	}
+
+	/**
+	 * Overwrites this state with the content of the provided state.
+	 * Does not allocate any memory if this state is at least as wide
+	 * as the other state (which holds for any two states derived from
+	 * the initial state of the same problem).
+	 */
+	public void copyFrom(State other) {
+
+		atoms.copyFrom(other.atoms);
+		if (numericAtoms.length != other.numericAtoms.length) {
+			numericAtoms = new float[other.numericAtoms.length];
+		}
+		System.arraycopy(other.numericAtoms, 0, numericAtoms, 0, numericAtoms.length);
+		numericHash = other.numericHash;
+		if (derivedAtoms != null) {
+			derivedAtoms.clear();
+		}
+	}
+
+	/**
+	 * Grows the internal data structures such that the provided
+	 * amount of atoms and numeric atoms fit into this state
+	 * without any further reallocations.
+	 */
+	public void ensureCapacity(int numAtoms, int numNumericAtoms) {
+
+		atoms.ensureCapacity(numAtoms);
+		if (numericAtoms.length < numNumericAtoms) {
+			numericAtoms = Arrays.copyOf(numericAtoms, numNumericAtoms);
+		}
 	}
 	
 	/**
@@ -67,7 +114,32 @@ public class State {
 	
 	public void set(NumericAtom atom) {
 		
-		numericAtoms.put(atom.getId(), atom.getValue());
+		set(atom.getId(), atom.getValue());
+	}
+
+	/**
+	 * Sets the numeric atom of the provided ID to the provided value.
+	 */
+	public void set(int numericAtomId, float value) {
+
+		if (numericAtomId >= numericAtoms.length) {
+			numericAtoms = Arrays.copyOf(numericAtoms, numericAtomId+1);
+		}
+		numericHash ^= numericKey(numericAtomId, numericAtoms[numericAtomId]) 
+				^ numericKey(numericAtomId, value);
+		numericAtoms[numericAtomId] = value;
+	}
+	
+	private static long numericKey(int numericAtomId, float value) {
+		
+		int bits = Float.floatToIntBits(value);
+		if (bits == 0) {
+			// Zero-valued atoms do not contribute to the hash
+			return 0;
+		}
+		long z = (((long) numericAtomId << 32) | (bits & 0xffffffffL)) * 0x9E3779B97F4A7C15L;
+		z = (z ^ (z >>> 29)) * 0xBF58476D1CE4E5B9L;
+		return z ^ (z >>> 32);
 	}
 	
 	/**
@@ -90,7 +162,14 @@ public class State {
 	}
 	
 	public float get(NumericAtom atom) {
-		return numericAtoms.get(atom.getId());
+		return numericAtoms[atom.getId()];
+	}
+	
+	/**
+	 * Returns the value of the numeric atom of the provided ID.
+	 */
+	public float getNumeric(int numericAtomId) {
+		return numericAtoms[numericAtomId];
 	}
 	
 	/**
@@ -119,6 +198,9 @@ public class State {
 	 */
 	public boolean holds(DerivedAtom derivedAtom) {
 		
+		if (derivedAtoms == null) {
+			derivedAtoms = new HashMap<>();
+		}
 		boolean visitedBefore = derivedAtoms.containsKey(derivedAtom);
 		if (!visitedBefore) {
 			// Value is not known yet: 
@@ -199,6 +281,38 @@ public class State {
 		return atoms.numAtoms();
 	}
 	
+	/**
+	 * Returns the amount of 64-bit words the atoms of this
+	 * state are packed into.
+	 */
+	public int numWords() {
+		return atoms.numWords();
+	}
+
+	/**
+	 * Returns the packed atoms [64*index, 64*index+63] of this state.
+	 */
+	public long getWord(int index) {
+		return atoms.getWord(index);
+	}
+	
+	/**
+	 * Overwrites the packed atoms [64*index, 64*index+63] of this state.
+	 */
+	public void setWord(int index, long word) {
+		atoms.setWord(index, word);
+		if (derivedAtoms != null) {
+			derivedAtoms.clear();
+		}
+	}
+
+	/**
+	 * Returns the amount of numeric atoms stored in this state.
+	 */
+	public int numNumericAtoms() {
+		return numericAtoms.length;
+	}
+
 	@Override
 	public boolean equals(Object obj) {
 		if (this == obj)
@@ -210,26 +324,24 @@ public class State {
 		State other = (State) obj;
 		if (!other.atoms.equals(atoms))
 			return false;
-		for (int i = 0; i < numericAtoms.size(); i++) {		
-			if (!other.numericAtoms.get(i).equals(numericAtoms.get(i)))
-				return false;
-		}
+		if (!Arrays.equals(other.numericAtoms, numericAtoms))
+			return false;
 		return true;
 	}
 	
+	/**
+	 * Returns the 64-bit Zobrist hash of this state. The hash is
+	 * maintained incrementally by all modifications of the state,
+	 * so this call has trivial runtime.
+	 */
+	public long getHash() {
+		return atoms.getHash() ^ numericHash;
+	}
+	
 	@Override
 	public int hashCode() {
-		final int prime = 31;
-		int result = 1;
-		for (int i = 0; i < atoms.size(); i++) {
-			boolean atom = atoms.get(i);
-			result = prime * result + (atom ? 1 : 0);
-		}
-		for (int i = 0; i < numericAtoms.size(); i++) {
-			Float atom = numericAtoms.get(i);
-			result = prime * result + atom.hashCode();
-		}
-		return result;
+		long hash = getHash();
+		return (int) ((hash >>> 32) ^ hash);
 	}
 	
 	/**
@@ -243,8 +355,8 @@ public class State {
 			boolean atom = atoms.get(i);
 			builder.append((atom ? "1" : "0") + " ");
 		}
-		for (int i = 0; i < numericAtoms.size(); i++) {
-			float atom = numericAtoms.get(i);
+		for (int i = 0; i < numericAtoms.length; i++) {
+			float atom = numericAtoms[i];
 			builder.append(atom + " ");
 		}
 		return builder.toString();
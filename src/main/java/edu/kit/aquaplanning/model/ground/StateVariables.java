@@ -0,0 +1,244 @@
+package edu.kit.aquaplanning.model.ground;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Encoding of the atoms of a ground problem as finite-domain (SAS+)
+ * state variables, as obtained from mutex groups (see MutexGroupDetector).
+ *
+ * Each variable corresponds to a group of atoms of which at most one
+ * is true in every reachable state. The values of a variable are the
+ * atoms of its group and, unless exactly one of them is true in every
+ * reachable state, an additional value "none" (value 0, atom -1).
+ * Each changeable atom which is not part of a larger group forms a
+ * binary variable of its own. Atoms which are never changed by any
+ * action are no variables at all, as they keep their initial value.
+ *
+ * A state can be packed into ceil(log2(domain size)) bits per variable
+ * (see pack / unpack), which is exact for all reachable states.
+ */
+public class StateVariables {
+
+	private static final int NONE = -1;
+
+	/**
+	 * Per variable: the atom of each value (or -1 for "none").
+	 */
+	private int[][] values;
+	private int numGroupVariables;
+
+	/**
+	 * Per atom: its variable and value, or -1 if the atom is constant.
+	 */
+	private int[] atomVariables;
+	private int[] atomValues;
+
+	// Packed layout: word and bit offset of each variable
+	private int[] words;
+	private int[] shifts;
+	private long[] masks;
+	private int numPackedWords;
+	private int numBits;
+
+	/**
+	 * The atoms which are constantly true.
+	 */
+	private long[] constantWords;
+	private int numAtoms;
+
+	/**
+	 * Creates an encoding from the provided groups, each of which
+	 * contains at least two atoms; all other atoms which can be changed
+	 * become binary variables, and atoms which cannot be changed are
+	 * taken from the initial state.
+	 * @param exactlyOne per group: true iff exactly one of its atoms
+	 * is true in each reachable state
+	 * @param changeable the atoms which are changed by some action
+	 */
+	public StateVariables(int numAtoms, List<int[]> groups, List<Boolean> exactlyOne,
+			AtomSet changeable, State initialState) {
+
+		this.numAtoms = numAtoms;
+		this.numGroupVariables = groups.size();
+		atomVariables = new int[numAtoms];
+		atomValues = new int[numAtoms];
+		Arrays.fill(atomVariables, NONE);
+
+		boolean[] grouped = new boolean[numAtoms];
+		for (int[] group : groups) {
+			for (int atom : group)
+				grouped[atom] = true;
+		}
+		int numVariables = groups.size();
+		for (int atom = 0; atom < numAtoms; atom++) {
+			if (changeable.get(atom) && !grouped[atom])
+				numVariables++;
+		}
+		values = new int[numVariables][];
+
+		// Group variables, then binary variables
+		int var = 0;
+		for (int g = 0; g < groups.size(); g++) {
+			int[] group = groups.get(g);
+			boolean withNone = !exactlyOne.get(g);
+			int[] domain = new int[group.length + (withNone ? 1 : 0)];
+			int v = 0;
+			if (withNone) {
+				domain[v++] = NONE;
+			}
+			for (int atom : group) {
+				domain[v++] = atom;
+			}
+			values[var++] = domain;
+		}
+		for (int atom = 0; atom < numAtoms; atom++) {
+			if (changeable.get(atom) && !grouped[atom]) {
+				values[var++] = new int[] {NONE, atom};
+			}
+		}
+		for (var = 0; var < numVariables; var++) {
+			for (int v = 0; v < values[var].length; v++) {
+				if (values[var][v] != NONE) {
+					atomVariables[values[var][v]] = var;
+					atomValues[values[var][v]] = v;
+				}
+			}
+		}
+
+		// Packed layout (a variable never spans two words)
+		words = new int[numVariables];
+		shifts = new int[numVariables];
+		masks = new long[numVariables];
+		int word = 0, shift = 0;
+		for (var = 0; var < numVariables; var++) {
+			int bits = 32 - Integer.numberOfLeadingZeros(values[var].length - 1);
+			if (shift + bits > 64) {
+				word++;
+				shift = 0;
+			}
+			words[var] = word;
+			shifts[var] = shift;
+			masks[var] = (1L << bits) - 1;
+			shift += bits;
+			numBits += bits;
+		}
+		numPackedWords = numVariables == 0 ? 0 : word + 1;
+
+		// Constant atoms
+		constantWords = new long[AtomSet.numWords(numAtoms)];
+		AtomSet init = initialState.getAtomSet();
+		for (int atom = init.getFirstTrueAtom(); atom >= 0 && atom < numAtoms;
+				atom = init.getNextTrueAtom(atom+1)) {
+			if (atomVariables[atom] == NONE)
+				constantWords[atom >>> 6] |= 1L << atom;
+		}
+	}
+
+	public int getNumVariables() {
+		return values.length;
+	}
+
+	/**
+	 * The amount of variables which have been derived
+	 * from a mutex group (the first variables).
+	 */
+	public int getNumGroupVariables() {
+		return numGroupVariables;
+	}
+
+	public int getDomainSize(int variable) {
+		return values[variable].length;
+	}
+
+	/**
+	 * Returns the atom of the provided value of the provided
+	 * variable, or -1 if the value means that none of the
+	 * variable's atoms is true.
+	 */
+	public int getAtom(int variable, int value) {
+		return values[variable][value];
+	}
+
+	/**
+	 * Returns the variable of the provided atom,
+	 * or -1 if the atom is constant.
+	 */
+	public int getVariable(int atom) {
+		return atom < numAtoms ? atomVariables[atom] : NONE;
+	}
+
+	/**
+	 * Returns the value of the variable of the provided atom
+	 * which means that the atom is true.
+	 */
+	public int getValue(int atom) {
+		return atomValues[atom];
+	}
+
+	/**
+	 * Returns the value of the provided variable in the provided state.
+	 */
+	public int getValue(State state, int variable) {
+		int[] domain = values[variable];
+		for (int v = 0; v < domain.length; v++) {
+			if (domain[v] != NONE && state.getAtomSet().get(domain[v]))
+				return v;
+		}
+		return 0;
+	}
+
+	/**
+	 * The amount of bits of a packed state.
+	 */
+	public int getNumBits() {
+		return numBits;
+	}
+
+	/**
+	 * The amount of 64-bit words of a packed state.
+	 */
+	public int getNumPackedWords() {
+		return numPackedWords;
+	}
+
+	/**
+	 * Writes the packed form of the provided state into the
+	 * provided array, beginning at the provided offset.
+	 */
+	public void pack(State state, long[] target, int offset) {
+
+		Arrays.fill(target, offset, offset + numPackedWords, 0L);
+		AtomSet atoms = state.getAtomSet();
+		for (int atom = atoms.getFirstTrueAtom(); atom >= 0 && atom < numAtoms;
+				atom = atoms.getNextTrueAtom(atom+1)) {
+			int var = atomVariables[atom];
+			if (var != NONE) {
+				target[offset + words[var]] |= (long) atomValues[atom] << shifts[var];
+			}
+		}
+	}
+
+	/**
+	 * Writes the atom words of the state packed at the provided
+	 * offset of the provided array into the provided target array,
+	 * which must have at least AtomSet.numWords(numAtoms) words.
+	 */
+	public void unpack(long[] packed, int offset, long[] target) {
+
+		System.arraycopy(constantWords, 0, target, 0, constantWords.length);
+		for (int var = 0; var < values.length; var++) {
+			int value = (int) ((packed[offset + words[var]] >>> shifts[var]) & masks[var]);
+			int atom = values[var][value];
+			if (atom != NONE) {
+				target[atom >>> 6] |= 1L << atom;
+			}
+		}
+	}
+
+	@Override
+	public String toString() {
+		return String.format("%d variables (%d from mutex groups) in %d bits instead of %d atoms",
+				values.length, numGroupVariables, numBits, numAtoms);
+	}
+}
@@ -0,0 +1,113 @@
+package edu.kit.aquaplanning.model.ground;
+
+import java.util.Arrays;
+
+/**
+ * Records the changes which actions applied in place to a single
+ * mutable state (see Action#applyInPlace), such that they can be
+ * reverted in reverse order (see Action#revert).
+ *
+ * For each applied action, a frame is pushed which holds the previous
+ * values of exactly the 64-bit words of atoms and the numeric atoms
+ * which the action has changed. Hence, a path of actions needs memory
+ * in the order of its length times the size of the effects, instead
+ * of one full copy of the state per step.
+ */
+public class UndoLog {
+
+	// Previous (packed) atoms: word indices and their old words
+	private int[] wordIndices = new int[64];
+	private long[] oldWords = new long[64];
+	private int numWords;
+
+	// Previous numeric atoms: IDs and their old values
+	private int[] numericIds = new int[16];
+	private float[] oldValues = new float[16];
+	private int numNumerics;
+
+	// Per frame: the amount of recorded words and numerics at its start
+	private int[] frameStarts = new int[32];
+	private int numFrames;
+
+	/**
+	 * Opens a new frame for the changes of the next applied action.
+	 */
+	void beginFrame() {
+
+		if (2*numFrames+1 >= frameStarts.length) {
+			frameStarts = Arrays.copyOf(frameStarts, 2*frameStarts.length);
+		}
+		frameStarts[2*numFrames] = numWords;
+		frameStarts[2*numFrames+1] = numNumerics;
+		numFrames++;
+	}
+
+	/**
+	 * Records the old value of the word of the provided index,
+	 * which is about to be changed.
+	 */
+	void recordWord(int index, long oldWord) {
+
+		if (numWords == wordIndices.length) {
+			wordIndices = Arrays.copyOf(wordIndices, 2*numWords);
+			oldWords = Arrays.copyOf(oldWords, 2*numWords);
+		}
+		wordIndices[numWords] = index;
+		oldWords[numWords] = oldWord;
+		numWords++;
+	}
+
+	/**
+	 * Records the old value of the numeric atom of the provided ID,
+	 * which is about to be changed.
+	 */
+	void recordNumeric(int id, float oldValue) {
+
+		if (numNumerics == numericIds.length) {
+			numericIds = Arrays.copyOf(numericIds, 2*numNumerics);
+			oldValues = Arrays.copyOf(oldValues, 2*numNumerics);
+		}
+		numericIds[numNumerics] = id;
+		oldValues[numNumerics] = oldValue;
+		numNumerics++;
+	}
+
+	/**
+	 * Reverts the changes of the most recent frame on the provided
+	 * state and discards the frame.
+	 */
+	void undo(State state) {
+
+		if (numFrames == 0) {
+			throw new IllegalStateException("There are no changes to undo.");
+		}
+		numFrames--;
+		int wordStart = frameStarts[2*numFrames];
+		int numericStart = frameStarts[2*numFrames+1];
+		while (numWords > wordStart) {
+			numWords--;
+			state.setWord(wordIndices[numWords], oldWords[numWords]);
+		}
+		while (numNumerics > numericStart) {
+			numNumerics--;
+			state.set(numericIds[numNumerics], oldValues[numNumerics]);
+		}
+	}
+
+	/**
+	 * The amount of frames, i.e. of applied actions
+	 * which have not been reverted yet.
+	 */
+	public int size() {
+		return numFrames;
+	}
+
+	/**
+	 * Discards all frames without reverting them.
+	 */
+	public void clear() {
+		numWords = 0;
+		numNumerics = 0;
+		numFrames = 0;
+	}
+}
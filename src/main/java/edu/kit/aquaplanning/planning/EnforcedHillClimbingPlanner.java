@@ -0,0 +1,250 @@
+package edu.kit.aquaplanning.planning;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+
+import edu.kit.aquaplanning.Configuration;
+import edu.kit.aquaplanning.Configuration.PlannerType;
+import edu.kit.aquaplanning.model.ground.Action;
+import edu.kit.aquaplanning.model.ground.Goal;
+import edu.kit.aquaplanning.model.ground.GroundPlanningProblem;
+import edu.kit.aquaplanning.model.ground.Plan;
+import edu.kit.aquaplanning.model.ground.State;
+import edu.kit.aquaplanning.planning.datastructures.ActionIndex;
+import edu.kit.aquaplanning.planning.datastructures.SearchNode;
+import edu.kit.aquaplanning.planning.datastructures.SearchStrategy.Mode;
+import edu.kit.aquaplanning.planning.datastructures.StateTable;
+import edu.kit.aquaplanning.planning.heuristic.Heuristic;
+import edu.kit.aquaplanning.util.Logger;
+
+/**
+ * Enforced hill-climbing (Hoffmann and Nebel 2001).
+ *
+ * Starting from the initial state, a breadth-first search is run from
+ * the current state until a state with a strictly better heuristic value
+ * is found, which becomes the new current state; the path to it is
+ * appended to the plan. If preferred operators are enabled, each
+ * breadth-first search only follows the preferred operators (helpful
+ * actions) of the heuristic, and is repeated without this restriction
+ * if it fails. If no better state can be reached at all, hill-climbing
+ * is given up and a complete greedy best-first search is run from the
+ * initial state instead.
+ *
+ * All breadth-first searches share one StateTable (which is cleared
+ * between them) and the arrays of the nodes' parents, such that no
+ * memory is allocated for the duplicate detection of later searches.
+ * The breadth-first order coincides with the IDs of the states in the
+ * table, so the table also acts as the queue.
+ */
+public class EnforcedHillClimbingPlanner extends Planner {
+
+	private static final int NONE = -1;
+
+	private GroundPlanningProblem problem;
+	private Goal goal;
+	private ActionIndex aindex;
+	private Heuristic heuristic;
+
+	/**
+	 * The states reached by the current breadth-first search.
+	 */
+	private StateTable states;
+	// Per state ID: parent ID, action, depth and heuristic value
+	private int[] parents;
+	private Action[] actions;
+	private int[] depths;
+	private int[] heuristicValues;
+	// Per state ID: preferred operators and accepted landmarks (if any)
+	private List<BitSet> preferredOperators;
+	private List<long[]> landmarks;
+
+	private int iterations;
+	private long numEvaluations;
+
+	public EnforcedHillClimbingPlanner(Configuration config) {
+		super(config);
+	}
+
+	@Override
+	public Plan findPlan(GroundPlanningProblem problem) {
+
+		startSearch();
+		Logger.log(Logger.INFO, "Starting enforced hill-climbing with " + config.toString());
+		this.problem = problem;
+		this.goal = problem.getGoal();
+		this.aindex = new ActionIndex(problem);
+		this.heuristic = Heuristic.getHeuristic(problem, config);
+		if (heuristic == null) {
+			throw new IllegalArgumentException("Enforced hill-climbing requires a heuristic.");
+		}
+		State initState = problem.getInitialState();
+		states = new StateTable(initState, 1024, getStateVariables(problem));
+		parents = new int[1024];
+		actions = new Action[1024];
+		depths = new int[1024];
+		heuristicValues = new int[1024];
+		preferredOperators = new ArrayList<>();
+		landmarks = new ArrayList<>();
+		iterations = 0;
+		numEvaluations = 0;
+		long timeStart = System.nanoTime();
+
+		// Evaluate the initial state
+		SearchNode current = new SearchNode(null, new State(initState));
+		int currentH = evaluate(current);
+		Plan plan = new Plan();
+		int numPhases = 0;
+		boolean stuck = currentH == Integer.MAX_VALUE;
+
+		while (!stuck && !goal.isSatisfied(current.state)) {
+
+			numPhases++;
+			SearchNode better = null;
+			if (config.preferredOperators) {
+				better = improve(current, currentH, true);
+			}
+			if (better == null) {
+				better = improve(current, currentH, false);
+			}
+			if (better == null) {
+				stuck = true;
+				break;
+			}
+			appendPath(plan, better.index);
+			better.index = NONE;
+			current = better;
+			currentH = current.heuristicValue;
+			Logger.log(Logger.INFO_V, "Improved to h=" + currentH + " after "
+					+ plan.getLength() + " actions.");
+		}
+
+		long timeStop = System.nanoTime();
+		Logger.log(Logger.INFO, "Visited " + iterations + " nodes in " + numPhases
+				+ " improvement phases. Search time: " + (timeStop - timeStart)/1000000 + "ms");
+		Logger.log(Logger.INFO_V, "Heuristic evaluations: " + numEvaluations);
+		if (!stuck) {
+			return plan;
+		}
+		if (!withinComputationalBounds(iterations)) {
+			Logger.log(Logger.INFO, "Interrupted and/or computational resources exhausted.");
+			return null;
+		}
+
+		// Fall back to a complete best-first search
+		// with the remaining computational resources
+		Logger.log(Logger.INFO, "Hill-climbing failed; falling back to best-first search.");
+		Configuration fallbackConfig = config.copy();
+		fallbackConfig.plannerType = PlannerType.forwardSSS;
+		fallbackConfig.searchStrategy = Mode.bestFirst;
+		if (config.maxIterations > 0) {
+			fallbackConfig.maxIterations = config.maxIterations - iterations;
+		}
+		Planner fallback = Planner.getPlanner(fallbackConfig);
+		fallback.continueSearchOf(this);
+		return fallback.findPlan(problem);
+	}
+
+	/**
+	 * Breadth-first search from the provided node for a node with a
+	 * heuristic value below the provided one (or a goal node). Returns
+	 * this node, whose index refers to its entry in the state table,
+	 * or null if the search space is exhausted (or the search is
+	 * interrupted).
+	 */
+	private SearchNode improve(SearchNode root, int rootH, boolean helpfulOnly) {
+
+		states.clear();
+		preferredOperators.clear();
+		landmarks.clear();
+		insert(root.state, null, rootH, root.preferredOperators, root.landmarks, NONE);
+
+		State state = new State(root.state);
+		State successor = new State(root.state);
+		List<Action> applicableActions = new ArrayList<>();
+
+		// The IDs of the table are in breadth-first order
+		for (int id = 0; id < states.size(); id++) {
+
+			if (!withinComputationalBounds(iterations)) {
+				return null;
+			}
+			if (heuristicValues[id] == Integer.MAX_VALUE) {
+				// Dead end
+				continue;
+			}
+			iterations++;
+			states.get(id, state);
+			BitSet helpful = preferredOperators.get(id);
+			aindex.getApplicableActions(state, applicableActions);
+			for (Action action : applicableActions) {
+				if (helpfulOnly && (helpful == null || !helpful.get(action.getId()))) {
+					continue;
+				}
+				action.apply(state, successor);
+				if (states.contains(successor)) {
+					continue;
+				}
+
+				// Evaluate new state
+				SearchNode node = new SearchNode(null, new State(successor));
+				node.landmarks = landmarks.get(id);
+				int h = evaluate(node);
+				int childId = insert(successor, action, h, 
+						node.preferredOperators, node.landmarks, id);
+				if (h < rootH || (h != Integer.MAX_VALUE && goal.isSatisfied(successor))) {
+					node.index = childId;
+					return node;
+				}
+			}
+		}
+		return null;
+	}
+
+	private int evaluate(SearchNode node) {
+
+		node.heuristicValue = heuristic.value(node);
+		numEvaluations++;
+		return node.heuristicValue;
+	}
+
+	/**
+	 * Inserts a new state, reached by the provided action from the
+	 * state of the provided parent ID, into the table and returns its ID.
+	 */
+	private int insert(State state, Action action, int h, BitSet preferred, 
+			long[] acceptedLandmarks, int parent) {
+
+		int id = states.put(state);
+		if (id >= parents.length) {
+			int capacity = Math.max(2 * parents.length, id + 1);
+			parents = Arrays.copyOf(parents, capacity);
+			actions = Arrays.copyOf(actions, capacity);
+			depths = Arrays.copyOf(depths, capacity);
+			heuristicValues = Arrays.copyOf(heuristicValues, capacity);
+		}
+		parents[id] = parent;
+		actions[id] = action;
+		depths[id] = parent == NONE ? 0 : depths[parent]+1;
+		heuristicValues[id] = h;
+		preferredOperators.add(preferred);
+		landmarks.add(acceptedLandmarks);
+		return id;
+	}
+
+	/**
+	 * Appends the actions leading from the root of the current
+	 * breadth-first search to the provided state ID to the plan.
+	 */
+	private void appendPath(Plan plan, int id) {
+
+		Action[] path = new Action[depths[id]];
+		for (int i = id; parents[i] != NONE; i = parents[i]) {
+			path[depths[i]-1] = actions[i];
+		}
+		for (Action action : path) {
+			plan.appendAtBack(action);
+		}
+	}
+}
@@ -1,5 +1,8 @@
 package edu.kit.aquaplanning.planning;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import edu.kit.aquaplanning.Configuration;
 import edu.kit.aquaplanning.model.ground.Action;
 import edu.kit.aquaplanning.model.ground.Goal;
@@ -7,10 +10,16 @@ import edu.kit.aquaplanning.model.ground.GroundPlanningProblem;
 import edu.kit.aquaplanning.model.ground.Plan;
 import edu.kit.aquaplanning.model.ground.State;
 import edu.kit.aquaplanning.planning.datastructures.ActionIndex;
+import edu.kit.aquaplanning.planning.datastructures.ConcurrentStateTable;
+import edu.kit.aquaplanning.planning.datastructures.IncrementalActionIndex;
+import edu.kit.aquaplanning.planning.datastructures.NodeArena;
 import edu.kit.aquaplanning.planning.datastructures.SearchNode;
 import edu.kit.aquaplanning.planning.datastructures.SearchQueue;
 import edu.kit.aquaplanning.planning.datastructures.SearchStrategy;
+import edu.kit.aquaplanning.planning.datastructures.SearchStrategy.Mode;
+import edu.kit.aquaplanning.planning.heuristic.CachedHeuristic;
 import edu.kit.aquaplanning.planning.heuristic.Heuristic;
+import edu.kit.aquaplanning.planning.heuristic.ParallelHeuristicEvaluator;
 import edu.kit.aquaplanning.util.Logger;
 
 /**
@@ -24,10 +33,32 @@ import edu.kit.aquaplanning.util.Logger;
  */
 public class ForwardSearchPlanner extends Planner {
 	
+	/**
+	 * Tables of visited states and dead ends shared with other
+	 * searches (see setSharedStates), or null.
+	 */
+	private ConcurrentStateTable sharedVisitedStates;
+	private ConcurrentStateTable sharedDeadEnds;
+	/**
+	 * The amount of nodes visited by the last search.
+	 */
+	private int numVisitedNodes;
+	
 	public ForwardSearchPlanner(Configuration config) {
 		super(config);
 	}
 	
+	/**
+	 * Makes the search keep its visited states and dead ends inside
+	 * the provided tables, which may be shared with concurrent searches
+	 * on the same problem (see SearchQueue.setSharedStates).
+	 */
+	public void setSharedStates(ConcurrentStateTable visitedStates, 
+			ConcurrentStateTable deadEnds) {
+		this.sharedVisitedStates = visitedStates;
+		this.sharedDeadEnds = deadEnds;
+	}
+	
 	/**
 	 * Given a ground planning problem, employs a forward 
 	 * state space search procedure according to the configuration
@@ -40,18 +71,58 @@ public class ForwardSearchPlanner extends Planner {
 		// Important objects from the planning problem
 		State initState = problem.getInitialState();
 		Goal goal = problem.getGoal();
-		ActionIndex aindex = new ActionIndex(problem);
+		ActionIndex aindex = config.incrementalSuccessors ? 
+				new IncrementalActionIndex(problem) : new ActionIndex(problem);
 		
 		// Initialize forward search
 		SearchQueue frontier;
 		SearchStrategy strategy = new SearchStrategy(config);
+		ParallelHeuristicEvaluator evaluator = null;
 		if (strategy.isHeuristical()) {
 			Heuristic heuristic = Heuristic.getHeuristic(problem, config);
 			frontier = new SearchQueue(strategy, heuristic);
+			if (config.parallelEvaluation && !strategy.isLazy()) {
+				// The successors of each node are evaluated in parallel
+				evaluator = new ParallelHeuristicEvaluator(problem, config, 
+						config.numThreads, heuristic);
+				frontier.setParallelEvaluator(evaluator);
+			}
 		} else {
 			frontier = new SearchQueue(strategy);
 		}
-		frontier.add(new SearchNode(null, initState));
+		
+		// All generated nodes are stored in a compact arena; the frontier
+		// only holds light-weight nodes referring to their arena index.
+		// Bounded open lists discard nodes, which are hence not stored in
+		// the (only growing) arena: such nodes refer to their parent nodes
+		// instead, so that discarded nodes are garbage-collected.
+		boolean bounded = strategy.isHeuristical() 
+				&& (strategy.getMaxFrontierSize() > 0 || strategy.getMode() == Mode.beamSearch);
+		NodeArena arena = null;
+		if (!bounded) {
+			arena = new NodeArena(initState, 1024, getStateVariables(problem));
+			frontier.setNodeArena(arena);
+		}
+		frontier.setStateVariables(getStateVariables(problem));
+		frontier.setSharedStates(sharedVisitedStates, sharedDeadEnds);
+		// A depth-first search moves a single state along its path
+		// instead of storing the state of each node (unless nodes may
+		// be deferred and polled off the path, see setSharedStates)
+		boolean pathState = strategy.getMode() == Mode.depthFirst && sharedVisitedStates == null;
+		if (pathState) {
+			frontier.setPathState(new State(initState));
+		}
+		SearchNode initNode = new SearchNode(null, initState);
+		if (arena != null) {
+			initNode.index = arena.add(-1, null, 0, initState);
+		}
+		frontier.add(initNode);
+		
+		// Reusable buffer for successor states: the arena stores
+		// a packed copy of each distinct successor state
+		State successor = new State(initState);
+		List<Action> applicableActions = new ArrayList<>();
+		List<SearchNode> successors = new ArrayList<>();
 		
 		int iteration = 1;
 		int visitedNodesPrintInterval = 28;
@@ -61,31 +132,70 @@ public class ForwardSearchPlanner extends Planner {
 			
 			// Visit node (by the heuristic provided to the priority queue)
 			SearchNode node = frontier.get();
+			if (node == null) {
+				// All remaining nodes have been discarded
+				break;
+			}
 			
 			// Is the goal reached?
 			if (goal.isSatisfied(node.state)) {
 				
-				// Extract plan
-				Plan plan = new Plan();
-				while (node != null && node.lastAction != null) {
-					plan.appendAtFront(node.lastAction);
-					node = node.parent;
+				// Extract plan by following the parent indices (or nodes)
+				Plan plan;
+				if (arena != null) {
+					plan = arena.extractPlan(node.index, problem.getActions());
+				} else {
+					plan = new Plan();
+					for (SearchNode n = node; n.lastAction != null; n = n.parent) {
+						plan.appendAtFront(n.lastAction);
+					}
 				}
 				long timeStop = System.nanoTime();
+				numVisitedNodes = iteration;
 				Logger.log(Logger.INFO, "Visited " + iteration + " nodes in total. "
 						+ "Search time: " + (timeStop - timeStart)/1000000 + "ms");
+				logVisitedStates(frontier, arena, evaluator);
+				if (evaluator != null) {
+					evaluator.shutdown();
+				}
 				return plan;
 			}
 			
 			// Expand node: iterate over operators
-			for (Action action : aindex.getApplicableActions(node.state)) {
-				// Create new node by applying the operator
-				State newState = action.apply(node.state);
+			aindex.getApplicableActions(node.state, applicableActions);
+			for (Action action : applicableActions) {
+				// Create new state by applying the operator
+				action.apply(node.state, successor);
+				int stateId = pathState || arena == null ? -1 : arena.putState(successor);
+				if (frontier.canBePruned(successor, stateId)) {
+					continue;
+				}
 				
-				// Add new node to frontier
-				SearchNode newNode = new SearchNode(node, newState);
+				// Add new node to arena and frontier (successors evaluated
+				// in parallel or without arena need a state object of their own)
+				SearchNode newNode = new SearchNode(arena == null ? node : null, 
+						evaluator != null || arena == null ? new State(successor) : successor);
+				newNode.depth = node.depth+1;
+				// Estimate used until the node is evaluated (lazy evaluation)
+				newNode.heuristicValue = node.heuristicValue;
+				newNode.landmarks = node.landmarks;
 				newNode.lastAction = action;
-				frontier.add(newNode);
+				if (arena != null) {
+					newNode.index = arena.add(node.index, action, newNode.depth, stateId);
+				}
+				if (evaluator != null) {
+					successors.add(newNode);
+				} else {
+					frontier.add(newNode);
+				}
+			}
+			if (evaluator != null) {
+				frontier.addAll(successors);
+				successors.clear();
+			}
+			if (arena == null) {
+				// Only needed by the successors to extract a plan
+				node.state = null;
 			}
 			
 			iteration++;
@@ -107,8 +217,54 @@ public class ForwardSearchPlanner extends Planner {
 			Logger.log(Logger.INFO, "Interrupted and/or computational resources exhausted.");
 		}
 		long timeStop = System.nanoTime();
+		numVisitedNodes = iteration;
 		Logger.log(Logger.INFO, "Visited " + iteration + " nodes in total. Search time: " 
 				+ (timeStop - timeStart)/1000000 + "ms");
+		logVisitedStates(frontier, arena, evaluator);
+		if (evaluator != null) {
+			evaluator.shutdown();
+		}
 		return null;
 	}
+	
+	/**
+	 * The amount of nodes visited by the last call to findPlan.
+	 */
+	public int getNumVisitedNodes() {
+		return numVisitedNodes;
+	}
+	
+	/**
+	 * Reports statistics on the stored nodes and on the
+	 * duplicate detection of the search.
+	 */
+	private void logVisitedStates(SearchQueue frontier, NodeArena arena, 
+			ParallelHeuristicEvaluator evaluator) {
+		
+		if (arena != null) {
+			Logger.log(Logger.INFO_V, "Generated nodes: " + arena);
+			Logger.log(Logger.INFO_V, "State table: " + arena.getStateTable());
+		}
+		if (frontier.getNumEvaluations() > 0) {
+			Logger.log(Logger.INFO_V, "Heuristic evaluations: " + frontier.getNumEvaluations());
+		}
+		if (frontier.getNumEvictions() > 0) {
+			Logger.log(Logger.INFO_V, "Nodes discarded from full open lists: " 
+					+ frontier.getNumEvictions());
+		}
+		if (frontier.getHeuristic() instanceof CachedHeuristic) {
+			Logger.log(Logger.INFO_V, "Heuristic cache: " 
+					+ ((CachedHeuristic) frontier.getHeuristic()).getCache());
+		}
+		if (evaluator != null) {
+			Logger.log(Logger.INFO_V, "Parallel evaluation: " + evaluator.getParallelism() 
+					+ " threads, " + evaluator.getNumHeuristics() + " heuristic instances");
+		}
+		if (frontier.getVisitedStates() != null) {
+			// No arena: the visited states are kept in a table of their own
+			Logger.log(Logger.INFO_V, "Visited states: " + frontier.getVisitedStates());
+		} else if (frontier.getNumVisitedStates() > 0) {
+			Logger.log(Logger.INFO_V, "Visited states: " + frontier.getNumVisitedStates());
+		}
+	}
 }
@@ -1,26 +1,27 @@
 package edu.kit.aquaplanning.planning;
 
 import java.util.ArrayDeque;
-import java.util.Collection;
-import java.util.HashSet;
-import java.util.Iterator;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Random;
 
 import edu.kit.aquaplanning.Configuration;
 import edu.kit.aquaplanning.model.ground.Action;
 import edu.kit.aquaplanning.model.ground.Atom;
-import edu.kit.aquaplanning.model.ground.AtomSet;
 import edu.kit.aquaplanning.model.ground.Goal;
 import edu.kit.aquaplanning.model.ground.GroundPlanningProblem;
 import edu.kit.aquaplanning.model.ground.Plan;
 import edu.kit.aquaplanning.model.ground.State;
-import edu.kit.aquaplanning.planning.datastructures.FullActionIndex;
+import edu.kit.aquaplanning.model.ground.UndoLog;
+import edu.kit.aquaplanning.planning.datastructures.IncrementalActionIndex;
+import edu.kit.aquaplanning.planning.datastructures.StateTable;
 import edu.kit.aquaplanning.util.Logger;
 
 /**
  * A simple forward best-first-search planner. Does not create parallel plans.
  * Creates very long plans which should be shortened by some post-processing.
+ * The search operates on a single state to which the actions of the plan
+ * are applied in place, and reverted when backtracking.
  */
 public class GreedyBestFirstSearchPlanner extends Planner {
 	
@@ -34,34 +35,34 @@ public class GreedyBestFirstSearchPlanner extends Planner {
 	@Override
 	public Plan findPlan(GroundPlanningProblem problem) {
 		startSearch();
-        ArrayDeque<State> stateHistory = new ArrayDeque<>();
         ArrayDeque<Action> plan = new ArrayDeque<>();
-        //visitedStates = new MoveToFrontHashTable(64*1024*1024);
-        HashSet<AtomSet> visitedStates = new HashSet<>();
-		FullActionIndex aindex = new FullActionIndex(problem);
+		IncrementalActionIndex aindex = new IncrementalActionIndex(problem);
 
         State state = new State(problem.getInitialState());
+        UndoLog undoLog = new UndoLog();
+        StateTable visitedStates = new StateTable(state, 1024, getStateVariables(problem));
         Goal goal = problem.getGoal();
-        Collection<Action> applicableActions = aindex.getApplicableActions(state);
+        List<Action> applicableActions = new ArrayList<>();
         int iterations = 0;
         
         while (!goal.isSatisfied(state) && withinComputationalBounds(iterations)) {
         	iterations++;
-            visitedStates.add(state.getAtomSet());
+            visitedStates.add(state);
+            // Update applicable actions from the changes to the previous state
+            aindex.getApplicableActions(state, applicableActions);
         	Action best = null;
         	int bestValue = -1;
         	
             for (Action a : applicableActions) {
-            	State newState = a.apply(state);
-            	if (visitedStates.contains(newState.getAtomSet())) {
-            		continue;
-            	} else {
-            		int value = calculateManhattan(newState, goal);
+            	a.applyInPlace(state, undoLog);
+            	if (!visitedStates.contains(state)) {
+            		int value = calculateManhattan(state, goal);
             		if (value > bestValue) {
             			bestValue = value;
             			best = a;
             		}
             	}
+            	Action.revert(state, undoLog);
             }
             
             if (best == null) {
@@ -71,16 +72,11 @@ public class GreedyBestFirstSearchPlanner extends Planner {
                 }
                 // backtracking
                 plan.removeLast();
-                State newState = stateHistory.pollLast();
-                updateApplicableActionsChanges(applicableActions, state, newState, aindex);
-                state = newState;
+                Action.revert(state, undoLog);
             } else {
                 // select the best action
                 plan.addLast(best);
-                stateHistory.addLast(state);
-                State newState = best.apply(state);
-                updateApplicableActionsChanges(applicableActions, state, newState, aindex);
-                state = newState;
+                best.applyInPlace(state, undoLog);
             }
         }
 
@@ -98,41 +94,6 @@ public class GreedyBestFirstSearchPlanner extends Planner {
         }
     }
 	
-    private void updateApplicableActionsChanges(Collection<Action> actions, State oldState, State newState, FullActionIndex aindex) {
-        // first remove actions that are no more applicable
-        Iterator<Action> iter = actions.iterator();
-        while (iter.hasNext()) {
-        	Action a = iter.next();
-        	if (!a.isApplicable(newState)) {
-        		iter.remove();
-        	}
-        }
-        // add new applicable actions for changed state variables
-        if (aindex.getNoPrecondActions() != null) {
-        	for (Action a : aindex.getNoPrecondActions()) {
-        		if (a.isApplicable(newState)) {
-        			actions.add(a);
-        		}
-        	}
-        }
-        // Check and debug
-        AtomSet changes = oldState.getAtomSet().xor(newState.getAtomSet());
-        int changeId = changes.getFirstTrueAtom();
-        while (changeId != -1) {
-        	int precondIndex = newState.getAtomSet().get(changeId) ? changeId+1 : -changeId-1;
-        	List<Action> cands = aindex.getActionsWithPrecondition(precondIndex);
-        	if (cands != null) {
-        		for (Action a: cands) {
-        			if (a.isApplicable(newState)) {
-        				actions.add(a);
-        			}
-        		}
-        	}
-        	changeId = changes.getNextTrueAtom(changeId+1);
-        }
-    }
-
-	
 	private int calculateManhattan(State state, Goal goal) {
 		int satisfiedGoals = 0;
 		for (Atom g : goal.getAtoms()) {
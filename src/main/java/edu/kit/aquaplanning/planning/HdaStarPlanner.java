@@ -0,0 +1,468 @@
+package edu.kit.aquaplanning.planning;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import edu.kit.aquaplanning.Configuration;
+import edu.kit.aquaplanning.model.ground.Action;
+import edu.kit.aquaplanning.model.ground.Goal;
+import edu.kit.aquaplanning.model.ground.GroundPlanningProblem;
+import edu.kit.aquaplanning.model.ground.Plan;
+import edu.kit.aquaplanning.model.ground.State;
+import edu.kit.aquaplanning.planning.datastructures.ActionIndex;
+import edu.kit.aquaplanning.planning.datastructures.SearchNode;
+import edu.kit.aquaplanning.planning.datastructures.SearchStrategy;
+import edu.kit.aquaplanning.planning.datastructures.SearchStrategy.Mode;
+import edu.kit.aquaplanning.planning.datastructures.StateTable;
+import edu.kit.aquaplanning.planning.heuristic.Heuristic;
+import edu.kit.aquaplanning.util.Logger;
+
+/**
+ * Hash-distributed best-first search (HDA*, Kishimoto et al. 2009).
+ *
+ * Each of the configured amount of worker threads owns the partition
+ * of the state space whose states hash to it, with an open list, a
+ * closed list (StateTable) and a heuristic of its own. A worker only
+ * expands nodes of its own partition; each generated node is sent to
+ * the worker owning its state, which performs the duplicate detection
+ * and the heuristic evaluation. Nodes are sent in batches through
+ * lock-free queues, so that workers hardly ever synchronize.
+ *
+ * With aStar, the search goes on after finding a plan until no open
+ * node can lead to a cheaper plan, and the cheapest plan is returned.
+ * Other strategies stop at the first plan found; weightedAStar still
+ * reopens states which are reached on a cheaper path.
+ * The search is exhausted as soon as no node is open nor in transit,
+ * which is tracked by a single global counter. If a worker fails,
+ * all workers stop and the error is rethrown by findPlan.
+ */
+public class HdaStarPlanner extends Planner {
+
+	/**
+	 * Amount of nodes per message to another worker.
+	 */
+	private static final int BATCH_SIZE = 64;
+	/**
+	 * Amount of expansions after which all pending messages are sent.
+	 */
+	private static final int FLUSH_INTERVAL = 32;
+
+	private GroundPlanningProblem problem;
+	private Goal goal;
+	private ActionIndex aindex;
+	private SearchStrategy strategy;
+	private Worker[] workers;
+
+	/**
+	 * Amount of nodes which are open or in transit.
+	 */
+	private AtomicLong work;
+	private AtomicLong expansions;
+	private volatile boolean done;
+	/**
+	 * The first error thrown by any of the workers.
+	 */
+	private Throwable error;
+
+	/**
+	 * Cost of the best plan found so far.
+	 */
+	private AtomicInteger incumbentCost;
+	private SearchNode incumbent;
+
+	public HdaStarPlanner(Configuration config) {
+		super(config);
+	}
+
+	@Override
+	public Plan findPlan(GroundPlanningProblem problem) {
+
+		startSearch();
+		Logger.log(Logger.INFO, "Starting hash-distributed search with "
+				+ config.numThreads + " workers and " + config.toString());
+		this.problem = problem;
+		this.goal = problem.getGoal();
+		this.aindex = new ActionIndex(problem);
+		this.strategy = new SearchStrategy(config);
+		Mode mode = strategy.getMode();
+		if (mode == Mode.depthFirst || mode == Mode.randomChoice || mode == Mode.beamSearch) {
+			throw new IllegalArgumentException("The search strategy " + mode
+					+ " is not supported by hash-distributed search.");
+		}
+		work = new AtomicLong();
+		expansions = new AtomicLong();
+		incumbentCost = new AtomicInteger(Integer.MAX_VALUE);
+		incumbent = null;
+		done = false;
+		error = null;
+
+		// Workers
+		int numWorkers = Math.max(1, config.numThreads);
+		workers = new Worker[numWorkers];
+		for (int i = 0; i < numWorkers; i++) {
+			workers[i] = new Worker(i);
+		}
+
+		// Hand the initial node to its owner
+		State initState = problem.getInitialState();
+		work.incrementAndGet();
+		workers[getOwner(initState)].inbox.add(singletonBatch(new SearchNode(null, initState)));
+
+		long timeStart = System.nanoTime();
+		List<Thread> threads = new ArrayList<>();
+		for (Worker worker : workers) {
+			Thread thread = new Thread(worker, "hda-worker-" + worker.id);
+			threads.add(thread);
+			thread.start();
+		}
+		boolean interrupted = false;
+		for (Thread thread : threads) {
+			while (thread.isAlive()) {
+				try {
+					thread.join();
+				} catch (InterruptedException e) {
+					// Stop all workers, but wait for them to finish
+					// before their results are read
+					interrupted = true;
+					done = true;
+				}
+			}
+		}
+		if (interrupted) {
+			Thread.currentThread().interrupt();
+		}
+		long timeStop = System.nanoTime();
+		if (error instanceof RuntimeException) {
+			throw (RuntimeException) error;
+		} else if (error instanceof Error) {
+			throw (Error) error;
+		} else if (error != null) {
+			throw new RuntimeException(error);
+		}
+
+		logStatistics(timeStop - timeStart);
+		if (incumbent == null) {
+			if (work.get() == 0) {
+				Logger.log(Logger.INFO, "Search space exhausted.");
+			} else {
+				Logger.log(Logger.INFO, "Interrupted and/or computational resources exhausted.");
+			}
+			return null;
+		}
+
+		// Extract plan by following the parent nodes
+		Plan plan = new Plan();
+		for (SearchNode node = incumbent; node.lastAction != null; node = node.parent) {
+			plan.appendAtFront(node.lastAction);
+		}
+		return plan;
+	}
+
+	/**
+	 * The index of the worker owning the provided state. The state's
+	 * hash is mixed once more, as the state tables of the workers
+	 * take their positions from its lower bits.
+	 */
+	private int getOwner(State state) {
+		long h = state.getHash() * 0x9E3779B97F4A7C15L;
+		return (int) ((h >>> 33) % workers.length);
+	}
+
+	private static List<SearchNode> singletonBatch(SearchNode node) {
+		List<SearchNode> batch = new ArrayList<>(1);
+		batch.add(node);
+		return batch;
+	}
+
+	/**
+	 * Callback for when some worker polls a goal node.
+	 * Returns true iff the search can be stopped.
+	 */
+	private synchronized boolean onGoalFound(SearchNode node) {
+		if (node.depth < incumbentCost.get()) {
+			incumbent = node;
+			incumbentCost.set(node.depth);
+			Logger.log(Logger.INFO_V, "Found a plan of length " + node.depth + ".");
+		}
+		return !isCostBounded();
+	}
+
+	/**
+	 * Callback for when some worker fails: stops the search.
+	 */
+	private synchronized void onError(Throwable t) {
+		if (error == null) {
+			error = t;
+		}
+		done = true;
+	}
+
+	/**
+	 * True iff the search goes on after a plan has been found,
+	 * pruning all nodes which cannot lead to a cheaper plan.
+	 */
+	private boolean isCostBounded() {
+		return strategy.getMode() == Mode.aStar;
+	}
+
+	/**
+	 * True iff states which are reached on a cheaper path are reopened.
+	 */
+	private boolean reopensStates() {
+		Mode mode = strategy.getMode();
+		return mode == Mode.aStar || mode == Mode.weightedAStar;
+	}
+
+	private void logStatistics(long nanos) {
+
+		long numExpansions = expansions.get();
+		double seconds = Math.max(nanos, 1) * 0.001 * 0.001 * 0.001;
+		Logger.log(Logger.INFO, "Visited " + numExpansions + " nodes in total with "
+				+ workers.length + " workers. Search time: " + nanos/1000000 + "ms ("
+				+ (long) (numExpansions / seconds) + " nodes/s)");
+		for (Worker worker : workers) {
+			Logger.log(Logger.INFO_V, "Worker " + worker.id + ": " + worker.numExpansions
+					+ " expansions, " + worker.numEvaluations + " evaluations, "
+					+ worker.numReceived + " received nodes (" + worker.numRemote
+					+ " sent to other workers), " + worker.closed.size() + " states");
+		}
+	}
+
+	/**
+	 * A search thread owning one partition of the state space.
+	 */
+	private class Worker implements Runnable {
+
+		private int id;
+		private Heuristic heuristic;
+
+		/**
+		 * Incoming batches of nodes from all workers.
+		 */
+		private ConcurrentLinkedQueue<List<SearchNode>> inbox;
+		/**
+		 * Per worker: nodes waiting to be sent.
+		 */
+		private List<List<SearchNode>> outboxes;
+
+		private PriorityQueue<SearchNode> open;
+		private StateTable closed;
+		/**
+		 * Per state ID: the lowest depth and the heuristic
+		 * value with which the state has been reached.
+		 */
+		private int[] bestDepths;
+		private int[] heuristicValues;
+
+		private List<Action> applicableActions = new ArrayList<>();
+
+		// Statistics
+		private long numExpansions;
+		private long numEvaluations;
+		private long numReceived;
+		private long numRemote;
+
+		public Worker(int id) {
+			this.id = id;
+			if (strategy.isHeuristical()) {
+				heuristic = Heuristic.getHeuristic(problem, config);
+			}
+			inbox = new ConcurrentLinkedQueue<>();
+			outboxes = new ArrayList<>();
+			for (int i = 0; i < workers.length; i++) {
+				outboxes.add(new ArrayList<>(BATCH_SIZE));
+			}
+			open = new PriorityQueue<>((n1, n2) -> {
+				int cmp = Integer.compare(priority(n1), priority(n2));
+				return cmp != 0 ? cmp : Integer.compare(n1.heuristicValue, n2.heuristicValue);
+			});
+			closed = new StateTable(problem.getInitialState(), 1024, getStateVariables(problem));
+			bestDepths = new int[1024];
+			heuristicValues = new int[1024];
+		}
+
+		private int priority(SearchNode node) {
+			switch (strategy.getMode()) {
+			case aStar:
+				return node.depth + node.heuristicValue;
+			case weightedAStar:
+				return node.depth + strategy.getHeuristicWeight() * node.heuristicValue;
+			case bestFirst:
+				return node.heuristicValue;
+			default:
+				return node.depth;
+			}
+		}
+
+		@Override
+		public void run() {
+			try {
+				search();
+			} catch (Throwable t) {
+				onError(t);
+			}
+		}
+
+		private void search() {
+
+			int sinceFlush = 0;
+			while (!done) {
+
+				if (!withinComputationalBounds((int) Math.min(expansions.get(), Integer.MAX_VALUE))) {
+					done = true;
+					break;
+				}
+				receive();
+
+				SearchNode node = open.poll();
+				if (node == null) {
+					// Idle: send everything pending, then wait for work
+					flushAll();
+					sinceFlush = 0;
+					if (work.get() == 0) {
+						done = true;
+					} else {
+						Thread.yield();
+					}
+					continue;
+				}
+
+				// Outdated or not able to improve on the incumbent plan?
+				int stateId = closed.getId(node.state);
+				if (node.depth > bestDepths[stateId] || priority(node) >= incumbentBound()) {
+					work.decrementAndGet();
+					continue;
+				}
+
+				if (goal.isSatisfied(node.state)) {
+					if (onGoalFound(node)) {
+						done = true;
+					}
+					work.decrementAndGet();
+					continue;
+				}
+
+				expand(node);
+				if (++sinceFlush >= FLUSH_INTERVAL) {
+					flushAll();
+					sinceFlush = 0;
+				}
+			}
+		}
+
+		/**
+		 * The priority from which on nodes cannot lead
+		 * to a plan cheaper than the incumbent plan.
+		 */
+		private int incumbentBound() {
+			int cost = incumbentCost.get();
+			if (cost == Integer.MAX_VALUE || strategy.getMode() != Mode.aStar) {
+				// Only A* priorities are lower bounds of the plan cost
+				return Integer.MAX_VALUE;
+			}
+			return cost;
+		}
+
+		private void expand(SearchNode node) {
+
+			numExpansions++;
+			expansions.incrementAndGet();
+			aindex.getApplicableActions(node.state, applicableActions);
+			// Count all children before the expanded node is removed,
+			// such that the amount of work never drops to zero in between
+			work.addAndGet(applicableActions.size());
+			for (Action action : applicableActions) {
+				SearchNode child = new SearchNode(node, action.apply(node.state));
+				child.lastAction = action;
+				child.heuristicValue = node.heuristicValue;
+				child.landmarks = node.landmarks;
+				if (isCostBounded() && child.depth >= incumbentCost.get()) {
+					work.decrementAndGet();
+					continue;
+				}
+				int owner = getOwner(child.state);
+				if (owner == id) {
+					insert(child);
+				} else {
+					List<SearchNode> outbox = outboxes.get(owner);
+					outbox.add(child);
+					numRemote++;
+					if (outbox.size() >= BATCH_SIZE) {
+						flush(owner);
+					}
+				}
+			}
+			// The state of an expanded node is not needed anymore
+			// (its descendants only refer to it to extract a plan)
+			node.state = null;
+			work.decrementAndGet();
+		}
+
+		private void receive() {
+			List<SearchNode> batch;
+			while ((batch = inbox.poll()) != null) {
+				for (SearchNode node : batch) {
+					insert(node);
+				}
+			}
+		}
+
+		/**
+		 * Performs duplicate detection and evaluation of a node
+		 * of this worker's partition and inserts it into the open list.
+		 */
+		private void insert(SearchNode node) {
+
+			numReceived++;
+			int sizeBefore = closed.size();
+			int stateId = closed.put(node.state);
+			if (stateId >= bestDepths.length) {
+				int capacity = Math.max(2 * bestDepths.length, stateId + 1);
+				bestDepths = Arrays.copyOf(bestDepths, capacity);
+				heuristicValues = Arrays.copyOf(heuristicValues, capacity);
+			}
+			if (closed.size() > sizeBefore) {
+				// New state: evaluate
+				int h = 0;
+				if (heuristic != null) {
+					h = heuristic.value(node);
+					numEvaluations++;
+				}
+				heuristicValues[stateId] = h;
+				bestDepths[stateId] = node.depth;
+			} else if (reopensStates() && node.depth < bestDepths[stateId]) {
+				// Reached on a cheaper path: reopen
+				bestDepths[stateId] = node.depth;
+			} else {
+				work.decrementAndGet();
+				return;
+			}
+			node.heuristicValue = heuristicValues[stateId];
+			if (node.heuristicValue == Integer.MAX_VALUE) {
+				// Dead end
+				work.decrementAndGet();
+				return;
+			}
+			open.add(node);
+		}
+
+		private void flush(int owner) {
+			List<SearchNode> outbox = outboxes.get(owner);
+			if (!outbox.isEmpty()) {
+				workers[owner].inbox.add(outbox);
+				outboxes.set(owner, new ArrayList<>(BATCH_SIZE));
+			}
+		}
+
+		private void flushAll() {
+			for (int owner = 0; owner < workers.length; owner++) {
+				flush(owner);
+			}
+		}
+	}
+}
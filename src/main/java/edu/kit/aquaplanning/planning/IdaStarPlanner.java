@@ -0,0 +1,318 @@
+package edu.kit.aquaplanning.planning;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import edu.kit.aquaplanning.Configuration;
+import edu.kit.aquaplanning.model.ground.Action;
+import edu.kit.aquaplanning.model.ground.Goal;
+import edu.kit.aquaplanning.model.ground.GroundPlanningProblem;
+import edu.kit.aquaplanning.model.ground.Plan;
+import edu.kit.aquaplanning.model.ground.State;
+import edu.kit.aquaplanning.model.ground.UndoLog;
+import edu.kit.aquaplanning.planning.datastructures.ActionIndex;
+import edu.kit.aquaplanning.planning.datastructures.SearchNode;
+import edu.kit.aquaplanning.planning.datastructures.StateTable;
+import edu.kit.aquaplanning.planning.heuristic.Heuristic;
+import edu.kit.aquaplanning.util.Logger;
+
+/**
+ * Iterative-deepening A* (Korf 1985) with a bounded transposition table.
+ *
+ * Each iteration is a depth-first search which cuts off all nodes whose
+ * f = depth + h exceeds the current bound; the next bound is the smallest
+ * f value which has been cut off. With an admissible heuristic (e.g. hMax
+ * or patternDatabase), the first plan found is optimal w.r.t. its length.
+ *
+ * The search operates on a single mutable state: actions are applied in
+ * place and reverted by an UndoLog, so the memory of the search itself
+ * is linear in the depth. The depth-first search uses an explicit stack
+ * (per depth: the applicable actions and the next action to try) instead
+ * of recursion, so deep searches cannot overflow the call stack, and it
+ * checks the computational bounds every CHECK_INTERVAL expansions.
+ * The transposition table additionally remembers up to a fixed amount
+ * of states with their heuristic value (which is then computed only
+ * once) and the smallest depth at which each state has been reached in
+ * the current iteration. A state which is reached again
+ * at no smaller depth is not expanded again, which also cuts off cycles.
+ * Once the table is full, new states are searched without this pruning.
+ */
+public class IdaStarPlanner extends Planner {
+
+	/**
+	 * Search result signifying that a goal state has been reached.
+	 */
+	private static final int FOUND = -1;
+	/**
+	 * Result of entering a node which has been expanded,
+	 * i.e. whose successors are to be searched next.
+	 */
+	private static final int EXPANDED = -2;
+	/**
+	 * Result of entering a node when the computational bounds are exceeded.
+	 */
+	private static final int STOPPED = -3;
+	/**
+	 * Amount of expansions between two checks of the computational bounds.
+	 */
+	private static final int CHECK_INTERVAL = 256;
+
+	private Goal goal;
+	private ActionIndex aindex;
+	private Heuristic heuristic;
+	private boolean cacheHeuristic;
+
+	/**
+	 * The single state which the search operates on.
+	 */
+	private State state;
+	private UndoLog undoLog;
+	// Search stack, per depth: the action on the current path, the
+	// applicable actions with the index of the next one to try, the
+	// smallest f value cut off below, and the accepted landmarks
+	private Action[] path;
+	private List<List<Action>> applicableActions;
+	private int[] nextActions;
+	private int[] nextBounds;
+	private long[][] acceptedLandmarks;
+
+	// Transposition table: per state ID, its heuristic value and the
+	// smallest depth it was reached at in the iteration of the stamp
+	private StateTable table;
+	private int maxTableSize;
+	private int[] heuristicValues;
+	private int[] depths;
+	private int[] stamps;
+
+	private int bound;
+	private int numIterations;
+	private int iterations;
+	private long numEvaluations;
+
+	public IdaStarPlanner(Configuration config) {
+		super(config);
+	}
+
+	@Override
+	public Plan findPlan(GroundPlanningProblem problem) {
+
+		startSearch();
+		Logger.log(Logger.INFO, "Starting IDA* search with " + config.toString());
+		this.goal = problem.getGoal();
+		this.aindex = new ActionIndex(problem);
+		this.heuristic = Heuristic.getHeuristic(problem, config);
+		if (heuristic == null) {
+			throw new IllegalArgumentException("IDA* requires a heuristic.");
+		}
+		cacheHeuristic = heuristic.isCacheable();
+		state = new State(problem.getInitialState());
+		undoLog = new UndoLog();
+		path = new Action[64];
+		applicableActions = new ArrayList<>();
+		nextActions = new int[64];
+		nextBounds = new int[64];
+		acceptedLandmarks = new long[64][];
+		maxTableSize = config.transpositionTableSize;
+		table = new StateTable(state, Math.max(1, Math.min(maxTableSize, 1024)),
+				getStateVariables(problem));
+		heuristicValues = new int[1024];
+		depths = new int[1024];
+		stamps = new int[1024];
+		numIterations = 0;
+		iterations = 0;
+		numEvaluations = 0;
+		long timeStart = System.nanoTime();
+
+		SearchNode root = new SearchNode(null, state);
+		int h = evaluate(root);
+		int rootId = lookup();
+		if (rootId >= 0) {
+			heuristicValues[rootId] = h;
+		}
+		bound = h;
+		int result = h;
+		while (bound != Integer.MAX_VALUE) {
+
+			numIterations++;
+			Logger.log(Logger.INFO_V, "IDA* iteration " + numIterations + " with bound " + bound
+					+ " (" + iterations + " nodes visited so far)");
+			if (rootId >= 0) {
+				depths[rootId] = 0;
+				stamps[rootId] = numIterations;
+			}
+			result = search(h, root.landmarks);
+			if (result == FOUND || !withinComputationalBounds(iterations)) {
+				break;
+			}
+			bound = result;
+		}
+
+		long timeStop = System.nanoTime();
+		Logger.log(Logger.INFO, "Visited " + iterations + " nodes in " + numIterations
+				+ " iterations. Search time: " + (timeStop - timeStart)/1000000 + "ms");
+		Logger.log(Logger.INFO_V, "Heuristic evaluations: " + numEvaluations
+				+ ", transposition table: " + table.size() + " states");
+		if (result != FOUND) {
+			if (!withinComputationalBounds(iterations)) {
+				Logger.log(Logger.INFO, "Interrupted and/or computational resources exhausted.");
+			}
+			return null;
+		}
+		Plan plan = new Plan();
+		for (int depth = 0; depth < path.length && path[depth] != null; depth++) {
+			plan.appendAtBack(path[depth]);
+		}
+		return plan;
+	}
+
+	/**
+	 * Depth-first search from the initial state, which is the current
+	 * state and has the provided heuristic value. Returns FOUND if a goal
+	 * state has been reached within the bound (the path to it is left in
+	 * the path array), or else the smallest f value beyond the bound
+	 * (Integer.MAX_VALUE if there is none or the search is stopped).
+	 */
+	private int search(int h, long[] rootLandmarks) {
+
+		if (h > bound) {
+			return h;
+		}
+		int result = expand(0, rootLandmarks);
+		if (result != EXPANDED) {
+			return result == STOPPED ? Integer.MAX_VALUE : result;
+		}
+		int depth = 0;
+		while (true) {
+
+			List<Action> actions = applicableActions.get(depth);
+			if (nextActions[depth] == actions.size()) {
+				// All successors searched: go back to the parent
+				result = nextBounds[depth];
+				if (depth == 0) {
+					return result;
+				}
+				depth--;
+				Action.revert(state, undoLog);
+				nextBounds[depth] = Math.min(nextBounds[depth], result);
+				continue;
+			}
+
+			Action action = actions.get(nextActions[depth]++);
+			action.applyInPlace(state, undoLog);
+			path[depth] = action;
+			result = enter(depth+1, acceptedLandmarks[depth]);
+			if (result == EXPANDED) {
+				depth++;
+			} else if (result == FOUND) {
+				return FOUND;
+			} else if (result == STOPPED) {
+				return Integer.MAX_VALUE;
+			} else {
+				Action.revert(state, undoLog);
+				nextBounds[depth] = Math.min(nextBounds[depth], result);
+			}
+		}
+	}
+
+	/**
+	 * Looks up the current state, which has been reached at the provided
+	 * depth, in the transposition table and expands it (see expand) if it
+	 * has not already been reached at no larger depth in this iteration
+	 * and its f value is within the bound. Otherwise, returns the f value
+	 * to be considered for the next bound (Integer.MAX_VALUE for dead ends
+	 * and duplicates).
+	 */
+	private int enter(int depth, long[] parentLandmarks) {
+
+		int id = lookup();
+		int h;
+		if (id >= 0 && stamps[id] == numIterations && depths[id] <= depth) {
+			// Duplicate: searched (or being searched) with at least the same budget
+			return Integer.MAX_VALUE;
+		}
+		SearchNode node = new SearchNode(null, state);
+		node.depth = depth;
+		node.landmarks = parentLandmarks;
+		if (id >= 0 && stamps[id] > 0 && cacheHeuristic) {
+			h = heuristicValues[id];
+		} else {
+			h = evaluate(node);
+		}
+		if (id >= 0) {
+			heuristicValues[id] = h;
+			depths[id] = depth;
+			stamps[id] = numIterations;
+		}
+		if (h == Integer.MAX_VALUE) {
+			// Dead end
+			return Integer.MAX_VALUE;
+		}
+		int f = depth + h;
+		if (f > bound) {
+			return f;
+		}
+		return expand(depth, node.landmarks);
+	}
+
+	/**
+	 * Pushes the current state, which has been reached at the provided
+	 * depth within the bound, onto the search stack. Returns EXPANDED, 
+	 * or FOUND if it is a goal state, or STOPPED if the computational 
+	 * bounds are exceeded.
+	 */
+	private int expand(int depth, long[] landmarks) {
+
+		if (goal.isSatisfied(state)) {
+			if (depth < path.length) {
+				path[depth] = null;
+			}
+			return FOUND;
+		}
+		if (iterations % CHECK_INTERVAL == 0 && !withinComputationalBounds(iterations)) {
+			return STOPPED;
+		}
+		iterations++;
+
+		if (depth == applicableActions.size()) {
+			applicableActions.add(new ArrayList<>());
+		}
+		if (depth == path.length) {
+			path = Arrays.copyOf(path, 2*path.length);
+			nextActions = Arrays.copyOf(nextActions, path.length);
+			nextBounds = Arrays.copyOf(nextBounds, path.length);
+			acceptedLandmarks = Arrays.copyOf(acceptedLandmarks, path.length);
+		}
+		aindex.getApplicableActions(state, applicableActions.get(depth));
+		nextActions[depth] = 0;
+		nextBounds[depth] = Integer.MAX_VALUE;
+		acceptedLandmarks[depth] = landmarks;
+		return EXPANDED;
+	}
+
+	/**
+	 * Returns the ID of the current state in the transposition table,
+	 * inserting it if the table is not full yet, or -1 if it is not stored.
+	 * A newly inserted state has stamp 0.
+	 */
+	private int lookup() {
+
+		if (table.size() >= maxTableSize) {
+			return table.getId(state);
+		}
+		int id = table.put(state);
+		if (id >= stamps.length) {
+			int capacity = Math.max(2 * stamps.length, id + 1);
+			heuristicValues = Arrays.copyOf(heuristicValues, capacity);
+			depths = Arrays.copyOf(depths, capacity);
+			stamps = Arrays.copyOf(stamps, capacity);
+		}
+		return id;
+	}
+
+	private int evaluate(SearchNode node) {
+
+		numEvaluations++;
+		return heuristic.value(node);
+	}
+}
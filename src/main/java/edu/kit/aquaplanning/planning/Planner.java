@@ -1,8 +1,11 @@
 package edu.kit.aquaplanning.planning;
 
+import java.util.function.Consumer;
+
 import edu.kit.aquaplanning.Configuration;
 import edu.kit.aquaplanning.model.ground.GroundPlanningProblem;
 import edu.kit.aquaplanning.model.ground.Plan;
+import edu.kit.aquaplanning.model.ground.StateVariables;
 import edu.kit.aquaplanning.planning.sat.HegemannsSatPlanner;
 import edu.kit.aquaplanning.planning.sat.SimpleSatPlanner;
 import edu.kit.aquaplanning.util.Logger;
@@ -16,15 +19,69 @@ public abstract class Planner {
 	
 	protected Configuration config;
 	protected long searchStartMillis = 0;
+	private boolean searchStartInherited = false;
+	private Consumer<Plan> planListener;
 	
 	public Planner(Configuration config) {
 		this.config = config;
 	}
 	
+	/**
+	 * Makes the planner pass each plan to the provided listener as
+	 * soon as it is found, if the planner keeps searching for better
+	 * plans afterwards (such as an anytime planner).
+	 */
+	public void setPlanListener(Consumer<Plan> planListener) {
+		this.planListener = planListener;
+	}
+	
+	/**
+	 * Passes an intermediate plan to the plan listener, if any.
+	 */
+	protected void reportPlan(Plan plan) {
+		if (planListener != null) {
+			planListener.accept(plan);
+		}
+	}
+	
 	protected void startSearch() {
+		if (searchStartInherited) {
+			// The search continues the search of another planner
+			searchStartInherited = false;
+			return;
+		}
 		searchStartMillis = System.currentTimeMillis();
 	}
 	
+	/**
+	 * Makes the next search of this planner count against the search 
+	 * time bound of the current search of the provided planner, e.g. 
+	 * if it is a fallback of the provided planner.
+	 */
+	protected void continueSearchOf(Planner planner) {
+		searchStartMillis = planner.searchStartMillis;
+		searchStartInherited = true;
+	}
+	
+	/**
+	 * Returns the variables into which the states stored by a search 
+	 * on the provided problem are packed, or null if states are to be 
+	 * stored unpacked: if configured (-up), or if packing would not 
+	 * reduce the amount of words per state, as packing and unpacking 
+	 * slows down each insertion and lookup.
+	 */
+	protected StateVariables getStateVariables(GroundPlanningProblem problem) {
+		
+		if (config.unpackedStates) {
+			return null;
+		}
+		StateVariables variables = problem.getStateVariables();
+		if (variables.getNumPackedWords() >= problem.getInitialState().numWords()) {
+			return null;
+		}
+		return variables;
+	}
+	
 	/**
 	 * Checks the used amount of iterations and the elapsed time
 	 * against computational bounds specified in the configuration.
@@ -82,6 +139,16 @@ public abstract class Planner {
 			return new GreedyBestFirstSearchPlanner(config);
 		case seqpfolio:
 			return new SequentialPortfolioPlanner(config);
+		case ehc:
+			return new EnforcedHillClimbingPlanner(config);
+		case hdaStar:
+			Logger.log(Logger.INFO, "Doing hash-distributed search with " 
+						+ config.numThreads + " threads.");
+			return new HdaStarPlanner(config);
+		case idaStar:
+			return new IdaStarPlanner(config);
+		case anytime:
+			return new RestartingWeightedAStarPlanner(config);
 		default:
 			break;
 		}
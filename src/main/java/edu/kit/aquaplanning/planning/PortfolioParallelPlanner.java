@@ -9,6 +9,7 @@ import edu.kit.aquaplanning.Configuration.HeuristicType;
 import edu.kit.aquaplanning.Configuration.PlannerType;
 import edu.kit.aquaplanning.model.ground.GroundPlanningProblem;
 import edu.kit.aquaplanning.model.ground.Plan;
+import edu.kit.aquaplanning.planning.datastructures.ConcurrentStateTable;
 import edu.kit.aquaplanning.planning.datastructures.SearchStrategy.Mode;
 import edu.kit.aquaplanning.util.Logger;
 
@@ -52,6 +53,16 @@ public class PortfolioParallelPlanner extends Planner {
 		plan = null;
 		Random random = new Random(this.config.seed); // seed generator
 		
+		// Visited states and dead ends shared by all forward searches
+		ConcurrentStateTable visitedStates = null, deadEnds = null;
+		if (config.sharedClosedList) {
+			int numStripes = 16 * numThreads;
+			visitedStates = new ConcurrentStateTable(problem.getInitialState(), 
+					numStripes, getStateVariables(problem));
+			deadEnds = new ConcurrentStateTable(problem.getInitialState(), 
+					numStripes, getStateVariables(problem));
+		}
+		
 		for (int i = 1; i <= numThreads; i++) {
 			
 			// Default configuration with random seed
@@ -97,6 +108,9 @@ public class PortfolioParallelPlanner extends Planner {
 			
 			// Create planner
 			Planner planner = Planner.getPlanner(config);
+			if (planner instanceof ForwardSearchPlanner) {
+				((ForwardSearchPlanner) planner).setSharedStates(visitedStates, deadEnds);
+			}
 			
 			// Create a thread running the planner
 			final int threadNum = i;
@@ -126,6 +140,10 @@ public class PortfolioParallelPlanner extends Planner {
 				e.printStackTrace();
 			}
 		}
+		if (visitedStates != null) {
+			Logger.log(Logger.INFO_V, "Shared visited states: " + visitedStates);
+			Logger.log(Logger.INFO_V, "Shared dead ends: " + deadEnds);
+		}
 		
 		// Plan is not null iff any planner was successful
 		return plan;
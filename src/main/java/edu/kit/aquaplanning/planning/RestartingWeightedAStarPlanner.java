@@ -0,0 +1,298 @@
+package edu.kit.aquaplanning.planning;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.PriorityQueue;
+
+import edu.kit.aquaplanning.Configuration;
+import edu.kit.aquaplanning.Configuration.HeuristicType;
+import edu.kit.aquaplanning.model.ground.Action;
+import edu.kit.aquaplanning.model.ground.Goal;
+import edu.kit.aquaplanning.model.ground.GroundPlanningProblem;
+import edu.kit.aquaplanning.model.ground.Plan;
+import edu.kit.aquaplanning.model.ground.State;
+import edu.kit.aquaplanning.planning.datastructures.ActionIndex;
+import edu.kit.aquaplanning.planning.datastructures.IncrementalActionIndex;
+import edu.kit.aquaplanning.planning.datastructures.SearchNode;
+import edu.kit.aquaplanning.planning.datastructures.StateTable;
+import edu.kit.aquaplanning.planning.heuristic.Heuristic;
+import edu.kit.aquaplanning.util.Logger;
+
+/**
+ * Anytime planner: restarting weighted A* (Richter, Thayer and Ruml 2010).
+ *
+ * A weighted A* search with f = g + w*h is run from the initial state until
+ * it finds a plan, which is reported as soon as it is found (see
+ * setPlanListener); then the search is restarted with the next smaller
+ * weight, starting at the provided heuristic weight and decreasing down
+ * to 1. Nodes with g + h not below the length of the best plan so far are
+ * pruned. The search ends when a search with weight 1 exhausts its open
+ * list without finding a shorter plan, or when the computational bounds
+ * are reached; the best plan found so far is returned. Only if the
+ * heuristic is admissible (hMax, patternDatabase), the plan returned after
+ * an exhausted search with weight 1 is known to be optimal.
+ *
+ * All searches share one StateTable of the states seen so far, with their
+ * heuristic values and the shortest known paths to them. Thereby, a
+ * restart does not evaluate any known state again and immediately reuses
+ * the best paths found by the previous searches.
+ */
+public class RestartingWeightedAStarPlanner extends Planner {
+
+	private static final int NONE = -1;
+	/**
+	 * The standard sequence of weights below the initial weight, in tenths.
+	 */
+	private static final int[] WEIGHTS_IN_TENTHS = {50, 30, 20, 15, 10};
+
+	private State initState;
+	private Goal goal;
+	private ActionIndex aindex;
+	private Heuristic heuristic;
+
+	/**
+	 * All states seen by any of the searches.
+	 */
+	private StateTable states;
+	// Per state ID: parent ID, action, length of the shortest known
+	// path, heuristic value, and the search which opened / closed it
+	private int[] parents;
+	private Action[] actions;
+	private int[] gValues;
+	private int[] heuristicValues;
+	private int[] openedBy;
+	private int[] closedBy;
+	// Per state ID: accepted landmarks (if any)
+	private List<long[]> landmarks;
+
+	private int iterations;
+	private long numEvaluations;
+
+	public RestartingWeightedAStarPlanner(Configuration config) {
+		super(config);
+	}
+
+	@Override
+	public Plan findPlan(GroundPlanningProblem problem) {
+
+		startSearch();
+		Logger.log(Logger.INFO, "Starting restarting weighted A* with " + config.toString());
+		this.goal = problem.getGoal();
+		this.aindex = config.incrementalSuccessors ?
+				new IncrementalActionIndex(problem) : new ActionIndex(problem);
+		this.heuristic = Heuristic.getHeuristic(problem, config);
+		if (heuristic == null) {
+			throw new IllegalArgumentException("Restarting weighted A* requires a heuristic.");
+		}
+		this.initState = problem.getInitialState();
+		states = new StateTable(initState, 1024, getStateVariables(problem));
+		parents = new int[1024];
+		actions = new Action[1024];
+		gValues = new int[1024];
+		heuristicValues = new int[1024];
+		openedBy = new int[1024];
+		closedBy = new int[1024];
+		landmarks = new ArrayList<>();
+		iterations = 0;
+		numEvaluations = 0;
+		long timeStart = System.nanoTime();
+
+		SearchNode initNode = new SearchNode(null, new State(initState));
+		int initH = evaluate(initNode);
+		insert(initState, NONE, null, 0, initH, initNode.landmarks);
+
+		Plan bestPlan = null;
+		int bestLength = Integer.MAX_VALUE;
+		int weightInTenths = Math.max(10, 10 * config.heuristicWeight);
+		int numSearches = 0;
+		while (initH != Integer.MAX_VALUE) {
+
+			numSearches++;
+			Logger.log(Logger.INFO_V, "Search " + numSearches + " with weight "
+					+ (weightInTenths / 10.0) + " (" + iterations + " nodes visited so far)");
+			int goalId = search(numSearches, weightInTenths, bestLength);
+			if (goalId != NONE) {
+				bestLength = gValues[goalId];
+				bestPlan = extractPlan(goalId);
+				Logger.log(Logger.INFO, "Found plan of length " + bestLength + " with weight "
+						+ (weightInTenths / 10.0) + " after " + iterations + " nodes.");
+				reportPlan(bestPlan);
+			} else if (withinComputationalBounds(iterations) && weightInTenths == 10) {
+				if (isHeuristicAdmissible()) {
+					// No shorter plan exists
+					Logger.log(Logger.INFO, "Search space exhausted.");
+				} else {
+					Logger.log(Logger.INFO, "Search with weight 1 found no shorter plan.");
+				}
+				break;
+			}
+			if (!withinComputationalBounds(iterations)) {
+				Logger.log(Logger.INFO, "Interrupted and/or computational resources exhausted.");
+				break;
+			}
+			weightInTenths = nextWeight(weightInTenths);
+		}
+
+		long timeStop = System.nanoTime();
+		Logger.log(Logger.INFO, "Visited " + iterations + " nodes in " + numSearches
+				+ " searches. Search time: " + (timeStop - timeStart)/1000000 + "ms");
+		Logger.log(Logger.INFO_V, "Heuristic evaluations: " + numEvaluations
+				+ ", seen states: " + states.size());
+		return bestPlan;
+	}
+
+	/**
+	 * True iff the heuristic never overestimates the distance to the goal,
+	 * such that pruning by g + h does not cut off any shorter plan.
+	 */
+	private boolean isHeuristicAdmissible() {
+		return config.heuristic == HeuristicType.hMax
+				|| config.heuristic == HeuristicType.patternDatabase;
+	}
+
+	/**
+	 * Weighted A* search from the initial state with the provided weight,
+	 * which is the provided search's ID. Returns the ID of the goal state
+	 * of a plan shorter than the provided length, or NONE if there is none
+	 * or the search is interrupted.
+	 */
+	private int search(int searchId, int weightInTenths, int bestLength) {
+
+		PriorityQueue<SearchNode> open = new PriorityQueue<>((n1, n2) ->
+				Long.compare(priority(n1, weightInTenths), priority(n2, weightInTenths)));
+		open.add(newNode(0, searchId));
+
+		State state = new State(initState);
+		State successor = new State(state);
+		List<Action> applicableActions = new ArrayList<>();
+		while (!open.isEmpty() && withinComputationalBounds(iterations)) {
+
+			SearchNode node = open.poll();
+			int id = node.index;
+			if (node.depth > gValues[id] || closedBy[id] == searchId) {
+				// Outdated entry, or expanded already
+				continue;
+			}
+			closedBy[id] = searchId;
+			if (gValues[id] + heuristicValues[id] >= bestLength) {
+				// Cannot improve on the best plan
+				continue;
+			}
+			states.get(id, state);
+			if (goal.isSatisfied(state)) {
+				return id;
+			}
+			iterations++;
+
+			aindex.getApplicableActions(state, applicableActions);
+			int g = gValues[id] + 1;
+			for (Action action : applicableActions) {
+				action.apply(state, successor);
+				int childId = states.getId(successor);
+				if (childId == NONE) {
+					// New state: evaluate
+					SearchNode child = new SearchNode(null, successor);
+					child.depth = g;
+					child.landmarks = landmarks.get(id);
+					int h = evaluate(child);
+					childId = insert(successor, id, action, g, h, child.landmarks);
+				} else if (g < gValues[childId]) {
+					// Shorter path to a known state: (re-)open it
+					parents[childId] = id;
+					actions[childId] = action;
+					gValues[childId] = g;
+					closedBy[childId] = 0;
+				} else if (openedBy[childId] == searchId) {
+					continue;
+				}
+				if (heuristicValues[childId] == Integer.MAX_VALUE
+						|| gValues[childId] + heuristicValues[childId] >= bestLength) {
+					// Dead end, or cannot improve on the best plan
+					continue;
+				}
+				open.add(newNode(childId, searchId));
+			}
+		}
+		return NONE;
+	}
+
+	/**
+	 * Creates a frontier node for the provided state ID,
+	 * which is opened by the provided search.
+	 */
+	private SearchNode newNode(int id, int searchId) {
+
+		SearchNode node = new SearchNode(null, null);
+		node.index = id;
+		node.depth = gValues[id];
+		node.heuristicValue = heuristicValues[id];
+		openedBy[id] = searchId;
+		return node;
+	}
+
+	/**
+	 * 10 * (g + w*h) for the provided weight in tenths,
+	 * breaking ties in favor of lower heuristic values.
+	 */
+	private static long priority(SearchNode node, int weightInTenths) {
+		long f = 10L * node.depth + (long) weightInTenths * node.heuristicValue;
+		return (f << 20) + Math.min(node.heuristicValue, (1 << 20) - 1);
+	}
+
+	/**
+	 * The next weight of the sequence, which stays at 1 eventually.
+	 */
+	private static int nextWeight(int weightInTenths) {
+		for (int weight : WEIGHTS_IN_TENTHS) {
+			if (weight < weightInTenths) {
+				return weight;
+			}
+		}
+		return 10;
+	}
+
+	private int evaluate(SearchNode node) {
+
+		numEvaluations++;
+		return heuristic.value(node);
+	}
+
+	/**
+	 * Inserts a new state into the table and returns its ID.
+	 */
+	private int insert(State state, int parent, Action action, int g, int h,
+			long[] acceptedLandmarks) {
+
+		int id = states.put(state);
+		if (id >= parents.length) {
+			int capacity = Math.max(2 * parents.length, id + 1);
+			parents = Arrays.copyOf(parents, capacity);
+			actions = Arrays.copyOf(actions, capacity);
+			gValues = Arrays.copyOf(gValues, capacity);
+			heuristicValues = Arrays.copyOf(heuristicValues, capacity);
+			openedBy = Arrays.copyOf(openedBy, capacity);
+			closedBy = Arrays.copyOf(closedBy, capacity);
+		}
+		parents[id] = parent;
+		actions[id] = action;
+		gValues[id] = g;
+		heuristicValues[id] = h;
+		openedBy[id] = 0;
+		closedBy[id] = 0;
+		landmarks.add(acceptedLandmarks);
+		return id;
+	}
+
+	/**
+	 * Extracts the shortest known path to the provided state ID.
+	 */
+	private Plan extractPlan(int id) {
+
+		Plan plan = new Plan();
+		for (int i = id; parents[i] != NONE; i = parents[i]) {
+			plan.appendAtFront(actions[i]);
+		}
+		return plan;
+	}
+}
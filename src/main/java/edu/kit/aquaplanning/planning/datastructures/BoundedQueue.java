@@ -0,0 +1,136 @@
+package edu.kit.aquaplanning.planning.datastructures;
+
+import java.util.AbstractQueue;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.ToIntFunction;
+
+/**
+ * Open list with a maximum amount of nodes, polling the node of lowest
+ * priority first. When a node is offered to a full queue, the node of
+ * highest priority (i.e. the worst node, possibly the offered one) is
+ * evicted, so the memory of the open list stays bounded.
+ *
+ * Nodes are kept in buckets of equal priority, which are sorted by their
+ * priority, so that both the best and the worst node can be accessed in
+ * logarithmic time w.r.t. the amount of distinct priorities. Among nodes
+ * of equal priority, the last inserted node is polled first and the
+ * first inserted node is evicted first.
+ */
+public class BoundedQueue extends AbstractQueue<SearchNode> {
+
+	private ToIntFunction<SearchNode> priority;
+	private int capacity;
+
+	private TreeMap<Integer, ArrayDeque<SearchNode>> buckets;
+	private int size;
+	private long numEvictions;
+
+	/**
+	 * Creates an empty queue holding at most the provided amount of
+	 * nodes, polling nodes with the lowest provided priority first.
+	 */
+	public BoundedQueue(ToIntFunction<SearchNode> priority, int capacity) {
+		if (capacity <= 0) {
+			throw new IllegalArgumentException("The capacity of a bounded queue "
+					+ "must be positive, but is " + capacity + ".");
+		}
+		this.priority = priority;
+		this.capacity = capacity;
+		this.buckets = new TreeMap<>();
+	}
+
+	/**
+	 * Inserts the provided node, evicting the worst node if the queue
+	 * is full. Returns false iff the provided node itself is not kept.
+	 */
+	@Override
+	public boolean offer(SearchNode node) {
+
+		int f = priority.applyAsInt(node);
+		if (size == capacity) {
+			Map.Entry<Integer, ArrayDeque<SearchNode>> worst = buckets.lastEntry();
+			numEvictions++;
+			if (f >= worst.getKey()) {
+				// The provided node is (one of) the worst nodes
+				return false;
+			}
+			worst.getValue().pollFirst();
+			if (worst.getValue().isEmpty()) {
+				buckets.remove(worst.getKey());
+			}
+			size--;
+		}
+		buckets.computeIfAbsent(f, key -> new ArrayDeque<>()).addLast(node);
+		size++;
+		return true;
+	}
+
+	/**
+	 * Same as offer(SearchNode): a full queue does not reject
+	 * nodes, but evicts its worst node.
+	 */
+	@Override
+	public boolean add(SearchNode node) {
+		return offer(node);
+	}
+
+	@Override
+	public SearchNode poll() {
+
+		Map.Entry<Integer, ArrayDeque<SearchNode>> best = buckets.firstEntry();
+		if (best == null) {
+			return null;
+		}
+		SearchNode node = best.getValue().pollLast();
+		if (best.getValue().isEmpty()) {
+			buckets.remove(best.getKey());
+		}
+		size--;
+		return node;
+	}
+
+	@Override
+	public SearchNode peek() {
+
+		Map.Entry<Integer, ArrayDeque<SearchNode>> best = buckets.firstEntry();
+		return best == null ? null : best.getValue().peekLast();
+	}
+
+	@Override
+	public int size() {
+		return size;
+	}
+
+	public int getCapacity() {
+		return capacity;
+	}
+
+	/**
+	 * The amount of nodes which have been discarded
+	 * because the queue was full.
+	 */
+	public long getNumEvictions() {
+		return numEvictions;
+	}
+
+	@Override
+	public void clear() {
+		buckets.clear();
+		size = 0;
+	}
+
+	@Override
+	public Iterator<SearchNode> iterator() {
+
+		List<SearchNode> nodes = new ArrayList<>(size);
+		for (ArrayDeque<SearchNode> bucket : buckets.values()) {
+			nodes.addAll(bucket);
+		}
+		return nodes.iterator();
+	}
+}
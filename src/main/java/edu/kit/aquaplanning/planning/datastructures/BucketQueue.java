@@ -0,0 +1,215 @@
+package edu.kit.aquaplanning.planning.datastructures;
+
+import java.util.AbstractQueue;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.function.ToIntFunction;
+
+import edu.kit.aquaplanning.planning.datastructures.SearchStrategy.TieBreaking;
+
+/**
+ * Open list for search nodes with small non-negative integer priorities.
+ * Instead of a binary heap, nodes are kept in an array of buckets indexed
+ * by their priority (e.g. f = g+h), such that insertion and extraction of
+ * a minimal node take (amortized) constant time.
+ *
+ * Nodes of equal priority are polled according to a tie-breaking rule:
+ * last in first out, first in first out, or lowest heuristic value first
+ * (then last in first out), in which case each bucket is subdivided into
+ * buckets indexed by the nodes' heuristic values.
+ */
+public class BucketQueue extends AbstractQueue<SearchNode> {
+
+	private ToIntFunction<SearchNode> priority;
+	private TieBreaking tieBreaking;
+
+	/**
+	 * buckets[f] contains all nodes of priority f.
+	 */
+	private Bucket[] buckets;
+	/**
+	 * Lower bound for the smallest non-empty bucket index.
+	 */
+	private int minPriority;
+	private int size;
+
+	/**
+	 * Creates an empty queue polling nodes with the lowest
+	 * provided priority first, breaking ties as specified.
+	 */
+	public BucketQueue(ToIntFunction<SearchNode> priority, TieBreaking tieBreaking) {
+		this.priority = priority;
+		this.tieBreaking = tieBreaking;
+		this.buckets = new Bucket[64];
+		this.minPriority = Integer.MAX_VALUE;
+	}
+
+	@Override
+	public boolean offer(SearchNode node) {
+
+		int f = priority.applyAsInt(node);
+		if (f < 0) {
+			throw new IllegalArgumentException("Negative priority " + f
+					+ " cannot be handled by a bucket queue.");
+		}
+		if (f >= buckets.length) {
+			buckets = Arrays.copyOf(buckets, Math.max(f+1, 2*buckets.length));
+		}
+		if (buckets[f] == null) {
+			buckets[f] = new Bucket();
+		}
+		buckets[f].add(node);
+		minPriority = Math.min(minPriority, f);
+		size++;
+		return true;
+	}
+
+	@Override
+	public SearchNode poll() {
+
+		Bucket bucket = minBucket();
+		if (bucket == null) {
+			return null;
+		}
+		size--;
+		return bucket.poll();
+	}
+
+	@Override
+	public SearchNode peek() {
+
+		Bucket bucket = minBucket();
+		return bucket == null ? null : bucket.peek();
+	}
+
+	/**
+	 * Returns the non-empty bucket of lowest priority,
+	 * or null if the queue is empty.
+	 */
+	private Bucket minBucket() {
+
+		if (size == 0) {
+			minPriority = Integer.MAX_VALUE;
+			return null;
+		}
+		while (buckets[minPriority] == null || buckets[minPriority].isEmpty()) {
+			minPriority++;
+		}
+		return buckets[minPriority];
+	}
+
+	/**
+	 * Returns the lowest priority of any contained node,
+	 * or Integer.MAX_VALUE if the queue is empty.
+	 */
+	public int getMinPriority() {
+
+		return minBucket() == null ? Integer.MAX_VALUE : minPriority;
+	}
+
+	@Override
+	public int size() {
+		return size;
+	}
+
+	@Override
+	public Iterator<SearchNode> iterator() {
+
+		List<SearchNode> nodes = new ArrayList<>(size);
+		for (Bucket bucket : buckets) {
+			if (bucket != null) {
+				bucket.addAllTo(nodes);
+			}
+		}
+		return nodes.iterator();
+	}
+
+	/**
+	 * All nodes of a certain priority.
+	 */
+	private class Bucket {
+
+		// Used for LIFO and FIFO
+		private ArrayDeque<SearchNode> nodes;
+
+		// Used for lowest-h tie-breaking: nodes by heuristic value
+		private List<ArrayDeque<SearchNode>> nodesByH;
+		private int minH;
+		private int numNodes;
+
+		Bucket() {
+			if (tieBreaking == TieBreaking.lowestH) {
+				nodesByH = new ArrayList<>();
+				minH = Integer.MAX_VALUE;
+			} else {
+				nodes = new ArrayDeque<>();
+			}
+		}
+
+		void add(SearchNode node) {
+
+			numNodes++;
+			if (nodesByH == null) {
+				nodes.addLast(node);
+				return;
+			}
+			int h = node.heuristicValue;
+			while (h >= nodesByH.size()) {
+				nodesByH.add(null);
+			}
+			if (nodesByH.get(h) == null) {
+				nodesByH.set(h, new ArrayDeque<>());
+			}
+			nodesByH.get(h).addLast(node);
+			minH = Math.min(minH, h);
+		}
+
+		SearchNode poll() {
+
+			numNodes--;
+			if (nodesByH == null) {
+				return tieBreaking == TieBreaking.fifo ? nodes.pollFirst() : nodes.pollLast();
+			}
+			return minHNodes().pollLast();
+		}
+
+		SearchNode peek() {
+
+			if (nodesByH == null) {
+				return tieBreaking == TieBreaking.fifo ? nodes.peekFirst() : nodes.peekLast();
+			}
+			return minHNodes().peekLast();
+		}
+
+		private ArrayDeque<SearchNode> minHNodes() {
+
+			while (nodesByH.get(minH) == null || nodesByH.get(minH).isEmpty()) {
+				minH++;
+			}
+			return nodesByH.get(minH);
+		}
+
+		boolean isEmpty() {
+
+			if (numNodes == 0 && nodesByH != null) {
+				minH = Integer.MAX_VALUE;
+			}
+			return numNodes == 0;
+		}
+
+		void addAllTo(List<SearchNode> list) {
+
+			if (nodesByH == null) {
+				list.addAll(nodes);
+			} else {
+				for (ArrayDeque<SearchNode> n : nodesByH) {
+					if (n != null)
+						list.addAll(n);
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,144 @@
+package edu.kit.aquaplanning.planning.datastructures;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+import edu.kit.aquaplanning.model.ground.State;
+import edu.kit.aquaplanning.model.ground.StateVariables;
+
+/**
+ * Thread-safe set of states which can be shared by concurrent searches,
+ * e.g. as a common closed list or as a common set of dead ends.
+ *
+ * The states are distributed over a fixed amount of stripes by (the
+ * upper bits of) their hash; each stripe is a StateTable guarded by a
+ * lock of its own. Hence, threads only contend for a lock if they access
+ * states of the same stripe at the same time. Contention is measured by
+ * the amount of lock acquisitions which had to wait for another thread,
+ * and the total time spent waiting.
+ */
+public class ConcurrentStateTable {
+
+	private final StateTable[] stripes;
+	private final ReentrantLock[] locks;
+	private final int mask;
+
+	// Statistics
+	private final AtomicLong operations = new AtomicLong();
+	private final AtomicLong contendedOperations = new AtomicLong();
+	private final AtomicLong waitingNanos = new AtomicLong();
+
+	/**
+	 * Creates an empty table for states of the same width as the provided
+	 * prototype state, with (at least) the provided amount of stripes.
+	 * If variables are provided, the states are stored in their packed form.
+	 */
+	public ConcurrentStateTable(State prototype, int numStripes, StateVariables variables) {
+
+		int size = Integer.highestOneBit(Math.max(1, numStripes - 1)) << 1;
+		stripes = new StateTable[size];
+		locks = new ReentrantLock[size];
+		for (int i = 0; i < size; i++) {
+			stripes[i] = new StateTable(prototype, 1024, variables);
+			locks[i] = new ReentrantLock();
+		}
+		mask = size - 1;
+	}
+
+	/**
+	 * True iff the provided state is contained in this table.
+	 */
+	public boolean contains(State state) {
+
+		int stripe = getStripe(state);
+		lock(stripe);
+		try {
+			return stripes[stripe].contains(state);
+		} finally {
+			locks[stripe].unlock();
+		}
+	}
+
+	/**
+	 * Inserts the provided state, if it is not contained yet.
+	 * Returns true iff the state has been newly inserted, i.e. exactly
+	 * one of several threads adding the same state gets true.
+	 */
+	public boolean add(State state) {
+
+		int stripe = getStripe(state);
+		lock(stripe);
+		try {
+			return stripes[stripe].add(state);
+		} finally {
+			locks[stripe].unlock();
+		}
+	}
+
+	/**
+	 * The stripe of a state is taken from the upper bits of its hash,
+	 * as each StateTable takes its positions from the lower bits.
+	 */
+	private int getStripe(State state) {
+		return (int) (state.getHash() >>> 40) & mask;
+	}
+
+	private void lock(int stripe) {
+
+		operations.incrementAndGet();
+		ReentrantLock lock = locks[stripe];
+		if (!lock.tryLock()) {
+			long start = System.nanoTime();
+			lock.lock();
+			contendedOperations.incrementAndGet();
+			waitingNanos.addAndGet(System.nanoTime() - start);
+		}
+	}
+
+	/**
+	 * The amount of states contained in this table.
+	 */
+	public int size() {
+
+		int size = 0;
+		for (int i = 0; i < stripes.length; i++) {
+			locks[i].lock();
+			try {
+				size += stripes[i].size();
+			} finally {
+				locks[i].unlock();
+			}
+		}
+		return size;
+	}
+
+	/**
+	 * The amount of lookups and insertions performed so far.
+	 */
+	public long getNumOperations() {
+		return operations.get();
+	}
+
+	/**
+	 * The amount of operations which had to wait for another thread.
+	 */
+	public long getNumContendedOperations() {
+		return contendedOperations.get();
+	}
+
+	/**
+	 * The total time in milliseconds which threads waited for a lock.
+	 */
+	public long getWaitingMillis() {
+		return waitingNanos.get() / 1000000;
+	}
+
+	@Override
+	public String toString() {
+		long numOperations = getNumOperations();
+		return String.format("%d states in %d stripes, %d operations, %d contended (%.2f%%), "
+				+ "%dms waiting", size(), stripes.length, numOperations, getNumContendedOperations(),
+				numOperations == 0 ? 0 : 100.0 * getNumContendedOperations() / numOperations,
+				getWaitingMillis());
+	}
+}
@@ -1,34 +1,74 @@
 package edu.kit.aquaplanning.planning.datastructures;
 
+import java.util.ArrayList;
 import java.util.List;
 
 import edu.kit.aquaplanning.model.ground.Action;
 import edu.kit.aquaplanning.model.ground.GroundPlanningProblem;
 import edu.kit.aquaplanning.model.ground.State;
 
+/**
+ * Delete-relaxed planning graph, computed layer by layer from some state.
+ *
+ * The relaxed action index is built only once per problem and shared
+ * by all graphs (see GroundPlanningProblem.getRelaxedActionIndex).
+ * A graph object can be reused for many evaluations via reset(State):
+ * heuristics keep one graph per instance. The state objects of the layers
+ * are recycled across resets instead of reallocated, so they are only
+ * valid until the next reset.
+ */
 public class GroundRelaxedPlanningGraph {
 
 	private State state;
 	private boolean hasNextLayer;
 	private ActionIndex actionIndex;
-	
+	private List<Action> applicableActions = new ArrayList<>();
+
+	/**
+	 * State objects of the layers, recycled across resets.
+	 */
+	private List<State> layers = new ArrayList<>();
+	private int numLayers;
+
+	/**
+	 * Creates a graph originating at the provided state.
+	 */
 	public GroundRelaxedPlanningGraph(GroundPlanningProblem gpp, State state, List<Action> actions) {
+		this(gpp);
+		reset(state);
+	}
+
+	/**
+	 * Creates a reusable graph for the provided problem;
+	 * reset(State) must be called before computing any layers.
+	 */
+	public GroundRelaxedPlanningGraph(GroundPlanningProblem gpp) {
+		this.actionIndex = gpp.getRelaxedActionIndex();
+	}
+
+	/**
+	 * Restarts the graph at the provided state. All layers
+	 * returned before become invalid.
+	 */
+	public void reset(State state) {
+
 		this.state = state;
 		this.hasNextLayer = true;
-		this.actionIndex = new ActionIndex(gpp, /*relaxed=*/true);
+		this.numLayers = 0;
 	}
-	
+
 	public boolean hasNextLayer() {
-		
+
 		return hasNextLayer;
 	}
-	
+
 	public State computeNextLayer() {
-		
-		State newState = new State(state);
-		for (Action action : actionIndex.getApplicableActions(state)) {
-			State result = action.applyRelaxed(state);
-			newState.addAllTrueAtomsFrom(result);
+
+		State newState = nextLayerBuffer();
+		newState.copyFrom(state);
+		actionIndex.getApplicableActions(state, applicableActions);
+		for (Action action : applicableActions) {
+			action.addRelaxedEffects(state, newState);
 		}
 		if (state.size() == newState.size()) {
 			// Fixpoint reached
@@ -37,4 +77,12 @@ public class GroundRelaxedPlanningGraph {
 		state = newState;
 		return state;
 	}
+
+	private State nextLayerBuffer() {
+
+		if (numLayers == layers.size()) {
+			layers.add(new State(state));
+		}
+		return layers.get(numLayers++);
+	}
 }
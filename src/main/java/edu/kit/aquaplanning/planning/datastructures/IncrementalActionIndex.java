@@ -0,0 +1,203 @@
+package edu.kit.aquaplanning.planning.datastructures;
+
+import java.util.Arrays;
+import java.util.List;
+
+import edu.kit.aquaplanning.model.ground.Action;
+import edu.kit.aquaplanning.model.ground.AtomSet;
+import edu.kit.aquaplanning.model.ground.GroundPlanningProblem;
+import edu.kit.aquaplanning.model.ground.State;
+
+/**
+ * Action index which maintains the set of applicable actions
+ * incrementally while moving from one state to another.
+ *
+ * For each action, the amount of its simple preconditions which are
+ * unsatisfied in the current state is counted. When the index is moved
+ * to another state, only the atoms which differ between both states
+ * (determined word by word) are inspected, and only the counters of the
+ * actions with a precondition on these atoms are updated. Actions with
+ * a counter of zero are kept in a dense set; when enumerating them, only
+ * complex preconditions (if any) are checked explicitly.
+ *
+ * Any sequence of states can be visited (e.g. in the order in which a
+ * search strategy expands them); the work per call is proportional to
+ * the differences between subsequent states. The order in which the
+ * applicable actions are reported depends on this sequence.
+ * An index must not be used by multiple threads concurrently.
+ */
+public class IncrementalActionIndex extends ActionIndex {
+
+	private static final int[] NO_ACTIONS = new int[0];
+
+	private Action[] actions;
+	/**
+	 * Per action: amount of unsatisfied simple preconditions.
+	 */
+	private int[] unsatisfied;
+	/**
+	 * Per atom: actions with a positive / negative precondition on it.
+	 */
+	private int[][] posWatchers;
+	private int[][] negWatchers;
+
+	// Dense set of actions without unsatisfied simple preconditions
+	private int[] satisfiedActions;
+	private int[] positionInSet;
+	private int numSatisfied;
+
+	/**
+	 * The state the counters currently refer to.
+	 */
+	private State current;
+
+	/**
+	 * Creates an index whose counters initially
+	 * refer to the problem's initial state.
+	 */
+	public IncrementalActionIndex(GroundPlanningProblem gpp) {
+		super(/*relaxed=*/false);
+		init(gpp, false);
+	}
+
+	@Override
+	public void init(GroundPlanningProblem gpp, boolean relaxed) {
+
+		if (relaxed) {
+			throw new IllegalArgumentException(
+					"An incremental action index cannot be relaxed.");
+		}
+		List<Action> actionList = gpp.getActions();
+		int numActions = actionList.size();
+		int numAtoms = gpp.getNumAtoms();
+		actions = actionList.toArray(new Action[numActions]);
+		unsatisfied = new int[numActions];
+		satisfiedActions = new int[numActions];
+		positionInSet = new int[numActions];
+		Arrays.fill(positionInSet, -1);
+		numSatisfied = 0;
+
+		// Count the watchers of each atom, then fill them in
+		int[] numPos = new int[numAtoms], numNeg = new int[numAtoms];
+		for (Action a : actions) {
+			count(a.getPreconditionsPos(), numPos);
+			count(a.getPreconditionsNeg(), numNeg);
+		}
+		posWatchers = new int[numAtoms][];
+		negWatchers = new int[numAtoms][];
+		for (int atom = 0; atom < numAtoms; atom++) {
+			posWatchers[atom] = numPos[atom] > 0 ? new int[numPos[atom]] : NO_ACTIONS;
+			negWatchers[atom] = numNeg[atom] > 0 ? new int[numNeg[atom]] : NO_ACTIONS;
+		}
+		Arrays.fill(numPos, 0);
+		Arrays.fill(numNeg, 0);
+		for (int a = 0; a < numActions; a++) {
+			AtomSet pos = actions[a].getPreconditionsPos();
+			for (int atom = pos.getFirstTrueAtom(); atom >= 0; atom = pos.getNextTrueAtom(atom+1)) {
+				posWatchers[atom][numPos[atom]++] = a;
+			}
+			AtomSet neg = actions[a].getPreconditionsNeg();
+			for (int atom = neg.getFirstTrueAtom(); atom >= 0; atom = neg.getNextTrueAtom(atom+1)) {
+				negWatchers[atom][numNeg[atom]++] = a;
+			}
+		}
+
+		// Initialize the counters relative to the initial state
+		current = new State(gpp.getInitialState());
+		for (int a = 0; a < numActions; a++) {
+			AtomSet pos = actions[a].getPreconditionsPos();
+			AtomSet neg = actions[a].getPreconditionsNeg();
+			int count = 0;
+			for (int atom = pos.getFirstTrueAtom(); atom >= 0; atom = pos.getNextTrueAtom(atom+1)) {
+				if (!current.getAtomSet().get(atom))
+					count++;
+			}
+			for (int atom = neg.getFirstTrueAtom(); atom >= 0; atom = neg.getNextTrueAtom(atom+1)) {
+				if (current.getAtomSet().get(atom))
+					count++;
+			}
+			unsatisfied[a] = count;
+			if (count == 0) {
+				addToSet(a);
+			}
+		}
+	}
+
+	private static void count(AtomSet atoms, int[] counts) {
+		for (int atom = atoms.getFirstTrueAtom(); atom >= 0; atom = atoms.getNextTrueAtom(atom+1)) {
+			counts[atom]++;
+		}
+	}
+
+	/**
+	 * Updates the counters such that they refer to the provided state,
+	 * inspecting only the atoms in which it differs from the current state.
+	 */
+	public void moveTo(State state) {
+
+		int numWords = Math.max(current.numWords(), state.numWords());
+		for (int w = 0; w < numWords; w++) {
+			long diff = current.getWord(w) ^ state.getWord(w);
+			long word = state.getWord(w);
+			while (diff != 0) {
+				int atom = (w << 6) + Long.numberOfTrailingZeros(diff);
+				boolean nowTrue = (word & (diff & -diff)) != 0;
+				if (atom < posWatchers.length) {
+					for (int a : posWatchers[atom]) {
+						update(a, nowTrue ? -1 : 1);
+					}
+					for (int a : negWatchers[atom]) {
+						update(a, nowTrue ? 1 : -1);
+					}
+				}
+				diff &= diff - 1;
+			}
+		}
+		current.copyFrom(state);
+	}
+
+	private void update(int action, int delta) {
+
+		int before = unsatisfied[action];
+		unsatisfied[action] = before + delta;
+		if (before == 0) {
+			removeFromSet(action);
+		} else if (before + delta == 0) {
+			addToSet(action);
+		}
+	}
+
+	private void addToSet(int action) {
+		positionInSet[action] = numSatisfied;
+		satisfiedActions[numSatisfied++] = action;
+	}
+
+	private void removeFromSet(int action) {
+		// Move the last element of the set into the gap
+		int pos = positionInSet[action];
+		int last = satisfiedActions[--numSatisfied];
+		satisfiedActions[pos] = last;
+		positionInSet[last] = pos;
+		positionInSet[action] = -1;
+	}
+
+	/**
+	 * Moves the index to the provided state and overwrites the provided
+	 * list with all actions applicable in this state, each contained
+	 * exactly once.
+	 */
+	@Override
+	public void getApplicableActions(State state, List<Action> result) {
+
+		moveTo(state);
+		result.clear();
+		for (int i = 0; i < numSatisfied; i++) {
+			Action action = actions[satisfiedActions[i]];
+			// Check complex precondition, if present
+			if (action.getComplexPrecondition() == null
+					|| action.getComplexPrecondition().holds(state)) {
+				result.add(action);
+			}
+		}
+	}
+}
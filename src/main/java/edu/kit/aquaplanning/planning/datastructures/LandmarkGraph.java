@@ -0,0 +1,236 @@
+package edu.kit.aquaplanning.planning.datastructures;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+
+import edu.kit.aquaplanning.model.ground.Action;
+import edu.kit.aquaplanning.model.ground.Atom;
+import edu.kit.aquaplanning.model.ground.AtomSet;
+import edu.kit.aquaplanning.model.ground.ConditionalEffect;
+import edu.kit.aquaplanning.model.ground.GroundPlanningProblem;
+import edu.kit.aquaplanning.model.ground.State;
+
+/**
+ * Fact landmarks of a ground planning problem, i.e. atoms which
+ * must be true at some point of every plan, together with natural
+ * orderings between them.
+ *
+ * The landmarks are computed by propagating labels through the
+ * delete-relaxed problem (as in the h^m landmarks with m=1): the label
+ * of an atom is the set of atoms which must have been true before the
+ * atom can be reached, i.e. the intersection over all achievers of the
+ * union of the labels of their preconditions. The labels of the goal
+ * atoms are the landmarks, and each atom in the label of a landmark
+ * is ordered before it. Negative and complex preconditions are ignored
+ * and complex effects over-approximated, so that all found landmarks
+ * are landmarks indeed.
+ */
+public class LandmarkGraph {
+
+	private int[] atoms;
+	private boolean[] goals;
+	/**
+	 * Per landmark: the landmarks which are ordered before it.
+	 */
+	private int[][] predecessors;
+	private boolean solvable;
+
+	public LandmarkGraph(GroundPlanningProblem gpp) {
+
+		int numAtoms = gpp.getNumAtoms();
+		List<Action> actions = gpp.getActions();
+
+		// Achievers in the relaxed problem: (preconditions, effects) pairs
+		List<int[]> achieverPre = new ArrayList<>();
+		List<int[]> achieverEff = new ArrayList<>();
+		for (Action action : actions) {
+			AtomSet pre = action.getPreconditionsPos();
+			addAchiever(pre, action.getEffectsPos(), achieverPre, achieverEff);
+			for (ConditionalEffect eff : action.getConditionalEffects()) {
+				AtomSet condPre = new AtomSet(numAtoms);
+				condPre.applyTrueAtoms(pre);
+				condPre.applyTrueAtoms(eff.getConditionsPos());
+				addAchiever(condPre, eff.getEffectsPos(), achieverPre, achieverEff);
+			}
+			if (action.getComplexEffect() != null) {
+				AtomSet complexEffects = new AtomSet(numAtoms);
+				complexEffects.applyEffectAtoms(action.getComplexEffect(), true);
+				addAchiever(pre, complexEffects, achieverPre, achieverEff);
+			}
+		}
+		int numAchievers = achieverPre.size();
+
+		// Achievers having each atom as a precondition
+		List<List<Integer>> consumers = new ArrayList<>(numAtoms);
+		for (int atom = 0; atom < numAtoms; atom++) {
+			consumers.add(new ArrayList<>());
+		}
+		int[] unreached = new int[numAchievers];
+		for (int a = 0; a < numAchievers; a++) {
+			for (int atom : achieverPre.get(a))
+				consumers.get(atom).add(a);
+			unreached[a] = achieverPre.get(a).length;
+		}
+
+		// Label propagation until fixpoint; a label of null
+		// means that the atom has not been reached yet
+		BitSet[] labels = new BitSet[numAtoms];
+		ArrayDeque<Integer> queue = new ArrayDeque<>();
+		boolean[] queued = new boolean[numAchievers];
+		for (int a = 0; a < numAchievers; a++) {
+			if (unreached[a] == 0) {
+				queue.add(a);
+				queued[a] = true;
+			}
+		}
+		AtomSet init = gpp.getInitialState().getAtomSet();
+		for (int atom = init.getFirstTrueAtom(); atom >= 0 && atom < numAtoms;
+				atom = init.getNextTrueAtom(atom+1)) {
+			labels[atom] = new BitSet();
+			labels[atom].set(atom);
+			for (int a : consumers.get(atom)) {
+				if (--unreached[a] == 0) {
+					queue.add(a);
+					queued[a] = true;
+				}
+			}
+		}
+		BitSet union = new BitSet();
+		while (!queue.isEmpty()) {
+			int a = queue.poll();
+			queued[a] = false;
+			union.clear();
+			for (int atom : achieverPre.get(a))
+				union.or(labels[atom]);
+			for (int atom : achieverEff.get(a)) {
+				BitSet label = labels[atom];
+				if (label == null) {
+					// Atom is reached for the first time
+					label = (BitSet) union.clone();
+					label.set(atom);
+					labels[atom] = label;
+					for (int consumer : consumers.get(atom)) {
+						if (--unreached[consumer] == 0 && !queued[consumer]) {
+							queue.add(consumer);
+							queued[consumer] = true;
+						}
+					}
+				} else {
+					int cardinality = label.cardinality();
+					label.and(union);
+					label.set(atom);
+					boolean changed = label.cardinality() < cardinality;
+					if (changed) {
+						for (int consumer : consumers.get(atom)) {
+							if (unreached[consumer] == 0 && !queued[consumer]) {
+								queue.add(consumer);
+								queued[consumer] = true;
+							}
+						}
+					}
+				}
+			}
+		}
+
+		// Landmarks: the union of the labels of all goal atoms
+		BitSet landmarks = new BitSet();
+		BitSet goalAtoms = new BitSet();
+		solvable = true;
+		for (Atom goal : gpp.getGoal().getNecessaryPositiveAtoms()) {
+			if (labels[goal.getId()] == null) {
+				solvable = false;
+			} else {
+				landmarks.or(labels[goal.getId()]);
+				goalAtoms.set(goal.getId());
+			}
+		}
+		int numLandmarks = solvable ? landmarks.cardinality() : 0;
+		atoms = new int[numLandmarks];
+		goals = new boolean[numLandmarks];
+		predecessors = new int[numLandmarks][];
+		if (!solvable) {
+			return;
+		}
+		int[] landmarkOfAtom = new int[numAtoms];
+		int lm = 0;
+		for (int atom = landmarks.nextSetBit(0); atom >= 0; atom = landmarks.nextSetBit(atom+1)) {
+			landmarkOfAtom[atom] = lm;
+			atoms[lm] = atom;
+			goals[lm] = goalAtoms.get(atom);
+			lm++;
+		}
+		for (lm = 0; lm < numLandmarks; lm++) {
+			BitSet label = labels[atoms[lm]];
+			int[] pred = new int[label.cardinality()-1];
+			int i = 0;
+			for (int atom = label.nextSetBit(0); atom >= 0; atom = label.nextSetBit(atom+1)) {
+				if (atom != atoms[lm])
+					pred[i++] = landmarkOfAtom[atom];
+			}
+			predecessors[lm] = pred;
+		}
+	}
+
+	private static void addAchiever(AtomSet pre, AtomSet eff, List<int[]> achieverPre,
+			List<int[]> achieverEff) {
+
+		if (eff.numAtoms() == 0)
+			return;
+		achieverPre.add(pre.toArray());
+		achieverEff.add(eff.toArray());
+	}
+
+	/**
+	 * The amount of landmarks; landmarks are addressed
+	 * by indices from 0 to size()-1.
+	 */
+	public int size() {
+		return atoms.length;
+	}
+
+	/**
+	 * The ID of the atom of the provided landmark.
+	 */
+	public int getAtom(int landmark) {
+		return atoms[landmark];
+	}
+
+	/**
+	 * True iff the provided landmark is a goal atom.
+	 */
+	public boolean isGoal(int landmark) {
+		return goals[landmark];
+	}
+
+	/**
+	 * Returns the landmarks which must be true before the provided one.
+	 */
+	public int[] getPredecessors(int landmark) {
+		return predecessors[landmark];
+	}
+
+	/**
+	 * False iff some goal atom is unreachable even in the relaxed
+	 * problem, i.e. the problem is unsolvable.
+	 */
+	public boolean isSolvable() {
+		return solvable;
+	}
+
+	/**
+	 * True iff the provided landmark holds in the provided state.
+	 */
+	public boolean holds(int landmark, State state) {
+		return state.getAtomSet().get(atoms[landmark]);
+	}
+
+	@Override
+	public String toString() {
+		int numOrderings = 0;
+		for (int[] pred : predecessors)
+			numOrderings += pred.length;
+		return atoms.length + " landmarks, " + numOrderings + " orderings";
+	}
+}
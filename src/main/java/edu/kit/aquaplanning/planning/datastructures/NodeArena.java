@@ -0,0 +1,221 @@
+package edu.kit.aquaplanning.planning.datastructures;
+
+import java.util.Arrays;
+import java.util.List;
+
+import edu.kit.aquaplanning.model.ground.Action;
+import edu.kit.aquaplanning.model.ground.Plan;
+import edu.kit.aquaplanning.model.ground.State;
+import edu.kit.aquaplanning.model.ground.StateVariables;
+
+/**
+ * Compact store of all nodes generated during a forward search.
+ *
+ * Instead of a graph of SearchNode objects which reference their parents,
+ * states and actions, each node is a row of primitive arrays: the index
+ * of its parent node, the index of the action leading to it, its g and
+ * h values, and the slot of its state in a packed StateTable (which also
+ * shares the storage of equal states). A node is addressed by its index,
+ * i.e. the order in which it has been added.
+ *
+ * SearchNode objects are only needed for the nodes which are currently
+ * in the frontier; see SearchQueue.setNodeArena(NodeArena). The state
+ * table of the arena is the only place where a search stores its states:
+ * the search queue also identifies visited states by their IDs inside
+ * this table.
+ */
+public class NodeArena {
+
+	private static final int NONE = -1;
+
+	private int[] parents;
+	private int[] actions;
+	private int[] g;
+	private int[] h;
+	private int[] stateSlots;
+	private int size;
+
+	/**
+	 * Packed storage of all distinct states of the contained nodes.
+	 */
+	private StateTable states;
+
+	/**
+	 * Creates an empty arena for nodes whose states have the
+	 * same width as the provided (initial) state.
+	 */
+	public NodeArena(State prototype) {
+		this(prototype, 1024);
+	}
+
+	/**
+	 * Creates an empty arena for nodes whose states have the
+	 * same width as the provided (initial) state, with an initial
+	 * capacity of the provided amount of nodes.
+	 */
+	public NodeArena(State prototype, int initialCapacity) {
+		this(prototype, initialCapacity, null);
+	}
+
+	/**
+	 * Creates an empty arena for nodes whose states have the
+	 * same width as the provided (initial) state, with an initial
+	 * capacity of the provided amount of nodes, which stores the
+	 * states packed by the provided variables (if not null).
+	 */
+	public NodeArena(State prototype, int initialCapacity, StateVariables variables) {
+		int capacity = Math.max(16, initialCapacity);
+		this.parents = new int[capacity];
+		this.actions = new int[capacity];
+		this.g = new int[capacity];
+		this.h = new int[capacity];
+		this.stateSlots = new int[capacity];
+		this.states = new StateTable(prototype, capacity, variables);
+	}
+
+	/**
+	 * Adds a node and returns its index.
+	 * @param parent the index of the parent node, or -1 for the root
+	 * @param action the action leading from the parent to the node
+	 * (or null for the root); must have an ID (see Action.getId())
+	 * @param g the cost of the path to the node
+	 * @param state the state of the node, which is copied
+	 * (such that the provided object may be reused), or null
+	 * if the state of the node is not to be stored
+	 */
+	public int add(int parent, Action action, int g, State state) {
+
+		return add(parent, action, g, state == null ? NONE : states.put(state));
+	}
+
+	/**
+	 * Adds a node whose state has the provided ID inside the state
+	 * table of this arena (see putState), or -1 if the state of the node
+	 * is not to be stored, and returns the index of the node.
+	 */
+	public int add(int parent, Action action, int g, int stateId) {
+
+		if (size == parents.length) {
+			grow();
+		}
+		int node = size++;
+		parents[node] = parent;
+		actions[node] = action == null ? NONE : action.getId();
+		this.g[node] = g;
+		this.h[node] = 0;
+		stateSlots[node] = stateId;
+		return node;
+	}
+
+	/**
+	 * Stores the provided state (if it is not stored already)
+	 * and returns its ID inside the state table of this arena.
+	 */
+	public int putState(State state) {
+		return states.put(state);
+	}
+
+	/**
+	 * Returns the ID of the provided state inside the state
+	 * table of this arena, or -1 if it is not stored.
+	 */
+	public int getStateId(State state) {
+		return states.getId(state);
+	}
+
+	/**
+	 * Returns the index of the parent of the provided node,
+	 * or -1 if the node is the root.
+	 */
+	public int getParent(int node) {
+		return parents[node];
+	}
+
+	/**
+	 * Returns the ID of the action leading to the provided node,
+	 * or -1 if the node is the root.
+	 */
+	public int getActionId(int node) {
+		return actions[node];
+	}
+
+	public int getG(int node) {
+		return g[node];
+	}
+
+	public int getH(int node) {
+		return h[node];
+	}
+
+	public void setH(int node, int value) {
+		h[node] = value;
+	}
+
+	/**
+	 * Returns the ID of the provided node's state inside the
+	 * state table of this arena, or -1 if it is not stored.
+	 */
+	public int getStateSlot(int node) {
+		return stateSlots[node];
+	}
+
+	/**
+	 * Overwrites the provided target with the state of the provided node.
+	 */
+	public void getState(int node, State target) {
+		states.get(stateSlots[node], target);
+	}
+
+	/**
+	 * Extracts the plan leading to the provided node by following
+	 * the parent indices up to the root.
+	 * @param actionList the actions of the planning problem,
+	 * indexed by their IDs
+	 */
+	public Plan extractPlan(int node, List<Action> actionList) {
+
+		Plan plan = new Plan();
+		while (node != NONE && actions[node] != NONE) {
+			plan.appendAtFront(actionList.get(actions[node]));
+			node = parents[node];
+		}
+		return plan;
+	}
+
+	/**
+	 * The amount of nodes contained in this arena.
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * The table of the distinct states of the nodes in this arena.
+	 */
+	public StateTable getStateTable() {
+		return states;
+	}
+
+	/**
+	 * The approximate amount of memory occupied by this arena
+	 * (including its states), in bytes.
+	 */
+	public long getMemoryBytes() {
+		return 4L * 5 * parents.length + states.getMemoryBytes();
+	}
+
+	private void grow() {
+		int capacity = 2 * parents.length;
+		parents = Arrays.copyOf(parents, capacity);
+		actions = Arrays.copyOf(actions, capacity);
+		g = Arrays.copyOf(g, capacity);
+		h = Arrays.copyOf(h, capacity);
+		stateSlots = Arrays.copyOf(stateSlots, capacity);
+	}
+
+	@Override
+	public String toString() {
+		return String.format("%d nodes, %d distinct states, %.1f MB",
+				size, states.size(), getMemoryBytes() / 1e6);
+	}
+}
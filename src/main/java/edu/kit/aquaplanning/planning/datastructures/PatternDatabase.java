@@ -0,0 +1,181 @@
+package edu.kit.aquaplanning.planning.datastructures;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.ShortBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import edu.kit.aquaplanning.model.ground.Action;
+import edu.kit.aquaplanning.model.ground.AtomSet;
+import edu.kit.aquaplanning.model.ground.State;
+
+/**
+ * Table of the goal distances of all abstract states of a pattern,
+ * i.e. of the projection of the problem onto a small set of atoms.
+ *
+ * An abstract state is a bitmask with one bit per pattern atom, which
+ * directly serves as the index into the table. The distances are computed
+ * once by a breadth-first regression from all abstract goal states,
+ * using the projections of the actions' simple preconditions and effects.
+ * As complex preconditions are ignored, the distances never overestimate
+ * the (unit cost) distances in the original problem, given that the
+ * pattern atoms are not affected by conditional or complex effects.
+ *
+ * The distances are stored in a short array or, optionally, in a direct
+ * (off-heap) buffer which is not traversed by the garbage collector.
+ */
+public class PatternDatabase {
+
+	private static final short UNREACHABLE = -1;
+
+	private int[] atoms;
+	private BitSet affectingActions;
+
+	private short[] table;
+	private ShortBuffer offHeapTable;
+
+	/**
+	 * Computes the pattern database of the provided pattern.
+	 * @param pattern the pattern atoms (at most 30)
+	 * @param actions all actions of the problem
+	 * @param goalAtoms the atoms which must be true in a goal state
+	 * @param offHeap whether to store the table in a direct buffer
+	 */
+	public PatternDatabase(int[] pattern, List<Action> actions, AtomSet goalAtoms, boolean offHeap) {
+
+		if (pattern.length > 30) {
+			throw new IllegalArgumentException("A pattern must not contain more than 30 atoms.");
+		}
+		this.atoms = pattern.clone();
+		int numStates = 1 << atoms.length;
+
+		// Project actions onto the pattern: {prePos, preNeg, add, del}
+		affectingActions = new BitSet(actions.size());
+		Set<List<Integer>> distinct = new HashSet<>();
+		List<int[]> operators = new ArrayList<>();
+		for (int a = 0; a < actions.size(); a++) {
+			Action action = actions.get(a);
+			int add = project(action.getEffectsPos());
+			int del = project(action.getEffectsNeg()) & ~add;
+			if (add == 0 && del == 0) {
+				continue;
+			}
+			affectingActions.set(a);
+			int prePos = project(action.getPreconditionsPos());
+			int preNeg = project(action.getPreconditionsNeg());
+			if ((prePos & preNeg) != 0) {
+				continue; // never applicable
+			}
+			if (distinct.add(Arrays.asList(prePos, preNeg, add, del))) {
+				operators.add(new int[] {prePos, preNeg, add, del});
+			}
+		}
+
+		// Breadth-first regression from all abstract goal states
+		int goalMask = 0;
+		for (int i = 0; i < atoms.length; i++) {
+			if (goalAtoms.get(atoms[i]))
+				goalMask |= 1 << i;
+		}
+		short[] distances = new short[numStates];
+		Arrays.fill(distances, UNREACHABLE);
+		int[] queue = new int[numStates];
+		int head = 0, tail = 0;
+		for (int s = 0; s < numStates; s++) {
+			if ((s & goalMask) == goalMask) {
+				distances[s] = 0;
+				queue[tail++] = s;
+			}
+		}
+		while (head < tail) {
+			int s = queue[head++];
+			short dist = (short) Math.min(distances[s] + 1, Short.MAX_VALUE);
+			for (int[] op : operators) {
+				int prePos = op[0], preNeg = op[1], add = op[2], del = op[3];
+				int eff = add | del;
+				// The effects must hold in s ...
+				if ((s & add) != add || (s & del) != 0)
+					continue;
+				// ... and the unaffected preconditions as well
+				if ((s & prePos & ~eff) != (prePos & ~eff) || (s & preNeg & ~eff) != 0)
+					continue;
+				// Predecessors: affected atoms are given by the preconditions or free
+				int base = (s & ~eff) | (prePos & eff);
+				int free = eff & ~prePos & ~preNeg;
+				int sub = free;
+				while (true) {
+					int pred = base | sub;
+					if (distances[pred] == UNREACHABLE) {
+						distances[pred] = dist;
+						queue[tail++] = pred;
+					}
+					if (sub == 0)
+						break;
+					sub = (sub - 1) & free;
+				}
+			}
+		}
+
+		if (offHeap) {
+			offHeapTable = ByteBuffer.allocateDirect(2 * numStates)
+					.order(ByteOrder.nativeOrder()).asShortBuffer();
+			offHeapTable.put(distances);
+		} else {
+			table = distances;
+		}
+	}
+
+	private int project(AtomSet atomSet) {
+
+		int mask = 0;
+		for (int i = 0; i < atoms.length; i++) {
+			if (atomSet.get(atoms[i]))
+				mask |= 1 << i;
+		}
+		return mask;
+	}
+
+	/**
+	 * Returns the goal distance of the provided state's abstraction,
+	 * or Integer.MAX_VALUE if no abstract goal state is reachable.
+	 */
+	public int getDistance(State state) {
+
+		int index = 0;
+		AtomSet atomSet = state.getAtomSet();
+		for (int i = 0; i < atoms.length; i++) {
+			if (atomSet.get(atoms[i]))
+				index |= 1 << i;
+		}
+		short dist = table != null ? table[index] : offHeapTable.get(index);
+		return dist == UNREACHABLE ? Integer.MAX_VALUE : dist;
+	}
+
+	/**
+	 * The atoms of the pattern.
+	 */
+	public int[] getPattern() {
+		return atoms;
+	}
+
+	/**
+	 * The indices of all actions with an effect on some pattern atom.
+	 * The distances of patterns without common affecting actions
+	 * may be added up admissibly.
+	 */
+	public BitSet getAffectingActions() {
+		return affectingActions;
+	}
+
+	/**
+	 * The amount of bytes occupied by the distance table.
+	 */
+	public long getTableBytes() {
+		return 2L << atoms.length;
+	}
+}
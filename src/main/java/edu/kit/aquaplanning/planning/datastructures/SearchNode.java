@@ -1,5 +1,7 @@
 package edu.kit.aquaplanning.planning.datastructures;
 
+import java.util.BitSet;
+
 import edu.kit.aquaplanning.model.ground.Action;
 import edu.kit.aquaplanning.model.ground.State;
 
@@ -16,6 +18,22 @@ public class SearchNode {
 	public State state;
 	public Action lastAction;
 	public int heuristicValue;
+	/**
+	 * Index of this node in a NodeArena, or -1 if the node
+	 * is not stored in an arena.
+	 */
+	public int index = -1;
+	/**
+	 * The IDs of the preferred operators computed by the heuristic 
+	 * for this node (see Heuristic.setComputePreferredOperators), 
+	 * or null. A SearchQueue drops them when the node is queued.
+	 */
+	public BitSet preferredOperators;
+	/**
+	 * Bitset of the landmarks accepted on the path to this node
+	 * (see LandmarkCountHeuristic); initially shared with the parent.
+	 */
+	public long[] landmarks;
 	
 	public SearchNode(SearchNode parent, State state) {
 		if (parent != null)
@@ -2,16 +2,23 @@ package edu.kit.aquaplanning.planning.datastructures;
 
 import java.util.ArrayDeque;
 import java.util.ArrayList;
-import java.util.HashSet;
+import java.util.Arrays;
+import java.util.BitSet;
 import java.util.List;
 import java.util.PriorityQueue;
 import java.util.Queue;
 import java.util.Random;
-import java.util.Set;
 import java.util.Stack;
+import java.util.function.ToIntFunction;
 
+import edu.kit.aquaplanning.model.ground.Action;
+import edu.kit.aquaplanning.model.ground.State;
+import edu.kit.aquaplanning.model.ground.StateVariables;
+import edu.kit.aquaplanning.model.ground.UndoLog;
 import edu.kit.aquaplanning.planning.datastructures.SearchStrategy.Mode;
+import edu.kit.aquaplanning.planning.datastructures.SearchStrategy.OpenList;
 import edu.kit.aquaplanning.planning.heuristic.Heuristic;
+import edu.kit.aquaplanning.planning.heuristic.ParallelHeuristicEvaluator;
 
 /**
  * Maintains a structure of search nodes. Nodes can be added and polled
@@ -24,14 +31,84 @@ public class SearchQueue {
 	
 	// Different data structures used depending on the employed strategy
 	private Queue<SearchNode> queue;
+	private ToIntFunction<SearchNode> priority;
 	private Stack<SearchNode> stack;
 	private List<SearchNode> list;
 	private Random random;
 	
 	/**
-	 * Contains the hashes of all states which have already been visited.
+	 * Beam search only: the best successors of the current layer
+	 * (which is kept in the queue).
 	 */
-	private Set<Integer> visitedStates;
+	private BoundedQueue nextLayer;
+	
+	/**
+	 * Contains the IDs of all states which have already been visited,
+	 * w.r.t. the state table of the arena (if set) or an own table of
+	 * visited states, which is initialized as soon as the first state
+	 * is visited.
+	 */
+	private BitSet visitedIds;
+	private StateTable visitedStates;
+	private int numVisitedStates;
+	private StateVariables stateVariables;
+	
+	/**
+	 * If set, the states visited and the dead ends recognized by any 
+	 * search are additionally kept in these tables, which are shared
+	 * with other (concurrent) searches.
+	 */
+	private ConcurrentStateTable sharedVisitedStates;
+	private ConcurrentStateTable sharedDeadEnds;
+	/**
+	 * Polled nodes whose states have already been visited by another
+	 * search. They are only searched if the frontier runs empty, after
+	 * which this search does not defer any nodes anymore.
+	 */
+	private List<SearchNode> deferredNodes = new ArrayList<>();
+	private boolean deferredNodesRestored;
+	
+	/**
+	 * If set, the nodes added together (see addAll) are evaluated
+	 * in parallel by this evaluator.
+	 */
+	private ParallelHeuristicEvaluator evaluator;
+	
+	/**
+	 * If set, the states of frontier nodes are kept in packed form
+	 * inside this arena instead of inside the nodes. The state of a 
+	 * polled node is restored into a single reusable state object.
+	 */
+	private NodeArena arena;
+	private State polledState;
+	
+	/**
+	 * Depth-first search only: if set, the single mutable state of the
+	 * current path, and the log of the actions applied to it.
+	 */
+	private State pathState;
+	private UndoLog undoLog;
+	
+	private long numEvaluations;
+	
+	/**
+	 * Second open list only containing nodes reached by preferred
+	 * operators (which are contained in the regular open list, too).
+	 */
+	private Queue<SearchNode> preferredQueue;
+	/**
+	 * The preferred operators of the most recently polled node, 
+	 * i.e. of the parent of all nodes which are added next.
+	 */
+	private BitSet parentPreferredOperators;
+	/**
+	 * Amount of polls which are reserved for the preferred open list.
+	 * Increased whenever a new best heuristic value has been found.
+	 */
+	private int preferredBoost;
+	private boolean pollPreferredNext;
+	private int bestHeuristicValue = Integer.MAX_VALUE;
+	private static final int PREFERRED_BOOST = 1000;
 	
 	/**
 	 * Initializes a forward search queue with a non-heuristical strategy.
@@ -65,31 +142,138 @@ public class SearchQueue {
 			stack = new Stack<>();
 			break;
 		case bestFirst:
-			queue = new PriorityQueue<SearchNode>((n1, n2) ->
-					// Compare heuristic scores
-					n1.heuristicValue - n2.heuristicValue
+			queue = newPriorityQueue(n ->
+					// Heuristic scores
+					n.heuristicValue
 			);
 			break;
 		case aStar:
-			queue = new PriorityQueue<SearchNode>((n1, n2) ->
-					// Compare (cost so far + heuristic scores)
-					n1.depth + n1.heuristicValue - (n2.depth + n2.heuristicValue)
+			queue = newPriorityQueue(n ->
+					// Cost so far + heuristic scores
+					n.depth + n.heuristicValue
 			);
 			break;
 		case weightedAStar:
 			int heuristicWeight = strategy.getHeuristicWeight();
-			queue = new PriorityQueue<SearchNode>((n1, n2) ->
-					// Compare (cost so far + heuristic scores)
-					n1.depth + heuristicWeight * n1.heuristicValue 
-					- (n2.depth + heuristicWeight * n2.heuristicValue)
+			queue = newPriorityQueue(n ->
+					// Cost so far + weighted heuristic scores
+					n.depth + heuristicWeight * n.heuristicValue
 			);
 			break;
 		case randomChoice:
 			list = new ArrayList<>();
 			random = new Random(strategy.getSeed());
 			break;
+		case beamSearch:
+			queue = newPriorityQueue(n ->
+					// Heuristic scores
+					n.heuristicValue
+			);
+			nextLayer = new BoundedQueue(priority, strategy.getBeamWidth());
+			break;
+		}
+		if (strategy.usesPreferredOperators()) {
+			preferredQueue = newPriorityQueue(priority);
 		}
-		visitedStates = new HashSet<>();
+		visitedIds = new BitSet();
+		visitedStates = null;
+		numVisitedStates = 0;
+	}
+	
+	/**
+	 * Creates the open list of a heuristical strategy which polls 
+	 * the node with the lowest provided priority first.
+	 */
+	private Queue<SearchNode> newPriorityQueue(ToIntFunction<SearchNode> priority) {
+		
+		this.priority = priority;
+		if (strategy.getMaxFrontierSize() > 0) {
+			return new BoundedQueue(priority, strategy.getMaxFrontierSize());
+		}
+		if (strategy.getOpenList() == OpenList.buckets) {
+			return new BucketQueue(priority, strategy.getTieBreaking());
+		}
+		return new PriorityQueue<SearchNode>((n1, n2) ->
+				// Compare priorities
+				priority.applyAsInt(n1) - priority.applyAsInt(n2)
+		);
+	}
+	
+	/**
+	 * Makes the queue keep the states of all added nodes which have 
+	 * an arena index (see SearchNode.index) only inside the provided 
+	 * arena: after the heuristic value of such a node has been computed
+	 * (and written into the arena), its state reference is released, and 
+	 * it is restored from the arena as soon as the node is polled.
+	 * Consequently, nodes with an arena index may be added with a state
+	 * object which is reused afterwards. The state of a polled node is
+	 * only valid until the next node is polled.
+	 * 
+	 * Visited states are then identified by their IDs inside the state
+	 * table of the arena, too, such that each state is stored only once.
+	 * Must be set before any node is added.
+	 */
+	public void setNodeArena(NodeArena arena) {
+		
+		this.arena = arena;
+	}
+	
+	/**
+	 * Makes a depth-first queue keep the state of the current node in
+	 * the provided state, which is modified in place: when a node is
+	 * polled, the actions of the abandoned part of the current path are
+	 * reverted and the action leading to the node (see SearchNode.lastAction)
+	 * is applied. Hence, nodes can be added without any state; the state 
+	 * of a polled node is the provided object, which must not be modified
+	 * by the caller. Initially, the state must be the state of the root.
+	 */
+	public void setPathState(State state) {
+		
+		if (strategy.getMode() != Mode.depthFirst) {
+			throw new IllegalArgumentException("Only a depth-first search "
+					+ "can operate on a single path state.");
+		}
+		this.pathState = state;
+		this.undoLog = new UndoLog();
+	}
+	
+	/**
+	 * Makes the table of visited states store the states
+	 * in the packed form of the provided variables.
+	 */
+	public void setStateVariables(StateVariables variables) {
+		
+		this.stateVariables = variables;
+	}
+	
+	/**
+	 * Makes the queue add its visited states to the provided table, and
+	 * skip the evaluation of states contained in the provided table of 
+	 * dead ends (adding each state whose heuristic value is infinite).
+	 * Both tables may be shared among concurrent searches on the same
+	 * problem. A polled node whose state has been visited by another 
+	 * search is deferred until the frontier runs empty, so the searches
+	 * spread over the state space while each of them remains complete.
+	 * For the same reason, each search still keeps its own visited
+	 * states, such that the shared table holds another copy of every
+	 * visited state: memory is traded for fewer duplicate expansions.
+	 * Either table may be null.
+	 */
+	public void setSharedStates(ConcurrentStateTable visitedStates, 
+			ConcurrentStateTable deadEnds) {
+		
+		this.sharedVisitedStates = visitedStates;
+		this.sharedDeadEnds = deadEnds;
+	}
+	
+	/**
+	 * Makes the queue compute the heuristic values of nodes which are
+	 * added together (see addAll) in parallel by the provided evaluator.
+	 * Only applies to heuristical strategies without lazy evaluation.
+	 */
+	public void setParallelEvaluator(ParallelHeuristicEvaluator evaluator) {
+		
+		this.evaluator = evaluator;
 	}
 	
 	/**
@@ -98,13 +282,39 @@ public class SearchQueue {
 	 */
 	public boolean canBePruned(SearchNode node) {
 		
+		return canBePruned(node.state, getStateId(node));
+	}
+	
+	/**
+	 * Returns true if a node with the provided state is unneeded 
+	 * and should be discarded. Can be used to reject a successor 
+	 * state before any search node is created for it.
+	 */
+	public boolean canBePruned(State state) {
+		
+		return canBePruned(state, -1);
+	}
+	
+	/**
+	 * Same as canBePruned(State), where the provided state has the
+	 * provided ID inside the state table of the arena (see 
+	 * NodeArena.putState), or the ID is -1 if it is unknown.
+	 */
+	public boolean canBePruned(State state, int stateId) {
+		
 		// If revisiting states is forbidden:
 		// Has the state already been visited?
-		if (!strategy.canRevisitStates() && 
-				visitedStates.contains(node.state.hashCode())) {
-			return true;
+		if (strategy.canRevisitStates()) {
+			return false;
+		}
+		if (stateId < 0) {
+			if (arena != null) {
+				stateId = arena.getStateId(state);
+			} else if (visitedStates != null) {
+				stateId = visitedStates.getId(state);
+			}
 		}
-		return false;
+		return stateId >= 0 && visitedIds.get(stateId);
 	}
 	
 	/**
@@ -118,12 +328,16 @@ public class SearchQueue {
 		if (canBePruned(node))
 			return;
 		
-		if (strategy.isHeuristical()) {
+		if (strategy.isLazy()) {
+			// Queue the node with its provided (i.e. its parent's) 
+			// heuristic value; it is evaluated when polled
+			enqueue(node);
+		} else if (strategy.isHeuristical()) {
 			// Compute heuristic value for the node
-			node.heuristicValue = h.value(node);
+			computeHeuristic(node);
 			if (node.heuristicValue < Integer.MAX_VALUE) {
 				// Only add node if heuristic does not return infinity
-				queue.add(node);
+				enqueue(node);
 			}
 		} else if (strategy.getMode() == Mode.breadthFirst) {
 			queue.add(node);
@@ -132,30 +346,391 @@ public class SearchQueue {
 		} else if (strategy.getMode() == Mode.randomChoice) {
 			list.add(node);
 		}
+		release(node);
+	}
+	
+	/**
+	 * Proposes to add the provided search nodes (e.g. all successors
+	 * of a node), one after another. With a parallel evaluator, the
+	 * heuristic values of all nodes are computed concurrently first;
+	 * the nodes are then inserted in their provided order, so that 
+	 * the search proceeds exactly as if each node had been added 
+	 * by add(SearchNode).
+	 */
+	public void addAll(List<SearchNode> nodes) {
+		
+		if (evaluator == null || strategy.isLazy() || !strategy.isHeuristical()) {
+			for (SearchNode node : nodes) {
+				add(node);
+			}
+			return;
+		}
+		
+		// Prune nodes and known dead ends before evaluating the rest
+		List<SearchNode> candidates = new ArrayList<>(nodes.size());
+		List<SearchNode> toEvaluate = new ArrayList<>(nodes.size());
+		for (SearchNode node : nodes) {
+			if (canBePruned(node))
+				continue;
+			candidates.add(node);
+			if (sharedDeadEnds != null && sharedDeadEnds.contains(node.state)) {
+				node.heuristicValue = Integer.MAX_VALUE;
+			} else {
+				toEvaluate.add(node);
+			}
+		}
+		evaluator.evaluate(toEvaluate);
+		numEvaluations += toEvaluate.size();
+		
+		for (SearchNode node : candidates) {
+			onEvaluated(node);
+			if (node.heuristicValue < Integer.MAX_VALUE) {
+				enqueue(node);
+			}
+			release(node);
+		}
+	}
+	
+	/**
+	 * Keeps the state of an added node with an arena index 
+	 * only in packed form inside the arena.
+	 */
+	private void release(SearchNode node) {
+		
+		if (arena != null && node.index >= 0) {
+			arena.setH(node.index, node.heuristicValue);
+			if (polledState == null && node.state != null) {
+				polledState = new State(node.state);
+			}
+			node.state = null;
+		}
+	}
+	
+	private void enqueue(SearchNode node) {
+		
+		// Preferred operators are only kept for the node being expanded
+		// (see get), so queued nodes do not hold a bitset each
+		node.preferredOperators = null;
+		if (nextLayer != null) {
+			nextLayer.add(node);
+			return;
+		}
+		queue.add(node);
+		if (preferredQueue != null && isPreferred(node)) {
+			preferredQueue.add(node);
+		}
+	}
+	
+	/**
+	 * True iff the provided node has been reached by a preferred
+	 * operator of its parent, i.e. of the most recently polled node.
+	 */
+	private boolean isPreferred(SearchNode node) {
+		
+		return parentPreferredOperators != null && node.lastAction != null
+				&& parentPreferredOperators.get(node.lastAction.getId());
+	}
+	
+	private void computeHeuristic(SearchNode node) {
+		
+		if (sharedDeadEnds != null && sharedDeadEnds.contains(node.state)) {
+			// Recognized as a dead end by some search before
+			node.heuristicValue = Integer.MAX_VALUE;
+			return;
+		}
+		node.heuristicValue = h.value(node);
+		numEvaluations++;
+		onEvaluated(node);
+	}
+	
+	/**
+	 * Evaluates the provided node again to obtain its preferred operators,
+	 * which have been dropped when it was queued. Its heuristic value 
+	 * and accepted landmarks remain as they are.
+	 */
+	private void computePreferredOperators(SearchNode node) {
+		
+		int value = node.heuristicValue;
+		long[] landmarks = node.landmarks;
+		h.value(node);
+		numEvaluations++;
+		node.heuristicValue = value;
+		node.landmarks = landmarks;
+	}
+	
+	/**
+	 * Bookkeeping after the provided node has been evaluated.
+	 */
+	private void onEvaluated(SearchNode node) {
+		
+		if (sharedDeadEnds != null && node.heuristicValue == Integer.MAX_VALUE) {
+			sharedDeadEnds.add(node.state);
+		}
+		if (preferredQueue != null) {
+			if (node.heuristicValue < bestHeuristicValue) {
+				// Progress: prefer the preferred open list for a while
+				bestHeuristicValue = node.heuristicValue;
+				preferredBoost += PREFERRED_BOOST;
+			}
+		}
 	}
 	
 	/**
 	 * Polls a node according to the employed strategy.
+	 * Nodes whose state has been visited since they were added
+	 * (if revisiting states is forbidden) are skipped, and nodes whose 
+	 * state has been visited by another search are deferred (see 
+	 * setSharedStates). With lazy evaluation, the polled node has been 
+	 * evaluated by the heuristic. With preferred operators, the polled 
+	 * node is evaluated again (unless lazily) to compute its preferred
+	 * operators, which then decide the open lists of the nodes added 
+	 * next. Returns null if all remaining nodes turn out to be dead ends 
+	 * or duplicates.
 	 */
 	public SearchNode get() {
 		
+		SearchNode node;
+		do {
+			if (isFrontierEmpty() && !restoreDeferredNodes()) {
+				return null;
+			}
+			node = poll();
+		} while (canBePruned(node) || (strategy.isLazy() && !evaluate(node))
+				|| (!strategy.canRevisitStates() && defer(node)));
+		
+		// If revisiting states during the search is forbidden
+		if (!strategy.canRevisitStates()) {
+			markVisited(node);
+		}
+		if (preferredQueue != null) {
+			if (node.preferredOperators == null && !strategy.isLazy()) {
+				computePreferredOperators(node);
+			}
+			parentPreferredOperators = node.preferredOperators;
+			node.preferredOperators = null;
+		}
+		return node;
+	}
+	
+	private SearchNode poll() {
+		
 		SearchNode node;
 		if (strategy.getMode() == Mode.depthFirst) {
 			node = stack.pop();
+			if (pathState != null) {
+				moveAlongPath(node);
+				return node;
+			}
 		} else if (strategy.getMode() == Mode.randomChoice) {
 			int r = random.nextInt(list.size());
 			node = list.remove(r);
+		} else if (preferredQueue != null) {
+			node = pollAlternating();
 		} else {
+			if (nextLayer != null && queue.isEmpty()) {
+				// Current layer is finished: proceed with the next one
+				SearchNode next;
+				while ((next = nextLayer.poll()) != null) {
+					queue.add(next);
+				}
+			}
 			node = queue.poll();
 		}
+		if (arena != null && node.index >= 0 && arena.getStateSlot(node.index) >= 0) {
+			// Restore the state from the arena
+			arena.getState(node.index, polledState);
+			node.state = polledState;
+		}
+		return node;
+	}
+	
+	/**
+	 * Moves the path state to the provided node. As nodes are polled
+	 * in depth-first order, the parent of each polled node is on the
+	 * current path, i.e. the node is reached by going back to the depth
+	 * of its parent and applying the node's last action.
+	 */
+	private void moveAlongPath(SearchNode node) {
 		
-		// If revisiting states during the search is forbidden:
-		if (!strategy.canRevisitStates()) {			
-			// Add the state's hash code to the visited states
-			visitedStates.add(node.state.hashCode());
+		while (undoLog.size() > Math.max(0, node.depth-1)) {
+			Action.revert(pathState, undoLog);
+		}
+		if (node.depth > 0) {
+			node.lastAction.applyInPlace(pathState, undoLog);
 		}
+		node.state = pathState;
+	}
+	
+	/**
+	 * Polls a node from the regular or the preferred open list, 
+	 * alternating between both lists unless the preferred list 
+	 * is currently boosted. A node which is contained in both lists 
+	 * is pruned when it is polled for the second time (unless 
+	 * revisiting states is allowed).
+	 */
+	private SearchNode pollAlternating() {
 		
-		return node;
+		boolean preferred;
+		if (queue.isEmpty()) {
+			preferred = true;
+		} else if (preferredQueue.isEmpty()) {
+			preferred = false;
+		} else if (preferredBoost > 0) {
+			preferred = true;
+			preferredBoost--;
+		} else {
+			preferred = pollPreferredNext;
+			pollPreferredNext = !pollPreferredNext;
+		}
+		return preferred ? preferredQueue.poll() : queue.poll();
+	}
+	
+	/**
+	 * Computes the heuristic value of a lazily queued node.
+	 * Returns false if the node is to be discarded as a dead end.
+	 */
+	private boolean evaluate(SearchNode node) {
+		
+		computeHeuristic(node);
+		if (arena != null && node.index >= 0) {
+			arena.setH(node.index, node.heuristicValue);
+		}
+		if (node.heuristicValue == Integer.MAX_VALUE) {
+			// Dead end: never evaluate this state again
+			if (!strategy.canRevisitStates()) {
+				markVisited(node);
+			}
+			return false;
+		}
+		return true;
+	}
+	
+	/**
+	 * Adds the state of the provided node to the shared visited states
+	 * and, if another search has visited it before, defers the node
+	 * and returns true. The initial node is visited by each search.
+	 */
+	private boolean defer(SearchNode node) {
+		
+		if (sharedVisitedStates == null || sharedVisitedStates.add(node.state)
+				|| deferredNodesRestored || node.depth == 0) {
+			return false;
+		}
+		if (getStateId(node) >= 0) {
+			// The state is restored from the arena when polled again
+			node.state = null;
+		} else if (node.state == polledState) {
+			node.state = new State(node.state);
+		}
+		deferredNodes.add(node);
+		return true;
+	}
+	
+	/**
+	 * Moves all deferred nodes back into the frontier. 
+	 * Returns false if there are none.
+	 */
+	private boolean restoreDeferredNodes() {
+		
+		if (deferredNodes.isEmpty()) {
+			return false;
+		}
+		deferredNodesRestored = true;
+		for (SearchNode node : deferredNodes) {
+			if (strategy.getMode() == Mode.depthFirst) {
+				stack.push(node);
+			} else if (strategy.getMode() == Mode.randomChoice) {
+				list.add(node);
+			} else if (nextLayer != null) {
+				nextLayer.add(node);
+			} else {
+				queue.add(node);
+			}
+		}
+		deferredNodes.clear();
+		return true;
+	}
+	
+	/**
+	 * Marks the state of the provided node as visited by this search.
+	 */
+	private void markVisited(SearchNode node) {
+		
+		int stateId = getStateId(node);
+		if (stateId < 0) {
+			if (arena != null) {
+				stateId = arena.putState(node.state);
+			} else {
+				if (visitedStates == null) {
+					visitedStates = new StateTable(node.state, 1024, stateVariables);
+				}
+				stateId = visitedStates.put(node.state);
+			}
+		}
+		if (!visitedIds.get(stateId)) {
+			visitedIds.set(stateId);
+			numVisitedStates++;
+		}
+	}
+	
+	/**
+	 * Returns the ID of the provided node's state inside the 
+	 * state table of the arena, or -1 if it is unknown.
+	 */
+	private int getStateId(SearchNode node) {
+		
+		return arena != null && node.index >= 0 ? arena.getStateSlot(node.index) : -1;
+	}
+	
+	/**
+	 * Returns the amount of heuristic evaluations performed so far.
+	 */
+	public long getNumEvaluations() {
+		
+		return numEvaluations;
+	}
+	
+	/**
+	 * Returns the amount of nodes which have been discarded because
+	 * the open list (or the next beam) was full.
+	 */
+	public long getNumEvictions() {
+		
+		long evictions = 0;
+		for (Queue<SearchNode> q : Arrays.asList(queue, preferredQueue, nextLayer)) {
+			if (q instanceof BoundedQueue) {
+				evictions += ((BoundedQueue) q).getNumEvictions();
+			}
+		}
+		return evictions;
+	}
+	
+	/**
+	 * Returns the heuristic of this queue, or null if the
+	 * search strategy is not heuristical.
+	 */
+	public Heuristic getHeuristic() {
+		
+		return h;
+	}
+	
+	/**
+	 * Returns the amount of states which this search has marked as
+	 * visited (zero if revisiting states is allowed).
+	 */
+	public int getNumVisitedStates() {
+		
+		return numVisitedStates;
+	}
+	
+	/**
+	 * Returns the own table of visited states of this search, or null
+	 * if visited states are identified inside the table of the arena 
+	 * (see setNodeArena) or no state has been visited yet.
+	 */
+	public StateTable getVisitedStates() {
+		
+		return visitedStates;
 	}
 	
 	/**
@@ -163,10 +738,19 @@ public class SearchQueue {
 	 */
 	public boolean isEmpty() {
 		
+		return isFrontierEmpty() && deferredNodes.isEmpty();
+	}
+	
+	private boolean isFrontierEmpty() {
+		
 		if (strategy.getMode() == Mode.depthFirst) {
 			return stack.isEmpty();
 		} else if (strategy.getMode() == Mode.randomChoice) {
 			return list.isEmpty();
+		} else if (preferredQueue != null) {
+			return queue.isEmpty() && preferredQueue.isEmpty();
+		} else if (nextLayer != null) {
+			return queue.isEmpty() && nextLayer.isEmpty();
 		} else {
 			return queue.isEmpty();
 		}
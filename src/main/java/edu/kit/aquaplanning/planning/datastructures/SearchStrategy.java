@@ -1,6 +1,7 @@
 package edu.kit.aquaplanning.planning.datastructures;
 
 import edu.kit.aquaplanning.Configuration;
+import edu.kit.aquaplanning.util.Logger;
 
 /**
  * The strategy decides how the queue maintains and picks search nodes.
@@ -37,12 +38,61 @@ public class SearchStrategy {
 		 * cost so far, i.e. the node with the lowest value of
 		 * f(n)+c*h(n) is picked where c is a constant set separately.
 		 */
-		weightedAStar;
+		weightedAStar,
+		/**
+		 * Proceeds in layers of equal depth: only the nodes with
+		 * the best heuristic scores among the successors of a layer,
+		 * up to the beam width, make up the next layer. Incomplete.
+		 */
+		beamSearch;
 	}	
 	
+	/**
+	 * Data structure maintaining the nodes of a heuristical strategy.
+	 */
+	public enum OpenList {
+		/**
+		 * Binary heap (java.util.PriorityQueue) over arbitrary priorities.
+		 */
+		heap,
+		/**
+		 * Array of buckets indexed by the (integer) priority of nodes,
+		 * with constant-time insertion and extraction.
+		 */
+		buckets;
+	}
+	
+	/**
+	 * Order in which a bucket open list polls nodes of equal priority.
+	 */
+	public enum TieBreaking {
+		/**
+		 * Last in, first out.
+		 */
+		lifo,
+		/**
+		 * First in, first out.
+		 */
+		fifo,
+		/**
+		 * Lowest heuristic value first, then last in, first out.
+		 */
+		lowestH;
+	}
+	
 	private Mode mode;
 	private int heuristicWeight = 10; // only for heuristic modes
 	private int seed = 1337;
+	private OpenList openList = OpenList.heap; // only for heuristic modes
+	private TieBreaking tieBreaking = TieBreaking.lifo; // only for bucket open lists
+	private int beamWidth = 100; // only for beam search
+	
+	/**
+	 * Maximum amount of nodes in the open list of a heuristical
+	 * strategy (0: unbounded). When exceeded, the worst nodes are
+	 * discarded, so the search may become incomplete.
+	 */
+	private int maxFrontierSize = 0;
 	
 	/**
 	 * Denotes whether a state can be visited multiple times during a search
@@ -52,11 +102,48 @@ public class SearchStrategy {
 	 */
 	private boolean revisitStates = false;
 	
+	/**
+	 * Denotes whether the heuristic value of a node is computed when 
+	 * the node is added (false) or only when it is polled (true), 
+	 * in which case it is queued with the heuristic value of its parent.
+	 */
+	private boolean lazyEvaluation = false;
+	
+	/**
+	 * Denotes whether nodes reached by a preferred operator of their
+	 * parent are additionally kept in a second open list.
+	 */
+	private boolean preferredOperators = false;
+	
 	public SearchStrategy(Configuration config) {
 		this.mode = config.searchStrategy;
 		this.heuristicWeight = config.heuristicWeight;
 		this.revisitStates = config.revisitStates;
+		this.lazyEvaluation = config.lazyEvaluation;
+		this.preferredOperators = config.preferredOperators;
 		this.seed = config.seed;
+		if (config.openList != null)
+			this.openList = config.openList;
+		if (config.tieBreaking != null)
+			this.tieBreaking = config.tieBreaking;
+		if (config.beamWidth > 0)
+			this.beamWidth = config.beamWidth;
+		this.maxFrontierSize = config.maxFrontierSize;
+		
+		// Options which the bounded modes do not support
+		if (maxFrontierSize > 0 && isHeuristical() 
+				&& (openList != OpenList.heap || tieBreaking != TieBreaking.lifo)) {
+			Logger.log(Logger.WARN, "A bounded open list ignores the open list and tie-breaking "
+					+ "options: nodes of equal priority are polled last in, first out.");
+		}
+		if (mode == Mode.beamSearch && lazyEvaluation) {
+			Logger.log(Logger.WARN, "Beam search ignores lazy evaluation: "
+					+ "the nodes of each layer are evaluated when they are added.");
+		}
+		if (mode == Mode.beamSearch && preferredOperators) {
+			Logger.log(Logger.WARN, "Beam search ignores preferred operators: "
+					+ "each layer keeps the best nodes regardless of how they were reached.");
+		}
 	}
 	
 	/**
@@ -88,8 +175,46 @@ public class SearchStrategy {
 		this.revisitStates = revisitStates;
 	}
 	
+	/**
+	 * Decides whether the heuristic value of a node is computed when 
+	 * the node is added (false) or only when it is polled (true), 
+	 * in which case it is queued with the heuristic value of its parent.
+	 * Only has an effect for heuristical modes.
+	 */
+	public void setLazyEvaluation(boolean lazyEvaluation) {
+		this.lazyEvaluation = lazyEvaluation;
+	}
+	
+	/**
+	 * True iff heuristic values are computed lazily, 
+	 * i.e. only as nodes are polled.
+	 */
+	public boolean isLazy() {
+		// A beam is chosen by the heuristic values of its own nodes
+		return lazyEvaluation && isHeuristical() && mode != Mode.beamSearch;
+	}
+	
+	/**
+	 * Decides whether nodes reached by a preferred operator of their
+	 * parent (see SearchNode.preferredOperators) are additionally 
+	 * kept in a second open list, which is polled in alternation with 
+	 * the regular open list. Only has an effect for heuristical modes.
+	 */
+	public void setPreferredOperators(boolean preferredOperators) {
+		this.preferredOperators = preferredOperators;
+	}
+	
+	/**
+	 * True iff a second open list of nodes reached 
+	 * by preferred operators is maintained.
+	 */
+	public boolean usesPreferredOperators() {
+		return preferredOperators && isHeuristical() && mode != Mode.beamSearch;
+	}
+	
 	public boolean isHeuristical() {
-		if (mode == Mode.aStar || mode == Mode.weightedAStar || mode == Mode.bestFirst) {
+		if (mode == Mode.aStar || mode == Mode.weightedAStar || mode == Mode.bestFirst 
+				|| mode == Mode.beamSearch) {
 			return true;
 		}
 		return false;
@@ -117,4 +242,41 @@ public class SearchStrategy {
 	public int getSeed() {
 		return seed;
 	}
+	
+	public void setOpenList(OpenList openList) {
+		this.openList = openList;
+	}
+	
+	public OpenList getOpenList() {
+		return openList;
+	}
+	
+	public void setBeamWidth(int beamWidth) {
+		this.beamWidth = beamWidth;
+	}
+	
+	public int getBeamWidth() {
+		return beamWidth;
+	}
+	
+	/**
+	 * Bounds the amount of nodes in the open list of a heuristical
+	 * strategy (0: unbounded). When exceeded, the worst nodes are 
+	 * discarded, so the search may become incomplete.
+	 */
+	public void setMaxFrontierSize(int maxFrontierSize) {
+		this.maxFrontierSize = maxFrontierSize;
+	}
+	
+	public int getMaxFrontierSize() {
+		return maxFrontierSize;
+	}
+	
+	public void setTieBreaking(TieBreaking tieBreaking) {
+		this.tieBreaking = tieBreaking;
+	}
+	
+	public TieBreaking getTieBreaking() {
+		return tieBreaking;
+	}
 }
\ No newline at end of file
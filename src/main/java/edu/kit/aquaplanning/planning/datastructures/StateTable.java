@@ -0,0 +1,410 @@
+package edu.kit.aquaplanning.planning.datastructures;
+
+import java.util.Arrays;
+
+import edu.kit.aquaplanning.model.ground.State;
+import edu.kit.aquaplanning.model.ground.StateVariables;
+
+/**
+ * Exact, collision-free set of states for duplicate detection.
+ *
+ * Each inserted state is copied in packed form (its 64-bit atom words,
+ * followed by the raw bits of its numeric atoms) into a pool of chunks
+ * and receives a stable ID, which is its insertion index. Each chunk
+ * holds a fixed amount of states, so no offset overflows and growing
+ * the pool does not copy the states inserted before.
+ * An open-addressing hash index with linear probing maps the 64-bit 
+ * Zobrist hashes of states (see State.getHash()) to these IDs; on a
+ * hash match, the packed state is compared word by word, so two 
+ * different states are never confused.
+ * The 64-bit hash of each entry is memorized, such that growing the
+ * index does not require to rehash any state.
+ *
+ * All states put into a table must have the same width, which holds
+ * for all states derived from the initial state of the same problem.
+ * If the problem's atoms are encoded as finite-domain variables, the
+ * atoms of each state can be stored in their packed form instead
+ * (see StateVariables.pack), which needs much less memory.
+ */
+public class StateTable {
+
+	private static final int EMPTY = -1;
+	private static final double MAX_LOAD_FACTOR = 0.75;
+	/**
+	 * Bounds of the hash index and of the states per chunk,
+	 * such that all array lengths and offsets fit into an int.
+	 */
+	private static final int MAX_INDEX_LENGTH = 1 << 30;
+	private static final int MAX_SIZE = (int) (MAX_LOAD_FACTOR * MAX_INDEX_LENGTH);
+	private static final int MAX_CHUNK_STATES = 1 << 16;
+	private static final int MAX_CHUNK_WORDS = 1 << 28;
+
+	private final int numWords;
+	private final int numNumericAtoms;
+	/**
+	 * Amount of longs per state for its atoms (packed or not).
+	 */
+	private final int numKeyWords;
+	private final StateVariables variables;
+	/**
+	 * The atoms of the state currently looked up (packed or not).
+	 */
+	private long[] key;
+	private long[] unpacked;
+	/**
+	 * Amount of longs per state in the pool.
+	 */
+	private final int width;
+
+	/**
+	 * Packed states, one after another in order of insertion:
+	 * the state of ID i is in chunk i >>> chunkBits.
+	 */
+	private long[][] chunks;
+	private final int chunkBits;
+	private final int chunkMask;
+	/**
+	 * The 64-bit hash of each state, indexed by state ID.
+	 */
+	private long[] hashes;
+	private int size;
+
+	/**
+	 * Open-addressing index: state IDs, or EMPTY.
+	 */
+	private int[] index;
+	private int mask;
+
+	// Statistics
+	private long lookups;
+	private long probes;
+	private int maxProbeLength;
+
+	/**
+	 * Creates an empty table for states of the same width
+	 * as the provided prototype state.
+	 */
+	public StateTable(State prototype) {
+		this(prototype, 1024);
+	}
+
+	/**
+	 * Creates an empty table for states of the same width
+	 * as the provided prototype state, with an initial capacity
+	 * of (at least) the provided amount of states.
+	 */
+	public StateTable(State prototype, int initialCapacity) {
+		this(prototype, initialCapacity, null);
+	}
+
+	/**
+	 * Creates an empty table for states of the same width
+	 * as the provided prototype state, with an initial capacity
+	 * of (at least) the provided amount of states, which stores
+	 * the states packed by the provided variables (if not null).
+	 */
+	public StateTable(State prototype, int initialCapacity, StateVariables variables) {
+		this.numWords = prototype.numWords();
+		this.numNumericAtoms = prototype.numNumericAtoms();
+		this.variables = variables;
+		this.numKeyWords = variables != null ? variables.getNumPackedWords() : numWords;
+		this.key = new long[numKeyWords];
+		if (variables != null) {
+			this.unpacked = new long[numWords];
+		}
+		this.width = Math.max(1, numKeyWords + (numNumericAtoms + 1) / 2);
+		int chunkStates = Integer.highestOneBit(Math.max(1, 
+				Math.min(MAX_CHUNK_STATES, MAX_CHUNK_WORDS / width)));
+		this.chunkBits = Integer.numberOfTrailingZeros(chunkStates);
+		this.chunkMask = chunkStates - 1;
+		int capacity = Integer.highestOneBit(Math.min(MAX_INDEX_LENGTH / 2, 
+				Math.max(16, initialCapacity) - 1)) << 1;
+		this.chunks = new long[1][];
+		this.chunks[0] = new long[Math.min(capacity, chunkStates) * width];
+		this.hashes = new long[capacity];
+		this.index = new int[capacity * 2];
+		Arrays.fill(index, EMPTY);
+		this.mask = index.length - 1;
+	}
+
+	/**
+	 * True iff the provided state is contained in this table.
+	 */
+	public boolean contains(State state) {
+		return find(state, hash(state)) != EMPTY;
+	}
+
+	/**
+	 * Returns the ID of the provided state if it is contained
+	 * in the table, and -1 otherwise.
+	 */
+	public int getId(State state) {
+		return find(state, hash(state));
+	}
+
+	/**
+	 * Inserts the provided state, if it is not contained yet.
+	 * Returns true iff the state has been newly inserted.
+	 */
+	public boolean add(State state) {
+		int sizeBefore = size;
+		put(state);
+		return size > sizeBefore;
+	}
+
+	/**
+	 * Inserts the provided state, if it is not contained yet,
+	 * and returns the ID of the (new or existing) entry.
+	 */
+	public int put(State state) {
+
+		long hash = hash(state);
+		setKey(state);
+		int pos = (int) hash & mask;
+		int probeLength = 1;
+		while (index[pos] != EMPTY) {
+			int id = index[pos];
+			if (hashes[id] == hash && equalsEntry(id, state)) {
+				countProbes(probeLength);
+				return id;
+			}
+			pos = (pos + 1) & mask;
+			probeLength++;
+		}
+		countProbes(probeLength);
+
+		// Insert new entry
+		if (size == MAX_SIZE) {
+			throw new OutOfMemoryError("A state table cannot hold more than " 
+					+ MAX_SIZE + " states.");
+		}
+		int id = size++;
+		growPool(id);
+		hashes[id] = hash;
+		writeEntry(id, state);
+		index[pos] = id;
+		if (size > MAX_LOAD_FACTOR * index.length) {
+			growIndex();
+		}
+		return id;
+	}
+
+	/**
+	 * Removes all states, but keeps the allocated memory for
+	 * the states to be inserted next. IDs start at zero again.
+	 */
+	public void clear() {
+
+		if (size < index.length / 8) {
+			// Only reset the cells of the contained states
+			for (int id = 0; id < size; id++) {
+				int pos = (int) hashes[id] & mask;
+				while (index[pos] != id) {
+					pos = (pos + 1) & mask;
+				}
+				index[pos] = EMPTY;
+			}
+		} else {
+			Arrays.fill(index, EMPTY);
+		}
+		size = 0;
+	}
+
+	/**
+	 * Overwrites the provided target state with the state
+	 * of the provided ID.
+	 */
+	public void get(int id, State target) {
+
+		long[] pool = chunks[id >>> chunkBits];
+		int offset = (id & chunkMask) * width;
+		if (variables != null) {
+			variables.unpack(pool, offset, unpacked);
+			for (int w = 0; w < numWords; w++) {
+				target.setWord(w, unpacked[w]);
+			}
+		} else {
+			for (int w = 0; w < numWords; w++) {
+				target.setWord(w, pool[offset + w]);
+			}
+		}
+		for (int i = 0; i < numNumericAtoms; i++) {
+			target.set(i, getNumeric(pool, offset, i));
+		}
+	}
+
+	private int find(State state, long hash) {
+
+		setKey(state);
+		int pos = (int) hash & mask;
+		int probeLength = 1;
+		while (index[pos] != EMPTY) {
+			int id = index[pos];
+			if (hashes[id] == hash && equalsEntry(id, state)) {
+				countProbes(probeLength);
+				return id;
+			}
+			pos = (pos + 1) & mask;
+			probeLength++;
+		}
+		countProbes(probeLength);
+		return EMPTY;
+	}
+
+	/**
+	 * Writes the atoms of the provided state (packed or not) into the key.
+	 */
+	private void setKey(State state) {
+
+		if (variables != null) {
+			variables.pack(state, key, 0);
+		} else {
+			for (int w = 0; w < numWords; w++) {
+				key[w] = state.getWord(w);
+			}
+		}
+	}
+
+	/**
+	 * Compares an entry with the provided state, 
+	 * whose atoms have already been written into the key.
+	 */
+	private boolean equalsEntry(int id, State state) {
+
+		long[] pool = chunks[id >>> chunkBits];
+		int offset = (id & chunkMask) * width;
+		for (int w = 0; w < numKeyWords; w++) {
+			if (pool[offset + w] != key[w])
+				return false;
+		}
+		for (int i = 0; i < numNumericAtoms; i++) {
+			if (Float.floatToRawIntBits(getNumeric(pool, offset, i))
+					!= Float.floatToRawIntBits(state.getNumeric(i)))
+				return false;
+		}
+		return true;
+	}
+
+	private void writeEntry(int id, State state) {
+
+		long[] pool = chunks[id >>> chunkBits];
+		int offset = (id & chunkMask) * width;
+		System.arraycopy(key, 0, pool, offset, numKeyWords);
+		for (int i = 0; i < numNumericAtoms; i += 2) {
+			long lo = Float.floatToRawIntBits(state.getNumeric(i)) & 0xffffffffL;
+			long hi = i+1 < numNumericAtoms ?
+					Float.floatToRawIntBits(state.getNumeric(i+1)) : 0;
+			pool[offset + numKeyWords + i/2] = lo | (hi << 32);
+		}
+	}
+
+	private float getNumeric(long[] pool, int offset, int i) {
+		long packed = pool[offset + numKeyWords + i/2];
+		return Float.intBitsToFloat((int) (i % 2 == 0 ? packed : packed >>> 32));
+	}
+
+	/**
+	 * Makes room for the state of the provided (new) ID.
+	 */
+	private void growPool(int id) {
+
+		if (id == hashes.length) {
+			hashes = Arrays.copyOf(hashes, (int) Math.min(2L * hashes.length, MAX_SIZE));
+		}
+		int chunk = id >>> chunkBits;
+		if (chunk == chunks.length) {
+			chunks = Arrays.copyOf(chunks, 2 * chunks.length);
+		}
+		int end = ((id & chunkMask) + 1) * width;
+		if (chunks[chunk] == null) {
+			chunks[chunk] = new long[(chunkMask + 1) * width];
+		} else if (end > chunks[chunk].length) {
+			// Only the first chunk starts out smaller than a full chunk
+			chunks[chunk] = Arrays.copyOf(chunks[chunk], 
+					Math.min(2 * chunks[chunk].length, (chunkMask + 1) * width));
+		}
+	}
+
+	private void growIndex() {
+
+		if (index.length == MAX_INDEX_LENGTH) {
+			// Keep the maximum index (filled up to MAX_SIZE)
+			return;
+		}
+		index = new int[index.length * 2];
+		Arrays.fill(index, EMPTY);
+		mask = index.length - 1;
+		// Re-insert all IDs by their memorized hashes
+		for (int id = 0; id < size; id++) {
+			int pos = (int) hashes[id] & mask;
+			while (index[pos] != EMPTY) {
+				pos = (pos + 1) & mask;
+			}
+			index[pos] = id;
+		}
+	}
+
+	private void countProbes(int probeLength) {
+		lookups++;
+		probes += probeLength;
+		if (probeLength > maxProbeLength)
+			maxProbeLength = probeLength;
+	}
+
+	/**
+	 * The 64-bit hash of a state, which is carried (and incrementally
+	 * updated) by the state itself.
+	 */
+	private static long hash(State state) {
+
+		long h = state.getHash();
+		// Spread the bits a little more for the index position
+		return h ^ (h >>> 32);
+	}
+
+	/**
+	 * The amount of states contained in this table.
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * The ratio of occupied cells in the hash index.
+	 */
+	public double getLoadFactor() {
+		return (double) size / index.length;
+	}
+
+	/**
+	 * The average amount of cells inspected per lookup.
+	 */
+	public double getAverageProbeLength() {
+		return lookups == 0 ? 0 : (double) probes / lookups;
+	}
+
+	/**
+	 * The maximum amount of cells inspected by a single lookup.
+	 */
+	public int getMaxProbeLength() {
+		return maxProbeLength;
+	}
+
+	/**
+	 * The approximate amount of memory occupied by this table, in bytes.
+	 */
+	public long getMemoryBytes() {
+		long poolLength = 0;
+		for (long[] chunk : chunks) {
+			poolLength += chunk == null ? 0 : chunk.length;
+		}
+		return 8L * poolLength + 8L * hashes.length + 4L * index.length;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("%d states, load factor %.3f, avg. probe length %.3f, "
+				+ "max. probe length %d, %.1f MB", size, getLoadFactor(),
+				getAverageProbeLength(), maxProbeLength, getMemoryBytes() / 1e6);
+	}
+}
@@ -0,0 +1,237 @@
+package edu.kit.aquaplanning.planning.datastructures;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+import edu.kit.aquaplanning.model.ground.Action;
+import edu.kit.aquaplanning.model.ground.AtomSet;
+import edu.kit.aquaplanning.model.ground.State;
+
+/**
+ * Precompiled decision tree over the simple preconditions of a set of
+ * actions, which yields exactly the actions applicable in a given state.
+ *
+ * Each inner node of the tree tests a single atom and has up to three
+ * children: one for the actions requiring the atom to be true, one for
+ * the actions requiring it to be false, and one for the actions which
+ * do not care about it. The atoms are tested in ascending order of their
+ * IDs along each path. Each action is stored at exactly one node, namely
+ * the node where all of its simple preconditions have been tested, so
+ * that no action is reported twice. Only complex preconditions of
+ * the reached actions (if any) are checked explicitly.
+ *
+ * The tree is stored in flat arrays and traversed iteratively, using
+ * a stack which is allocated once per thread. Hence, a generator can
+ * be shared by multiple threads.
+ */
+public class SuccessorGenerator {
+
+	private static final int NONE = -1;
+
+	// Per tree node: the tested atom (or NONE) and the children
+	private int[] atoms;
+	private int[] trueChildren;
+	private int[] falseChildren;
+	private int[] dontCareChildren;
+	// Per tree node: the range of its actions inside nodeActions
+	private int[] actionsStart;
+	private int[] actionsEnd;
+	private int numNodes;
+
+	private Action[] nodeActions;
+	private boolean relaxed;
+
+	/**
+	 * Reused by each traversal of a thread; cannot overflow 
+	 * as each node is pushed at most once.
+	 */
+	private ThreadLocal<int[]> stacks;
+
+	/**
+	 * Compiles a successor generator for the provided actions.
+	 * @param relaxed if true, negative preconditions are ignored and
+	 * complex preconditions are evaluated in a delete-relaxed sense
+	 */
+	public SuccessorGenerator(Collection<Action> actions, boolean relaxed) {
+
+		this.relaxed = relaxed;
+		int capacity = 64;
+		atoms = new int[capacity];
+		trueChildren = new int[capacity];
+		falseChildren = new int[capacity];
+		dontCareChildren = new int[capacity];
+		actionsStart = new int[capacity];
+		actionsEnd = new int[capacity];
+		build(new ArrayList<>(actions));
+		int stackSize = numNodes+1;
+		stacks = ThreadLocal.withInitial(() -> new int[stackSize]);
+	}
+
+	/**
+	 * Builds the tree breadth-first, such that no recursion
+	 * (of possibly large depth) is necessary.
+	 */
+	private void build(List<Action> actions) {
+
+		// Sorted literals of each action: 2*atom for a positive and
+		// 2*atom+1 for a negative precondition
+		int numActions = actions.size();
+		int[][] literals = new int[numActions][];
+		for (int a = 0; a < numActions; a++) {
+			literals[a] = getLiterals(actions.get(a));
+		}
+		// Amount of literals of each action already tested on its path
+		int[] position = new int[numActions];
+
+		List<Action> orderedActions = new ArrayList<>(numActions);
+		ArrayDeque<int[]> nodeContents = new ArrayDeque<>();
+		int[] all = new int[numActions];
+		for (int a = 0; a < numActions; a++) {
+			all[a] = a;
+		}
+		newNode();
+		nodeContents.add(all);
+
+		for (int node = 0; node < numNodes; node++) {
+			int[] content = nodeContents.poll();
+
+			// Actions whose preconditions are all tested belong here;
+			// find the smallest atom tested next by any other action
+			actionsStart[node] = orderedActions.size();
+			int atom = Integer.MAX_VALUE;
+			for (int a : content) {
+				if (position[a] == literals[a].length) {
+					orderedActions.add(actions.get(a));
+				} else {
+					atom = Math.min(atom, literals[a][position[a]] >> 1);
+				}
+			}
+			actionsEnd[node] = orderedActions.size();
+			if (atom == Integer.MAX_VALUE) {
+				continue;
+			}
+
+			// Partition the remaining actions by their relation to the atom
+			int[] pos = new int[content.length], neg = new int[content.length],
+					dontCare = new int[content.length];
+			int numPos = 0, numNeg = 0, numDontCare = 0;
+			for (int a : content) {
+				if (position[a] == literals[a].length)
+					continue;
+				int literal = literals[a][position[a]];
+				if (literal == 2*atom) {
+					position[a]++;
+					pos[numPos++] = a;
+				} else if (literal == 2*atom+1) {
+					position[a]++;
+					neg[numNeg++] = a;
+				} else {
+					dontCare[numDontCare++] = a;
+				}
+			}
+			// (newNode() may reallocate the arrays: assign afterwards)
+			int child;
+			atoms[node] = atom;
+			if (numPos > 0) {
+				child = newNode();
+				trueChildren[node] = child;
+				nodeContents.add(Arrays.copyOf(pos, numPos));
+			}
+			if (numNeg > 0) {
+				child = newNode();
+				falseChildren[node] = child;
+				nodeContents.add(Arrays.copyOf(neg, numNeg));
+			}
+			if (numDontCare > 0) {
+				child = newNode();
+				dontCareChildren[node] = child;
+				nodeContents.add(Arrays.copyOf(dontCare, numDontCare));
+			}
+		}
+		nodeActions = orderedActions.toArray(new Action[orderedActions.size()]);
+	}
+
+	private int[] getLiterals(Action action) {
+
+		AtomSet pos = action.getPreconditionsPos();
+		AtomSet neg = action.getPreconditionsNeg();
+		int[] literals = new int[pos.numAtoms() + (relaxed ? 0 : neg.numAtoms())];
+		int i = 0;
+		for (int atom = pos.getFirstTrueAtom(); atom >= 0; atom = pos.getNextTrueAtom(atom+1)) {
+			literals[i++] = 2*atom;
+		}
+		if (!relaxed) {
+			for (int atom = neg.getFirstTrueAtom(); atom >= 0; atom = neg.getNextTrueAtom(atom+1)) {
+				literals[i++] = 2*atom+1;
+			}
+		}
+		Arrays.sort(literals);
+		return literals;
+	}
+
+	private int newNode() {
+
+		if (numNodes == atoms.length) {
+			int capacity = 2 * atoms.length;
+			atoms = Arrays.copyOf(atoms, capacity);
+			trueChildren = Arrays.copyOf(trueChildren, capacity);
+			falseChildren = Arrays.copyOf(falseChildren, capacity);
+			dontCareChildren = Arrays.copyOf(dontCareChildren, capacity);
+			actionsStart = Arrays.copyOf(actionsStart, capacity);
+			actionsEnd = Arrays.copyOf(actionsEnd, capacity);
+		}
+		int node = numNodes++;
+		atoms[node] = NONE;
+		trueChildren[node] = NONE;
+		falseChildren[node] = NONE;
+		dontCareChildren[node] = NONE;
+		return node;
+	}
+
+	/**
+	 * Appends all actions applicable in the provided state to the provided
+	 * list (without clearing it beforehand). Each action is added at most
+	 * once, and the order of the actions is the same for equal states.
+	 */
+	public void addApplicableActions(State state, List<Action> result) {
+
+		int[] stack = stacks.get();
+		int size = 0;
+		stack[size++] = 0;
+		while (size > 0) {
+			int node = stack[--size];
+
+			// Report actions (checking complex preconditions, if any)
+			for (int i = actionsStart[node]; i < actionsEnd[node]; i++) {
+				Action action = nodeActions[i];
+				if (action.getComplexPrecondition() == null
+						|| (relaxed ? action.getComplexPrecondition().holdsRelaxed(state)
+								: action.getComplexPrecondition().holds(state))) {
+					result.add(action);
+				}
+			}
+
+			int atom = atoms[node];
+			if (atom == NONE) {
+				continue;
+			}
+			if (dontCareChildren[node] != NONE) {
+				stack[size++] = dontCareChildren[node];
+			}
+			int child = state.getAtomSet().get(atom) ? trueChildren[node] : falseChildren[node];
+			if (child != NONE) {
+				stack[size++] = child;
+			}
+		}
+	}
+
+	/**
+	 * The amount of nodes of the decision tree.
+	 */
+	public int getNumNodes() {
+		return numNodes;
+	}
+}
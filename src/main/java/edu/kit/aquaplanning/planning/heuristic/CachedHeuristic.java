@@ -0,0 +1,49 @@
+package edu.kit.aquaplanning.planning.heuristic;
+
+import edu.kit.aquaplanning.planning.datastructures.SearchNode;
+
+/**
+ * Wraps a heuristic such that the values (and preferred operators)
+ * of previously evaluated states are looked up in a HeuristicCache
+ * instead of being computed again.
+ */
+public class CachedHeuristic extends Heuristic {
+
+	private Heuristic heuristic;
+	private HeuristicCache cache;
+
+	public CachedHeuristic(Heuristic heuristic, HeuristicCache cache) {
+		if (!heuristic.isCacheable()) {
+			throw new IllegalArgumentException("The heuristic "
+					+ heuristic.getClass().getSimpleName() + " cannot be cached.");
+		}
+		this.heuristic = heuristic;
+		this.cache = cache;
+		setComputePreferredOperators(heuristic.computesPreferredOperators());
+	}
+
+	@Override
+	public int value(SearchNode node) {
+
+		HeuristicCache.Entry entry = cache.get(node.state);
+		if (entry != null) {
+			if (computesPreferredOperators()) {
+				node.preferredOperators = entry.preferredOperators;
+			}
+			return entry.value;
+		}
+		int value = heuristic.value(node);
+		cache.put(node.state, value, node.preferredOperators);
+		return value;
+	}
+
+	@Override
+	public void setComputePreferredOperators(boolean computePreferredOperators) {
+		super.setComputePreferredOperators(computePreferredOperators);
+		heuristic.setComputePreferredOperators(computePreferredOperators);
+	}
+
+	public HeuristicCache getCache() {
+		return cache;
+	}
+}
@@ -0,0 +1,486 @@
+package edu.kit.aquaplanning.planning.heuristic;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import edu.kit.aquaplanning.model.ground.Action;
+import edu.kit.aquaplanning.model.ground.Atom;
+import edu.kit.aquaplanning.model.ground.AtomSet;
+import edu.kit.aquaplanning.model.ground.ConditionalEffect;
+import edu.kit.aquaplanning.model.ground.GroundPlanningProblem;
+import edu.kit.aquaplanning.model.ground.State;
+import edu.kit.aquaplanning.model.ground.StateVariables;
+import edu.kit.aquaplanning.planning.datastructures.SearchNode;
+
+/**
+ * Causal graph heuristic (Helmert 2004) over the finite-domain variables
+ * of a problem (see StateVariables).
+ *
+ * For each variable, a domain transition graph (DTG) is precomputed from
+ * the actions' preconditions and effects. The cost of changing a variable
+ * from one value to another is the length of a shortest path in its DTG,
+ * where each transition additionally costs the (recursively computed)
+ * cost of achieving its conditions on other variables, starting from the
+ * values these variables have along the path. The heuristic value is the
+ * sum of these costs over all goal variables.
+ *
+ * Variables which are touched by conditional or complex effects have no
+ * DTG: they are treated as unconstrained, i.e. changing them costs 0.
+ *
+ * Cycles in the causal graph are broken by a fixed order of the variables:
+ * conditions on variables which are not ordered before a variable are
+ * ignored. Hence, the distances from some value of a variable only depend
+ * on the state's values of the variable's ancestors. Each distance table
+ * is computed at most once per evaluation and, if the ancestors' values
+ * fit into a 64-bit key, memoised across evaluations (up to a bounded
+ * amount of tables per variable).
+ */
+public class CausalGraphHeuristic extends Heuristic {
+
+	private static final int INFINITY = Integer.MAX_VALUE;
+	private static final int MAX_CACHED_TABLES = 1 << 14;
+
+	private StateVariables vars;
+	private int numVars;
+	private int[] domainSizes;
+	/**
+	 * Per variable: true iff it is touched by conditional or complex effects.
+	 */
+	private boolean[] unconstrained;
+
+	// Per variable: the transitions of its DTG. A source of -1 means
+	// that the transition can be taken from any value.
+	private int[][] transitionSources;
+	private int[][] transitionTargets;
+	// Per variable and transition: the conditions, as indices into
+	// the variable's predecessors, and the required values
+	private int[][][] conditionPredecessors;
+	private int[][][] conditionValues;
+	/**
+	 * Per variable: the variables ordered before it on which
+	 * its transitions have conditions.
+	 */
+	private int[][] predecessors;
+	/**
+	 * Per variable: its position in the variable order.
+	 */
+	private int[] order;
+
+	/**
+	 * Per variable: its ancestors in the (acyclic) causal graph,
+	 * or null if their values do not fit into a cache key.
+	 */
+	private int[][] ancestors;
+	private List<Map<Long, int[]>> caches;
+
+	private int[] goalVars;
+	private int[] goalValues;
+	private boolean unsolvable;
+
+	// Per evaluation
+	private int[] stateValues;
+	private int[][][] tables;
+	private int[][] tableStamps;
+	private int stamp;
+
+	public CausalGraphHeuristic(GroundPlanningProblem p) {
+
+		vars = p.getStateVariables();
+		numVars = vars.getNumVariables();
+		domainSizes = new int[numVars];
+		for (int v = 0; v < numVars; v++) {
+			domainSizes[v] = vars.getDomainSize(v);
+		}
+
+		// Variables touched by effects which are not simple operators
+		AtomSet touched = new AtomSet(p.getNumAtoms());
+		for (Action action : p.getActions()) {
+			for (ConditionalEffect eff : action.getConditionalEffects()) {
+				touched.applyTrueAtoms(eff.getEffectsPos());
+				touched.applyTrueAtoms(eff.getEffectsNeg());
+			}
+			if (action.getComplexEffect() != null) {
+				touched.applyEffectAtoms(action.getComplexEffect(), false);
+			}
+		}
+		unconstrained = new boolean[numVars];
+		for (int atom = touched.getFirstTrueAtom(); atom >= 0; atom = touched.getNextTrueAtom(atom+1)) {
+			int v = vars.getVariable(atom);
+			if (v >= 0) {
+				unconstrained[v] = true;
+			}
+		}
+
+		// Operators in terms of variables: conditions and effects
+		List<int[]> conditions = new ArrayList<>();
+		List<int[]> effects = new ArrayList<>();
+		for (Action action : p.getActions()) {
+			addOperator(action.getPreconditionsPos(), action.getPreconditionsNeg(),
+					action.getEffectsPos(), action.getEffectsNeg(), conditions, effects);
+		}
+
+		computeVariableOrder(conditions, effects);
+		buildTransitionGraphs(conditions, effects);
+		computeAncestors();
+
+		// Goal values
+		List<Integer> gVars = new ArrayList<>(), gValues = new ArrayList<>();
+		for (Atom atom : p.getGoal().getNecessaryPositiveAtoms()) {
+			int v = vars.getVariable(atom.getId());
+			if (v >= 0) {
+				gVars.add(v);
+				gValues.add(vars.getValue(atom.getId()));
+			} else if (!p.getInitialState().holds(atom)) {
+				unsolvable = true;
+			}
+		}
+		goalVars = gVars.stream().mapToInt(Integer::intValue).toArray();
+		goalValues = gValues.stream().mapToInt(Integer::intValue).toArray();
+
+		stateValues = new int[numVars];
+		tables = new int[numVars][][];
+		tableStamps = new int[numVars][];
+		for (int v = 0; v < numVars; v++) {
+			tables[v] = new int[domainSizes[v]][];
+			tableStamps[v] = new int[domainSizes[v]];
+		}
+	}
+
+	/**
+	 * Adds an operator as pairs (variable, value) of conditions
+	 * and effects, flattened into int arrays.
+	 */
+	private void addOperator(AtomSet pre, AtomSet preNeg, AtomSet add, AtomSet del,
+			List<int[]> conditions, List<int[]> effects) {
+
+		List<Integer> cond = new ArrayList<>(), eff = new ArrayList<>();
+		for (int atom = pre.getFirstTrueAtom(); atom >= 0; atom = pre.getNextTrueAtom(atom+1)) {
+			int v = vars.getVariable(atom);
+			if (v >= 0) {
+				cond.add(v);
+				cond.add(vars.getValue(atom));
+			}
+		}
+		for (int atom = preNeg.getFirstTrueAtom(); atom >= 0; atom = preNeg.getNextTrueAtom(atom+1)) {
+			// Only binary variables have a single value for a negated atom
+			int v = vars.getVariable(atom);
+			if (v >= 0 && domainSizes[v] == 2 && vars.getAtom(v, 0) == -1 && !contains(cond, v)) {
+				cond.add(v);
+				cond.add(0);
+			}
+		}
+		for (int atom = add.getFirstTrueAtom(); atom >= 0; atom = add.getNextTrueAtom(atom+1)) {
+			int v = vars.getVariable(atom);
+			if (v >= 0) {
+				eff.add(v);
+				eff.add(vars.getValue(atom));
+			}
+		}
+		List<int[]> conditionalDeletes = new ArrayList<>();
+		for (int atom = del.getFirstTrueAtom(); atom >= 0; atom = del.getNextTrueAtom(atom+1)) {
+			// Deleting an atom without adding another one of the
+			// same variable leads to the value "none"
+			int v = vars.getVariable(atom);
+			if (v >= 0 && vars.getAtom(v, 0) == -1 && !contains(eff, v)) {
+				if (contains(cond, v)) {
+					eff.add(v);
+					eff.add(0);
+				} else {
+					// Only changes the variable if the atom is true
+					conditionalDeletes.add(new int[] {v, vars.getValue(atom)});
+				}
+			}
+		}
+		int[] condArray = cond.stream().mapToInt(Integer::intValue).toArray();
+		if (!eff.isEmpty()) {
+			conditions.add(condArray);
+			effects.add(eff.stream().mapToInt(Integer::intValue).toArray());
+		}
+		for (int[] delete : conditionalDeletes) {
+			int[] deleteCond = Arrays.copyOf(condArray, condArray.length + 2);
+			deleteCond[condArray.length] = delete[0];
+			deleteCond[condArray.length+1] = delete[1];
+			conditions.add(deleteCond);
+			effects.add(new int[] {delete[0], 0});
+		}
+	}
+
+	private static boolean contains(List<Integer> pairs, int var) {
+		for (int i = 0; i < pairs.size(); i += 2) {
+			if (pairs.get(i) == var)
+				return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Orders the variables such that, as far as possible, the
+	 * variables in conditions come before the affected variables:
+	 * repeatedly, a variable with the fewest remaining incoming
+	 * causal graph arcs is selected.
+	 */
+	private void computeVariableOrder(List<int[]> conditions, List<int[]> effects) {
+
+		int[] inDegree = new int[numVars];
+		List<List<Integer>> successors = new ArrayList<>();
+		for (int v = 0; v < numVars; v++) {
+			successors.add(new ArrayList<>());
+		}
+		Map<Long, Boolean> seen = new HashMap<>();
+		for (int o = 0; o < effects.size(); o++) {
+			int[] cond = conditions.get(o), eff = effects.get(o);
+			for (int e = 0; e < eff.length; e += 2) {
+				for (int c = 0; c < cond.length; c += 2) {
+					int from = cond[c], to = eff[e];
+					if (from != to && seen.put(((long) from << 32) | to, true) == null) {
+						successors.get(from).add(to);
+						inDegree[to]++;
+					}
+				}
+			}
+		}
+		order = new int[numVars];
+		boolean[] done = new boolean[numVars];
+		for (int position = 0; position < numVars; position++) {
+			int best = -1;
+			for (int v = 0; v < numVars; v++) {
+				if (!done[v] && (best < 0 || inDegree[v] < inDegree[best]))
+					best = v;
+			}
+			done[best] = true;
+			order[best] = position;
+			for (int succ : successors.get(best)) {
+				inDegree[succ]--;
+			}
+		}
+	}
+
+	private void buildTransitionGraphs(List<int[]> conditions, List<int[]> effects) {
+
+		List<List<int[]>> transitions = new ArrayList<>(); // {source, target, cond...}
+		List<List<Integer>> preds = new ArrayList<>();
+		for (int v = 0; v < numVars; v++) {
+			transitions.add(new ArrayList<>());
+			preds.add(new ArrayList<>());
+		}
+		for (int o = 0; o < effects.size(); o++) {
+			int[] cond = conditions.get(o), eff = effects.get(o);
+			for (int e = 0; e < eff.length; e += 2) {
+				int v = eff[e];
+				int source = -1;
+				List<Integer> t = new ArrayList<>();
+				for (int c = 0; c < cond.length; c += 2) {
+					if (cond[c] == v) {
+						source = cond[c+1];
+					} else if (order[cond[c]] < order[v]) {
+						t.add(cond[c]);
+						t.add(cond[c+1]);
+						if (!preds.get(v).contains(cond[c]))
+							preds.get(v).add(cond[c]);
+					}
+				}
+				if (source == eff[e+1]) {
+					continue; // no change
+				}
+				int[] transition = new int[2 + t.size()];
+				transition[0] = source;
+				transition[1] = eff[e+1];
+				for (int i = 0; i < t.size(); i++)
+					transition[2+i] = t.get(i);
+				transitions.get(v).add(transition);
+			}
+		}
+
+		transitionSources = new int[numVars][];
+		transitionTargets = new int[numVars][];
+		conditionPredecessors = new int[numVars][][];
+		conditionValues = new int[numVars][][];
+		predecessors = new int[numVars][];
+		for (int v = 0; v < numVars; v++) {
+			List<Integer> p = preds.get(v);
+			predecessors[v] = p.stream().mapToInt(Integer::intValue).toArray();
+			List<int[]> ts = transitions.get(v);
+			transitionSources[v] = new int[ts.size()];
+			transitionTargets[v] = new int[ts.size()];
+			conditionPredecessors[v] = new int[ts.size()][];
+			conditionValues[v] = new int[ts.size()][];
+			for (int i = 0; i < ts.size(); i++) {
+				int[] t = ts.get(i);
+				transitionSources[v][i] = t[0];
+				transitionTargets[v][i] = t[1];
+				int numConds = (t.length - 2) / 2;
+				conditionPredecessors[v][i] = new int[numConds];
+				conditionValues[v][i] = new int[numConds];
+				for (int c = 0; c < numConds; c++) {
+					conditionPredecessors[v][i][c] = p.indexOf(t[2 + 2*c]);
+					conditionValues[v][i][c] = t[3 + 2*c];
+				}
+			}
+		}
+	}
+
+	/**
+	 * Computes the ancestors of each variable, in ascending order,
+	 * and prepares the caches of the variables with small enough keys.
+	 */
+	private void computeAncestors() {
+
+		Integer[] byOrder = new Integer[numVars];
+		for (int v = 0; v < numVars; v++)
+			byOrder[v] = v;
+		Arrays.sort(byOrder, (v1, v2) -> Integer.compare(order[v1], order[v2]));
+
+		boolean[][] isAncestor = new boolean[numVars][];
+		ancestors = new int[numVars][];
+		caches = new ArrayList<>(numVars);
+		for (int v = 0; v < numVars; v++) {
+			caches.add(null);
+		}
+		for (int v : byOrder) {
+			// Predecessors are ordered before v: their ancestors are known
+			boolean[] anc = new boolean[numVars];
+			for (int pred : predecessors[v]) {
+				anc[pred] = true;
+				for (int i = 0; i < numVars; i++)
+					anc[i] |= isAncestor[pred][i];
+			}
+			isAncestor[v] = anc;
+			List<Integer> list = new ArrayList<>();
+			double keySpace = domainSizes[v];
+			for (int i = 0; i < numVars; i++) {
+				if (anc[i]) {
+					list.add(i);
+					keySpace *= domainSizes[i];
+				}
+			}
+			if (keySpace < Math.pow(2, 62)) {
+				ancestors[v] = list.stream().mapToInt(Integer::intValue).toArray();
+				caches.set(v, new HashMap<>());
+			}
+		}
+	}
+
+	@Override
+	public int value(SearchNode node) {
+
+		if (unsolvable) {
+			return INFINITY;
+		}
+		State state = node.state;
+		for (int v = 0; v < numVars; v++) {
+			stateValues[v] = vars.getValue(state, v);
+		}
+		stamp++;
+
+		int h = 0;
+		for (int i = 0; i < goalVars.length; i++) {
+			int cost = getCost(goalVars[i], stateValues[goalVars[i]], goalValues[i]);
+			if (cost == INFINITY) {
+				return INFINITY;
+			}
+			h += cost;
+		}
+		return h;
+	}
+
+	/**
+	 * Returns the cost of changing the provided variable from
+	 * the start to the goal value in the current state.
+	 */
+	private int getCost(int var, int start, int goal) {
+
+		if (start == goal || unconstrained[var]) {
+			return 0;
+		}
+		return getTable(var, start)[goal];
+	}
+
+	private int[] getTable(int var, int start) {
+
+		if (tableStamps[var][start] == stamp) {
+			return tables[var][start];
+		}
+		int[] table = null;
+		Long key = null;
+		Map<Long, int[]> cache = caches.get(var);
+		if (cache != null) {
+			long k = start;
+			for (int anc : ancestors[var]) {
+				k = k * domainSizes[anc] + stateValues[anc];
+			}
+			key = k;
+			table = cache.get(key);
+		}
+		if (table == null) {
+			table = computeTable(var, start);
+			if (cache != null && cache.size() < MAX_CACHED_TABLES) {
+				cache.put(key, table);
+			}
+		}
+		tables[var][start] = table;
+		tableStamps[var][start] = stamp;
+		return table;
+	}
+
+	/**
+	 * Dijkstra search in the DTG of the provided variable, beginning at
+	 * the provided value; the values of the variable's predecessors are
+	 * tracked along the paths (starting with their values in the state).
+	 */
+	private int[] computeTable(int var, int start) {
+
+		int n = domainSizes[var];
+		int[] pred = predecessors[var];
+		int[] dist = new int[n];
+		Arrays.fill(dist, INFINITY);
+		int[][] context = new int[n][];
+		boolean[] done = new boolean[n];
+		dist[start] = 0;
+		context[start] = new int[pred.length];
+		for (int i = 0; i < pred.length; i++) {
+			context[start][i] = stateValues[pred[i]];
+		}
+
+		int[] sources = transitionSources[var];
+		int[] targets = transitionTargets[var];
+		while (true) {
+			// Select closest unfinished value (domains are small)
+			int u = -1;
+			for (int d = 0; d < n; d++) {
+				if (!done[d] && dist[d] != INFINITY && (u < 0 || dist[d] < dist[u]))
+					u = d;
+			}
+			if (u < 0) {
+				break;
+			}
+			done[u] = true;
+
+			for (int t = 0; t < sources.length; t++) {
+				int target = targets[t];
+				if ((sources[t] != u && sources[t] != -1) || done[target]) {
+					continue;
+				}
+				int[] condPreds = conditionPredecessors[var][t];
+				int[] condValues = conditionValues[var][t];
+				long cost = dist[u] + 1;
+				for (int c = 0; c < condPreds.length && cost < INFINITY; c++) {
+					int p = condPreds[c];
+					int condCost = getCost(pred[p], context[u][p], condValues[c]);
+					cost = condCost == INFINITY ? INFINITY : cost + condCost;
+				}
+				if (cost < dist[target]) {
+					dist[target] = (int) cost;
+					int[] ctx = context[u].clone();
+					for (int c = 0; c < condPreds.length; c++) {
+						ctx[condPreds[c]] = condValues[c];
+					}
+					context[target] = ctx;
+				}
+			}
+		}
+		return dist;
+	}
+}
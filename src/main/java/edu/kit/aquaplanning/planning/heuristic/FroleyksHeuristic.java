@@ -14,9 +14,11 @@ import edu.kit.aquaplanning.model.ground.GroundPlanningProblem;
  */
 public class FroleyksHeuristic extends Heuristic {
 	private GroundPlanningProblem groundProblem;
+	private GroundRelaxedPlanningGraph graph;
 
 	public FroleyksHeuristic(GroundPlanningProblem groundProblem) {
 		this.groundProblem = groundProblem;
+		this.graph = new GroundRelaxedPlanningGraph(groundProblem);
 		List<Action> ac = groundProblem.getActions();
 		System.out.println(ac.get(0));
 	}
@@ -33,7 +35,7 @@ public class FroleyksHeuristic extends Heuristic {
 		// Traverse deletion-relaxed planning graph
 		List<State> states = new ArrayList<>();
 		states.add(state);
-		GroundRelaxedPlanningGraph graph = new GroundRelaxedPlanningGraph(groundProblem, state, groundProblem.getActions());
+		graph.reset(state);
 		State g_hat = new State(groundProblem.getGoal().getAtoms());
 		while (graph.hasNextLayer()) {
 			State nextState = graph.computeNextLayer();
@@ -67,6 +69,7 @@ public class FroleyksHeuristic extends Heuristic {
 						g_hat.addAll(action.getPreconditionsPos());
 					}
 				}
+				setPreferredOperators(node, p);
 				return p.getLength();
 			}
 		}
@@ -1,6 +1,9 @@
 package edu.kit.aquaplanning.planning.heuristic;
 
+import java.util.BitSet;
+
 import edu.kit.aquaplanning.Configuration;
+import edu.kit.aquaplanning.model.ground.Action;
 import edu.kit.aquaplanning.model.ground.GroundPlanningProblem;
 import edu.kit.aquaplanning.planning.datastructures.SearchNode;
 
@@ -10,12 +13,80 @@ import edu.kit.aquaplanning.planning.datastructures.SearchNode;
  */
 public abstract class Heuristic {
 	
+	private boolean computePreferredOperators;
+	
 	/**
-	 * Evaluates the heuristic for some search node.
+	 * Evaluates the heuristic for some search node. If preferred operators
+	 * are computed (see setComputePreferredOperators), they are written 
+	 * into the node together with the value.
 	 */
 	public abstract int value(SearchNode node);
 	
+	/**
+	 * Makes the heuristic store the preferred operators ("helpful actions")
+	 * of each evaluated node in SearchNode.preferredOperators, i.e. the IDs
+	 * of actions applicable in the node's state which are considered to 
+	 * lead towards the goal. The field is left null by heuristics which
+	 * do not compute preferred operators.
+	 */
+	public void setComputePreferredOperators(boolean computePreferredOperators) {
+		this.computePreferredOperators = computePreferredOperators;
+	}
+	
+	public boolean computesPreferredOperators() {
+		return computePreferredOperators;
+	}
+	
+	/**
+	 * Sets the preferred operators of the provided node to those actions
+	 * of the provided relaxed plan which are applicable in the node's state,
+	 * if preferred operators are computed.
+	 */
+	protected void setPreferredOperators(SearchNode node, Iterable<Action> relaxedPlan) {
+		
+		if (!computePreferredOperators) {
+			return;
+		}
+		BitSet preferred = new BitSet();
+		for (Action action : relaxedPlan) {
+			if (action.isApplicable(node.state)) {
+				preferred.set(action.getId());
+			}
+		}
+		node.preferredOperators = preferred;
+	}
+	
+	/**
+	 * True iff the value of a node only depends on its state (and not, 
+	 * for instance, on the path to it or on randomness), such that the 
+	 * heuristic can be wrapped into a CachedHeuristic.
+	 */
+	public boolean isCacheable() {
+		return true;
+	}
+	
+	/**
+	 * Creates the heuristic specified by the provided configuration,
+	 * which computes preferred operators if they are configured.
+	 * If a heuristic cache is configured and the heuristic is cacheable,
+	 * it is wrapped into a CachedHeuristic whose cache is shared among 
+	 * all heuristics of the same type on the same problem.
+	 */
 	public static Heuristic getHeuristic(GroundPlanningProblem p, Configuration config) {
+		
+		Heuristic heuristic = createHeuristic(p, config);
+		if (heuristic == null) {
+			return null;
+		}
+		heuristic.setComputePreferredOperators(config.preferredOperators);
+		if (config.heuristicCacheSize > 0 && heuristic.isCacheable()) {
+			HeuristicCache cache = HeuristicCache.getSharedCache(p, config);
+			heuristic = new CachedHeuristic(heuristic, cache);
+		}
+		return heuristic;
+	}
+	
+	private static Heuristic createHeuristic(GroundPlanningProblem p, Configuration config) {
 		switch (config.heuristic) {
 		case relaxedPathLength:
 			return new RelaxedPathLengthHeuristic(p);
@@ -29,6 +100,18 @@ public abstract class Heuristic {
 			return new FroleyksHeuristic(p);
 		case ffWilliams:
 			return new WilliamsHeuristic(p);
+		case hAdd:
+			return new RelaxedExplorationHeuristic(p, RelaxedExplorationHeuristic.Mode.hAdd);
+		case hMax:
+			return new RelaxedExplorationHeuristic(p, RelaxedExplorationHeuristic.Mode.hMax);
+		case hFF:
+			return new RelaxedExplorationHeuristic(p, RelaxedExplorationHeuristic.Mode.hFF);
+		case landmarkCount:
+			return new LandmarkCountHeuristic(p);
+		case patternDatabase:
+			return new PatternDatabaseHeuristic(p, config);
+		case causalGraph:
+			return new CausalGraphHeuristic(p);
 		default:
 			break;
 		}
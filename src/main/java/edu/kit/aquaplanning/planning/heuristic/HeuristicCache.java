@@ -0,0 +1,217 @@
+package edu.kit.aquaplanning.planning.heuristic;
+
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import edu.kit.aquaplanning.Configuration;
+import edu.kit.aquaplanning.model.ground.GroundPlanningProblem;
+import edu.kit.aquaplanning.model.ground.State;
+
+/**
+ * Bounded cache of heuristic values (and preferred operators) by state.
+ *
+ * The slots are hash-addressed and grouped into small buckets: a state
+ * can only reside in the bucket given by its 64-bit hash. When a full
+ * bucket receives a new entry, the entry to evict is chosen by the CLOCK
+ * (second chance) policy, i.e. entries which have been hit since the
+ * last pass of the bucket's clock hand are skipped once.
+ *
+ * The buckets are guarded by a fixed amount of striped locks, so that a
+ * cache can be shared by multiple threads evaluating the same heuristic
+ * (see getSharedCache).
+ */
+public class HeuristicCache {
+
+	private static final int WAYS = 4;
+	private static final int NUM_LOCKS = 64;
+
+	/**
+	 * Caches shared by all heuristics of the same configuration (see 
+	 * getConfigurationKey) on the same problem.
+	 */
+	private static final Map<GroundPlanningProblem, Map<String, HeuristicCache>> SHARED_CACHES
+			= new WeakHashMap<>();
+
+	/**
+	 * An immutable cached evaluation.
+	 */
+	public static class Entry {
+		private final State state;
+		private final long hash;
+		public final int value;
+		/**
+		 * IDs of the preferred operators (or null); must not be modified.
+		 */
+		public final BitSet preferredOperators;
+		private Entry(State state, long hash, int value, BitSet preferredOperators) {
+			this.state = state;
+			this.hash = hash;
+			this.value = value;
+			this.preferredOperators = preferredOperators;
+		}
+	}
+
+	private int requestedCapacity;
+	private Entry[] slots;
+	private boolean[] referenced;
+	private int[] clockHands;
+	private int bucketMask;
+	private Object[] locks;
+
+	private LongAdder hits = new LongAdder();
+	private LongAdder misses = new LongAdder();
+	private LongAdder evictions = new LongAdder();
+
+	/**
+	 * Creates a cache for (approximately, rounded up
+	 * to a power of two) the provided amount of entries.
+	 */
+	public HeuristicCache(int capacity) {
+
+		requestedCapacity = capacity;
+		int numBuckets = Integer.highestOneBit(Math.max(1, (capacity + WAYS - 1) / WAYS) * 2 - 1);
+		bucketMask = numBuckets - 1;
+		slots = new Entry[numBuckets * WAYS];
+		referenced = new boolean[numBuckets * WAYS];
+		clockHands = new int[numBuckets];
+		locks = new Object[NUM_LOCKS];
+		for (int i = 0; i < NUM_LOCKS; i++) {
+			locks[i] = new Object();
+		}
+	}
+
+	/**
+	 * Returns the cache for the heuristic of the provided configuration
+	 * on the provided problem, which is created with the configured 
+	 * capacity on the first call and shared afterwards. Heuristics whose
+	 * values may differ (e.g. due to another heuristic parameter) do not
+	 * share a cache. Throws an IllegalArgumentException if the shared
+	 * cache has been created with another capacity.
+	 */
+	public static HeuristicCache getSharedCache(GroundPlanningProblem p, Configuration config) {
+
+		int capacity = config.heuristicCacheSize;
+		HeuristicCache cache;
+		synchronized (SHARED_CACHES) {
+			cache = SHARED_CACHES.computeIfAbsent(p, problem -> new HashMap<>())
+					.computeIfAbsent(getConfigurationKey(config), key -> new HeuristicCache(capacity));
+		}
+		if (cache.requestedCapacity != capacity) {
+			throw new IllegalArgumentException("The shared heuristic cache has a capacity of " 
+					+ cache.requestedCapacity + " entries and cannot be used with a capacity of " 
+					+ capacity + " entries.");
+		}
+		return cache;
+	}
+
+	/**
+	 * The parts of the provided configuration which the cached
+	 * evaluations depend on: the heuristic with its parameters, and 
+	 * whether preferred operators are computed.
+	 */
+	private static String getConfigurationKey(Configuration config) {
+
+		StringBuilder key = new StringBuilder(config.heuristic.toString());
+		switch (config.heuristic) {
+		case patternDatabase:
+			key.append(" pdbMaxAtoms=").append(config.pdbMaxAtoms);
+			break;
+		case actionInterferenceRelaxation:
+			// Values are bounded by the computational resources of the SAT planner
+			key.append(" satSolverMode=").append(config.satSolverMode)
+					.append(" maxIterations=").append(config.maxIterations)
+					.append(" searchTimeSeconds=").append(config.searchTimeSeconds);
+			break;
+		default:
+			break;
+		}
+		if (config.preferredOperators) {
+			key.append(" preferredOperators");
+		}
+		return key.toString();
+	}
+
+	private int bucketOf(long hash) {
+		return (int) (hash ^ (hash >>> 32)) & bucketMask;
+	}
+
+	/**
+	 * Returns the cached evaluation of the provided state, or null.
+	 */
+	public Entry get(State state) {
+
+		long hash = state.getHash();
+		int bucket = bucketOf(hash);
+		synchronized (locks[bucket & (NUM_LOCKS-1)]) {
+			for (int slot = bucket * WAYS; slot < (bucket+1) * WAYS; slot++) {
+				Entry entry = slots[slot];
+				if (entry != null && entry.hash == hash && entry.state.equals(state)) {
+					referenced[slot] = true;
+					hits.increment();
+					return entry;
+				}
+			}
+		}
+		misses.increment();
+		return null;
+	}
+
+	/**
+	 * Caches the evaluation of the provided state, which is copied
+	 * (such that the provided object may be reused).
+	 */
+	public void put(State state, int value, BitSet preferredOperators) {
+
+		long hash = state.getHash();
+		int bucket = bucketOf(hash);
+		Entry entry = new Entry(new State(state), hash, value, preferredOperators);
+		synchronized (locks[bucket & (NUM_LOCKS-1)]) {
+			int base = bucket * WAYS;
+			// Another thread may have cached the state in the meantime
+			for (int slot = base; slot < base + WAYS; slot++) {
+				if (slots[slot] == null || (slots[slot].hash == hash && slots[slot].state.equals(state))) {
+					slots[slot] = entry;
+					return;
+				}
+			}
+			// Bucket is full: advance the clock hand to an unreferenced entry
+			while (referenced[base + clockHands[bucket]]) {
+				referenced[base + clockHands[bucket]] = false;
+				clockHands[bucket] = (clockHands[bucket] + 1) % WAYS;
+			}
+			int slot = base + clockHands[bucket];
+			slots[slot] = entry;
+			clockHands[bucket] = (clockHands[bucket] + 1) % WAYS;
+			evictions.increment();
+		}
+	}
+
+	public long getHits() {
+		return hits.sum();
+	}
+
+	public long getMisses() {
+		return misses.sum();
+	}
+
+	public long getEvictions() {
+		return evictions.sum();
+	}
+
+	/**
+	 * The amount of slots of this cache.
+	 */
+	public int capacity() {
+		return slots.length;
+	}
+
+	@Override
+	public String toString() {
+		long h = getHits(), m = getMisses();
+		return String.format("%d hits, %d misses (%.1f%% hit rate), %d evictions, %d slots",
+				h, m, h + m > 0 ? 100.0 * h / (h + m) : 0.0, getEvictions(), capacity());
+	}
+}
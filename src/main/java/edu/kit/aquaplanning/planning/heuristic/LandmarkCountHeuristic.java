@@ -0,0 +1,107 @@
+package edu.kit.aquaplanning.planning.heuristic;
+
+import edu.kit.aquaplanning.model.ground.GroundPlanningProblem;
+import edu.kit.aquaplanning.model.ground.State;
+import edu.kit.aquaplanning.planning.datastructures.LandmarkGraph;
+import edu.kit.aquaplanning.planning.datastructures.SearchNode;
+
+/**
+ * Landmark count heuristic: the amount of landmarks which still need
+ * to be achieved on the path to a node, plus the amount of accepted
+ * goal landmarks which do not hold anymore (required again).
+ *
+ * A landmark is accepted by a node if it has been accepted by its parent
+ * or if it holds in the node's state and all of its predecessors have
+ * been accepted by the parent. The accepted landmarks of a node are kept
+ * as a bitset in SearchNode.landmarks; a child initially refers to the
+ * bitset of its parent, which is only copied if the child accepts new
+ * landmarks. The required landmarks are derived from the accepted ones
+ * and the state. So an evaluation takes time linear in the amount of
+ * landmarks and orderings, without any relaxed exploration. The
+ * landmarks are computed only once per problem and shared by all
+ * instances (see GroundPlanningProblem.getLandmarkGraph).
+ */
+public class LandmarkCountHeuristic extends Heuristic {
+
+	private static final long[] NONE_ACCEPTED = new long[0];
+
+	private LandmarkGraph graph;
+	private int[] goalLandmarks;
+	private int numWords;
+
+	public LandmarkCountHeuristic(GroundPlanningProblem p) {
+
+		graph = p.getLandmarkGraph();
+		int numGoals = 0;
+		for (int lm = 0; lm < graph.size(); lm++) {
+			if (graph.isGoal(lm))
+				numGoals++;
+		}
+		goalLandmarks = new int[numGoals];
+		numGoals = 0;
+		for (int lm = 0; lm < graph.size(); lm++) {
+			if (graph.isGoal(lm))
+				goalLandmarks[numGoals++] = lm;
+		}
+		numWords = (graph.size() + 63) / 64;
+	}
+
+	@Override
+	public int value(SearchNode node) {
+
+		if (!graph.isSolvable()) {
+			return Integer.MAX_VALUE;
+		}
+		State state = node.state;
+
+		// Accept new landmarks (parent's set is copied on write)
+		long[] parentAccepted = node.landmarks != null ? node.landmarks : NONE_ACCEPTED;
+		long[] accepted = parentAccepted;
+		for (int lm = 0; lm < graph.size(); lm++) {
+			if (isSet(parentAccepted, lm) || !graph.holds(lm, state)) {
+				continue;
+			}
+			boolean predecessorsAccepted = true;
+			for (int pred : graph.getPredecessors(lm)) {
+				if (!isSet(parentAccepted, pred)) {
+					predecessorsAccepted = false;
+					break;
+				}
+			}
+			if (predecessorsAccepted) {
+				if (accepted == parentAccepted) {
+					accepted = new long[numWords];
+					System.arraycopy(parentAccepted, 0, accepted, 0, parentAccepted.length);
+				}
+				accepted[lm >>> 6] |= 1L << lm;
+			}
+		}
+		node.landmarks = accepted;
+
+		// Count the unaccepted and the required goal landmarks
+		int numAccepted = 0;
+		for (long word : accepted) {
+			numAccepted += Long.bitCount(word);
+		}
+		int h = graph.size() - numAccepted;
+		for (int lm : goalLandmarks) {
+			if (isSet(accepted, lm) && !graph.holds(lm, state)) {
+				h++;
+			}
+		}
+		return h;
+	}
+
+	private static boolean isSet(long[] bits, int index) {
+		int word = index >>> 6;
+		return word < bits.length && (bits[word] & (1L << index)) != 0;
+	}
+
+	/**
+	 * The accepted landmarks depend on the path to a node.
+	 */
+	@Override
+	public boolean isCacheable() {
+		return false;
+	}
+}
@@ -33,4 +33,12 @@ public class ManhattanGoalDistanceHeuristic extends Heuristic {
 		}
 		return 10*(node.depth + unsatisfiedGoals)+rnd.nextInt(10);
 	}
+	
+	/**
+	 * The values are randomized.
+	 */
+	@Override
+	public boolean isCacheable() {
+		return false;
+	}
 }
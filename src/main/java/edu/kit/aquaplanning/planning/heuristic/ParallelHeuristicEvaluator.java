@@ -0,0 +1,140 @@
+package edu.kit.aquaplanning.planning.heuristic;
+
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import edu.kit.aquaplanning.Configuration;
+import edu.kit.aquaplanning.model.ground.GroundPlanningProblem;
+import edu.kit.aquaplanning.planning.datastructures.SearchNode;
+
+/**
+ * Computes the heuristic values of a batch of search nodes (e.g. all
+ * successors of an expanded node) in parallel on a ForkJoinPool.
+ *
+ * Heuristics keep scratch data between evaluations and are not
+ * thread-safe, so each running task borrows an instance of its own
+ * from a pool of idle instances and returns it afterwards. Instances
+ * are created on demand, i.e. only as many as tasks have been running
+ * at the same time. The values are written into the nodes and do not
+ * depend on which thread evaluated a node.
+ */
+public class ParallelHeuristicEvaluator {
+
+	/**
+	 * Amount of nodes below which a batch is not split any further.
+	 */
+	private static final int MIN_CHUNK_SIZE = 2;
+
+	private GroundPlanningProblem problem;
+	private Configuration config;
+	private ForkJoinPool pool;
+	private ConcurrentLinkedQueue<Heuristic> idleHeuristics;
+	private int numHeuristics;
+
+	/**
+	 * Creates an evaluator with the provided amount of threads for
+	 * the heuristic specified by the provided configuration.
+	 * The provided heuristic (which may be null) is used as one of
+	 * the instances.
+	 */
+	public ParallelHeuristicEvaluator(GroundPlanningProblem problem, Configuration config,
+			int numThreads, Heuristic heuristic) {
+
+		this.problem = problem;
+		this.config = config;
+		this.pool = new ForkJoinPool(Math.max(1, numThreads));
+		this.idleHeuristics = new ConcurrentLinkedQueue<>();
+		if (heuristic != null) {
+			idleHeuristics.add(heuristic);
+			numHeuristics++;
+		}
+	}
+
+	/**
+	 * Computes the heuristic value (and, if configured, the preferred
+	 * operators) of each provided node. Blocks until all nodes have
+	 * been evaluated.
+	 */
+	public void evaluate(List<SearchNode> nodes) {
+
+		if (nodes.isEmpty()) {
+			return;
+		}
+		pool.invoke(new EvaluationTask(nodes, 0, nodes.size()));
+	}
+
+	private Heuristic borrowHeuristic() {
+		Heuristic heuristic = idleHeuristics.poll();
+		if (heuristic == null) {
+			heuristic = createHeuristic();
+		}
+		return heuristic;
+	}
+
+	private synchronized Heuristic createHeuristic() {
+		numHeuristics++;
+		return Heuristic.getHeuristic(problem, config);
+	}
+
+	/**
+	 * The amount of threads evaluating nodes.
+	 */
+	public int getParallelism() {
+		return pool.getParallelism();
+	}
+
+	/**
+	 * The amount of heuristic instances created so far.
+	 */
+	public synchronized int getNumHeuristics() {
+		return numHeuristics;
+	}
+
+	/**
+	 * Stops the threads of this evaluator.
+	 */
+	public void shutdown() {
+		pool.shutdown();
+	}
+
+	/**
+	 * Evaluates the nodes in a range of a batch,
+	 * splitting the range in halves while it is large enough.
+	 */
+	private class EvaluationTask extends RecursiveAction {
+
+		private static final long serialVersionUID = 1L;
+
+		private List<SearchNode> nodes;
+		private int from;
+		private int to;
+
+		public EvaluationTask(List<SearchNode> nodes, int from, int to) {
+			this.nodes = nodes;
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		protected void compute() {
+
+			if (to - from > MIN_CHUNK_SIZE) {
+				int middle = (from + to) >>> 1;
+				invokeAll(new EvaluationTask(nodes, from, middle),
+						new EvaluationTask(nodes, middle, to));
+				return;
+			}
+			Heuristic heuristic = borrowHeuristic();
+			try {
+				for (int i = from; i < to; i++) {
+					SearchNode node = nodes.get(i);
+					node.heuristicValue = heuristic.value(node);
+				}
+			} finally {
+				idleHeuristics.add(heuristic);
+			}
+		}
+	}
+}
@@ -0,0 +1,200 @@
+package edu.kit.aquaplanning.planning.heuristic;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+import edu.kit.aquaplanning.Configuration;
+import edu.kit.aquaplanning.model.ground.Action;
+import edu.kit.aquaplanning.model.ground.Atom;
+import edu.kit.aquaplanning.model.ground.AtomSet;
+import edu.kit.aquaplanning.model.ground.ConditionalEffect;
+import edu.kit.aquaplanning.model.ground.GroundPlanningProblem;
+import edu.kit.aquaplanning.planning.datastructures.PatternDatabase;
+import edu.kit.aquaplanning.planning.datastructures.SearchNode;
+import edu.kit.aquaplanning.util.Logger;
+
+/**
+ * Admissible heuristic based on pattern databases (for unit action costs).
+ *
+ * For each goal atom, a pattern is grown from the goal atom by adding
+ * the atoms in the preconditions of actions affecting the pattern, in
+ * breadth-first order, until a maximum amount of atoms is reached.
+ * Only atoms which are changed by some action, but not by conditional
+ * or complex effects, are considered. All pattern databases are computed
+ * up front; an evaluation then consists of one table lookup per pattern.
+ *
+ * The patterns are partitioned greedily into groups of patterns without
+ * common affecting actions, whose distances are added up; the heuristic
+ * value is the maximum over all groups. The databases are read-only, so
+ * they are computed only once per problem and configuration and shared
+ * by all instances (e.g. of the threads of a parallel search).
+ */
+public class PatternDatabaseHeuristic extends Heuristic {
+
+	/**
+	 * Groups of pattern databases by problem and by the configured
+	 * pattern size and storage.
+	 */
+	private static final Map<GroundPlanningProblem, Map<String, PatternDatabase[][]>> SHARED_GROUPS 
+			= new WeakHashMap<>();
+
+	private PatternDatabase[][] groups;
+
+	public PatternDatabaseHeuristic(GroundPlanningProblem p, Configuration config) {
+
+		String key = "pdbMaxAtoms=" + config.pdbMaxAtoms + (config.pdbOffHeap ? " offHeap" : "");
+		synchronized (SHARED_GROUPS) {
+			groups = SHARED_GROUPS.computeIfAbsent(p, problem -> new HashMap<>())
+					.computeIfAbsent(key, k -> computeGroups(p, config));
+		}
+	}
+
+	/**
+	 * Grows the patterns, computes their databases and groups them.
+	 */
+	private static PatternDatabase[][] computeGroups(GroundPlanningProblem p, Configuration config) {
+
+		int numAtoms = p.getNumAtoms();
+		List<Action> actions = p.getActions();
+
+		// Atoms which may be part of a pattern
+		BitSet unsafe = new BitSet(numAtoms);
+		BitSet changed = new BitSet(numAtoms);
+		for (Action action : actions) {
+			addAll(action.getEffectsPos(), changed);
+			addAll(action.getEffectsNeg(), changed);
+			for (ConditionalEffect eff : action.getConditionalEffects()) {
+				addAll(eff.getEffectsPos(), unsafe);
+				addAll(eff.getEffectsNeg(), unsafe);
+			}
+			if (action.getComplexEffect() != null) {
+				AtomSet complexEffects = new AtomSet(numAtoms);
+				complexEffects.applyEffectAtoms(action.getComplexEffect(), false);
+				addAll(complexEffects, unsafe);
+			}
+		}
+		BitSet candidates = (BitSet) changed.clone();
+		candidates.andNot(unsafe);
+
+		// Actions changing each atom
+		List<List<Action>> changers = new ArrayList<>(numAtoms);
+		for (int atom = 0; atom < numAtoms; atom++) {
+			changers.add(new ArrayList<>());
+		}
+		for (Action action : actions) {
+			for (AtomSet eff : Arrays.asList(action.getEffectsPos(), action.getEffectsNeg())) {
+				for (int atom = eff.getFirstTrueAtom(); atom >= 0; atom = eff.getNextTrueAtom(atom+1)) {
+					changers.get(atom).add(action);
+				}
+			}
+		}
+
+		AtomSet goalAtoms = new AtomSet(numAtoms);
+		for (Atom atom : p.getGoal().getNecessaryPositiveAtoms()) {
+			goalAtoms.set(atom.getId());
+		}
+
+		// Grow one pattern per goal atom
+		List<BitSet> patterns = new ArrayList<>();
+		int maxAtoms = Math.min(config.pdbMaxAtoms, 30);
+		for (int goal = goalAtoms.getFirstTrueAtom(); goal >= 0; goal = goalAtoms.getNextTrueAtom(goal+1)) {
+			if (!candidates.get(goal)) {
+				continue;
+			}
+			BitSet pattern = new BitSet(numAtoms);
+			ArrayDeque<Integer> queue = new ArrayDeque<>();
+			pattern.set(goal);
+			queue.add(goal);
+			while (!queue.isEmpty() && pattern.cardinality() < maxAtoms) {
+				int atom = queue.poll();
+				for (Action action : changers.get(atom)) {
+					for (AtomSet pre : Arrays.asList(action.getPreconditionsPos(), action.getPreconditionsNeg())) {
+						for (int p2 = pre.getFirstTrueAtom(); p2 >= 0 && pattern.cardinality() < maxAtoms;
+								p2 = pre.getNextTrueAtom(p2+1)) {
+							if (candidates.get(p2) && !pattern.get(p2)) {
+								pattern.set(p2);
+								queue.add(p2);
+							}
+						}
+					}
+				}
+			}
+			if (!isSubsumed(pattern, patterns)) {
+				patterns.removeIf(other -> isSubset(other, pattern));
+				patterns.add(pattern);
+			}
+		}
+
+		// Compute the databases and group them by additivity
+		List<List<PatternDatabase>> groupList = new ArrayList<>();
+		List<BitSet> groupActions = new ArrayList<>();
+		long tableBytes = 0;
+		for (BitSet pattern : patterns) {
+			int[] atoms = pattern.stream().toArray();
+			PatternDatabase pdb = new PatternDatabase(atoms, actions, goalAtoms, config.pdbOffHeap);
+			tableBytes += pdb.getTableBytes();
+			int g = 0;
+			while (g < groupList.size() && groupActions.get(g).intersects(pdb.getAffectingActions())) {
+				g++;
+			}
+			if (g == groupList.size()) {
+				groupList.add(new ArrayList<>());
+				groupActions.add(new BitSet(actions.size()));
+			}
+			groupList.get(g).add(pdb);
+			groupActions.get(g).or(pdb.getAffectingActions());
+		}
+		PatternDatabase[][] groups = new PatternDatabase[groupList.size()][];
+		for (int g = 0; g < groups.length; g++) {
+			groups[g] = groupList.get(g).toArray(new PatternDatabase[0]);
+		}
+		Logger.log(Logger.INFO_V, "Pattern databases: " + patterns.size() + " patterns in "
+				+ groups.length + " additive groups, " + tableBytes + " bytes"
+				+ (config.pdbOffHeap ? " off-heap" : ""));
+		return groups;
+	}
+
+	private static void addAll(AtomSet atoms, BitSet target) {
+		for (int atom = atoms.getFirstTrueAtom(); atom >= 0; atom = atoms.getNextTrueAtom(atom+1)) {
+			target.set(atom);
+		}
+	}
+
+	private static boolean isSubset(BitSet a, BitSet b) {
+		BitSet rest = (BitSet) a.clone();
+		rest.andNot(b);
+		return rest.isEmpty();
+	}
+
+	private static boolean isSubsumed(BitSet pattern, List<BitSet> patterns) {
+		for (BitSet other : patterns) {
+			if (isSubset(pattern, other))
+				return true;
+		}
+		return false;
+	}
+
+	@Override
+	public int value(SearchNode node) {
+
+		int h = 0;
+		for (PatternDatabase[] group : groups) {
+			int sum = 0;
+			for (PatternDatabase pdb : group) {
+				int dist = pdb.getDistance(node.state);
+				if (dist == Integer.MAX_VALUE) {
+					return Integer.MAX_VALUE;
+				}
+				sum += dist;
+			}
+			h = Math.max(h, sum);
+		}
+		return h;
+	}
+}
@@ -0,0 +1,325 @@
+package edu.kit.aquaplanning.planning.heuristic;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import edu.kit.aquaplanning.model.ground.Action;
+import edu.kit.aquaplanning.model.ground.Atom;
+import edu.kit.aquaplanning.model.ground.AtomSet;
+import edu.kit.aquaplanning.model.ground.ConditionalEffect;
+import edu.kit.aquaplanning.model.ground.GroundPlanningProblem;
+import edu.kit.aquaplanning.model.ground.State;
+import edu.kit.aquaplanning.planning.datastructures.SearchNode;
+
+/**
+ * Family of delete-relaxation heuristics (h_add, h_max and h_FF) which
+ * share a Dijkstra-like exploration of the relaxed problem.
+ *
+ * At construction time, each action is split into unary operators
+ * (one per positive effect) and an incidence structure from atoms to the
+ * operators having them as a precondition is compiled into flat arrays.
+ * During an evaluation, each operator counts its unsatisfied preconditions;
+ * as soon as the counter reaches zero, the operator's effect is reached
+ * with the sum (h_add) or maximum (h_max) of the precondition costs plus
+ * one. Hence, an evaluation takes time linear in the total precondition
+ * size (times a logarithmic factor for the priority queue), and all
+ * buffers are reused across evaluations.
+ *
+ * h_FF extracts a relaxed plan from the best supporters found by the
+ * h_add exploration, counting its distinct actions, and reports the
+ * actions of the relaxed plan applicable in the state as preferred
+ * operators.
+ *
+ * Negative, numeric and other complex preconditions are ignored,
+ * and complex effects are over-approximated by all of their positive
+ * atoms; so a node is only reported as a dead end (Integer.MAX_VALUE)
+ * if it is a dead end indeed.
+ */
+public class RelaxedExplorationHeuristic extends Heuristic {
+
+	public enum Mode {
+		hAdd, hMax, hFF;
+	}
+
+	private static final int INFINITY = Integer.MAX_VALUE;
+
+	private Mode mode;
+	private List<Action> actions;
+
+	// Unary operators
+	private int numOperators;
+	private int[] opAction;
+	private int[] opEffect;
+	private int[] opNumPreconditions;
+	private int[] opPreconditionsStart;
+	private int[] opPreconditions;
+	private int[] noPreconditionOps;
+
+	// Per atom: the operators having it as a precondition
+	private int[] atomOpsStart;
+	private int[] atomOps;
+
+	private int[] goalAtoms;
+	private boolean[] isGoal;
+
+	// Scratch buffers, reused by each evaluation
+	private int[] unsatisfied;
+	private int[] opCost;
+	private int[] atomCost;
+	private int[] supporter;
+	private long[] heap;
+	private int heapSize;
+	// Markers for the relaxed plan extraction, valid iff equal to epoch
+	private int[] atomMarks;
+	private int[] actionMarks;
+	private int epoch;
+	private int[] openAtoms;
+
+	public RelaxedExplorationHeuristic(GroundPlanningProblem p, Mode mode) {
+
+		this.mode = mode;
+		this.actions = p.getActions();
+		int numAtoms = p.getNumAtoms();
+
+		// Split actions into unary operators
+		List<int[]> preconditions = new ArrayList<>();
+		List<Integer> effects = new ArrayList<>();
+		List<Integer> owners = new ArrayList<>();
+		for (int a = 0; a < actions.size(); a++) {
+			Action action = actions.get(a);
+			AtomSet pre = action.getPreconditionsPos();
+			addOperators(a, pre, action.getEffectsPos(), preconditions, effects, owners);
+			for (ConditionalEffect eff : action.getConditionalEffects()) {
+				AtomSet condPre = new AtomSet(numAtoms);
+				condPre.applyTrueAtoms(pre);
+				condPre.applyTrueAtoms(eff.getConditionsPos());
+				addOperators(a, condPre, eff.getEffectsPos(), preconditions, effects, owners);
+			}
+			if (action.getComplexEffect() != null) {
+				AtomSet complexEffects = new AtomSet(numAtoms);
+				complexEffects.applyEffectAtoms(action.getComplexEffect(), true);
+				addOperators(a, pre, complexEffects, preconditions, effects, owners);
+			}
+		}
+
+		// Compile operators into flat arrays
+		numOperators = effects.size();
+		opAction = new int[numOperators];
+		opEffect = new int[numOperators];
+		opNumPreconditions = new int[numOperators];
+		opPreconditionsStart = new int[numOperators+1];
+		int[] numAtomOps = new int[numAtoms];
+		int numNoPre = 0;
+		for (int op = 0; op < numOperators; op++) {
+			int[] pre = preconditions.get(op);
+			opAction[op] = owners.get(op);
+			opEffect[op] = effects.get(op);
+			opNumPreconditions[op] = pre.length;
+			opPreconditionsStart[op+1] = opPreconditionsStart[op] + pre.length;
+			for (int atom : pre)
+				numAtomOps[atom]++;
+			if (pre.length == 0)
+				numNoPre++;
+		}
+		opPreconditions = new int[opPreconditionsStart[numOperators]];
+		noPreconditionOps = new int[numNoPre];
+		atomOpsStart = new int[numAtoms+1];
+		for (int atom = 0; atom < numAtoms; atom++) {
+			atomOpsStart[atom+1] = atomOpsStart[atom] + numAtomOps[atom];
+		}
+		atomOps = new int[atomOpsStart[numAtoms]];
+		Arrays.fill(numAtomOps, 0);
+		numNoPre = 0;
+		for (int op = 0; op < numOperators; op++) {
+			int[] pre = preconditions.get(op);
+			System.arraycopy(pre, 0, opPreconditions, opPreconditionsStart[op], pre.length);
+			for (int atom : pre)
+				atomOps[atomOpsStart[atom] + numAtomOps[atom]++] = op;
+			if (pre.length == 0)
+				noPreconditionOps[numNoPre++] = op;
+		}
+
+		// Goal atoms (for complex goals: the atoms of its conjunctive part)
+		AtomSet goal = new AtomSet(numAtoms);
+		for (Atom atom : p.getGoal().getNecessaryPositiveAtoms())
+			goal.set(atom.getId());
+		goalAtoms = goal.toArray();
+		isGoal = new boolean[numAtoms];
+		for (int atom : goalAtoms)
+			isGoal[atom] = true;
+
+		unsatisfied = new int[numOperators];
+		opCost = new int[numOperators];
+		atomCost = new int[numAtoms];
+		supporter = new int[numAtoms];
+		heap = new long[Math.max(16, numAtoms)];
+		atomMarks = new int[numAtoms];
+		actionMarks = new int[actions.size()];
+		openAtoms = new int[numAtoms];
+	}
+
+	private static void addOperators(int action, AtomSet pre, AtomSet eff, List<int[]> preconditions,
+			List<Integer> effects, List<Integer> owners) {
+
+		int[] preArray = pre.toArray();
+		for (int atom = eff.getFirstTrueAtom(); atom >= 0; atom = eff.getNextTrueAtom(atom+1)) {
+			if (pre.get(atom))
+				continue; // effect is already a precondition
+			preconditions.add(preArray);
+			effects.add(atom);
+			owners.add(action);
+		}
+	}
+
+	@Override
+	public int value(SearchNode node) {
+
+		State state = node.state;
+		explore(state);
+
+		int h = 0;
+		for (int goal : goalAtoms) {
+			if (atomCost[goal] == INFINITY) {
+				return INFINITY;
+			}
+			h = (mode == Mode.hMax) ? Math.max(h, atomCost[goal]) : h + atomCost[goal];
+		}
+		if (mode == Mode.hFF) {
+			h = extractRelaxedPlan(node);
+		}
+		return h;
+	}
+
+	/**
+	 * Computes the relaxed costs of all atoms (at least of all
+	 * goal atoms) reachable from the provided state.
+	 */
+	private void explore(State state) {
+
+		Arrays.fill(atomCost, INFINITY);
+		System.arraycopy(opNumPreconditions, 0, unsatisfied, 0, numOperators);
+		Arrays.fill(opCost, 0);
+		heapSize = 0;
+
+		AtomSet atoms = state.getAtomSet();
+		for (int atom = atoms.getFirstTrueAtom(); atom >= 0 && atom < atomCost.length;
+				atom = atoms.getNextTrueAtom(atom+1)) {
+			atomCost[atom] = 0;
+			supporter[atom] = -1;
+			push(0, atom);
+		}
+		for (int op : noPreconditionOps) {
+			reach(op, 1);
+		}
+
+		// Costs are final as soon as an atom is popped:
+		// stop when all goal atoms have been popped
+		int remainingGoals = goalAtoms.length;
+		while (heapSize > 0 && remainingGoals > 0) {
+			long top = pop();
+			int cost = (int) (top >>> 32);
+			int atom = (int) top;
+			if (cost > atomCost[atom]) {
+				continue; // outdated entry
+			}
+			if (isGoal[atom]) {
+				remainingGoals--;
+			}
+			for (int i = atomOpsStart[atom]; i < atomOpsStart[atom+1]; i++) {
+				int op = atomOps[i];
+				opCost[op] = (mode == Mode.hMax) ? Math.max(opCost[op], cost) : opCost[op] + cost;
+				if (--unsatisfied[op] == 0) {
+					reach(op, opCost[op] + 1);
+				}
+			}
+		}
+	}
+
+	private void reach(int op, int cost) {
+
+		int atom = opEffect[op];
+		if (cost < atomCost[atom]) {
+			atomCost[atom] = cost;
+			supporter[atom] = op;
+			push(cost, atom);
+		}
+	}
+
+	/**
+	 * Extracts a relaxed plan by tracing back the best supporters
+	 * of the goal atoms, returning the amount of distinct actions.
+	 */
+	private int extractRelaxedPlan(SearchNode node) {
+
+		epoch++;
+		List<Action> relaxedPlan = new ArrayList<>();
+		int numOpen = 0;
+		for (int goal : goalAtoms) {
+			if (atomMarks[goal] != epoch) {
+				atomMarks[goal] = epoch;
+				openAtoms[numOpen++] = goal;
+			}
+		}
+		while (numOpen > 0) {
+			int atom = openAtoms[--numOpen];
+			int op = supporter[atom];
+			if (atomCost[atom] == 0 || op < 0) {
+				continue; // holds in the state
+			}
+			int action = opAction[op];
+			if (actionMarks[action] != epoch) {
+				actionMarks[action] = epoch;
+				relaxedPlan.add(actions.get(action));
+			}
+			for (int i = opPreconditionsStart[op]; i < opPreconditionsStart[op+1]; i++) {
+				int pre = opPreconditions[i];
+				if (atomMarks[pre] != epoch) {
+					atomMarks[pre] = epoch;
+					openAtoms[numOpen++] = pre;
+				}
+			}
+		}
+		setPreferredOperators(node, relaxedPlan);
+		return relaxedPlan.size();
+	}
+
+	// Binary min-heap of (cost << 32 | atom) entries
+
+	private void push(int cost, int atom) {
+
+		if (heapSize == heap.length) {
+			heap = Arrays.copyOf(heap, 2 * heap.length);
+		}
+		long entry = ((long) cost << 32) | atom;
+		int i = heapSize++;
+		while (i > 0) {
+			int parent = (i - 1) / 2;
+			if (heap[parent] <= entry)
+				break;
+			heap[i] = heap[parent];
+			i = parent;
+		}
+		heap[i] = entry;
+	}
+
+	private long pop() {
+
+		long top = heap[0];
+		long last = heap[--heapSize];
+		int i = 0;
+		while (true) {
+			int child = 2*i + 1;
+			if (child >= heapSize)
+				break;
+			if (child+1 < heapSize && heap[child+1] < heap[child])
+				child++;
+			if (last <= heap[child])
+				break;
+			heap[i] = heap[child];
+			i = child;
+		}
+		heap[i] = last;
+		return top;
+	}
+}
@@ -17,10 +17,12 @@ import edu.kit.aquaplanning.planning.datastructures.SearchNode;
 public class RelaxedPathLengthHeuristic extends Heuristic {
 
 	private GroundPlanningProblem problem;
+	private GroundRelaxedPlanningGraph graph;
 	
 	public RelaxedPathLengthHeuristic(GroundPlanningProblem p) {
 		super();
 		this.problem = p;
+		this.graph = new GroundRelaxedPlanningGraph(p);
 	}
 	
 	@Override
@@ -34,7 +36,7 @@ public class RelaxedPathLengthHeuristic extends Heuristic {
 		}
 		
 		// Traverse deletion-relaxed planning graph
-		GroundRelaxedPlanningGraph graph = new GroundRelaxedPlanningGraph(problem, state, problem.getActions());
+		graph.reset(state);
 		int depth = 1; 
 		while (graph.hasNextLayer()) {
 			State nextState = graph.computeNextLayer();
@@ -20,9 +20,11 @@ import edu.kit.aquaplanning.planning.datastructures.SearchNode;
 public class TrautmannsHeuristic extends Heuristic {
 
 	private GroundPlanningProblem problem;
+	private GroundRelaxedPlanningGraph graph;
 	
 	public TrautmannsHeuristic(GroundPlanningProblem groundProblem) {
 		this.problem = groundProblem;
+		this.graph = new GroundRelaxedPlanningGraph(groundProblem);
 	}
 	
 	@Override
@@ -35,7 +37,7 @@ public class TrautmannsHeuristic extends Heuristic {
 		}
 		
 		// Traverse deletion-relaxed planning graph and collect states and applicable actions
-		GroundRelaxedPlanningGraph graph = new GroundRelaxedPlanningGraph(problem, state, problem.getActions());
+		graph.reset(state);
 		List<State> states = new LinkedList<State>();
 		List<List<Action>> actions = new LinkedList<List<Action>>();
 		while (graph.hasNextLayer()) {			
@@ -66,6 +68,7 @@ public class TrautmannsHeuristic extends Heuristic {
 		Iterator<State> itStates = states.iterator();
 		Iterator<List<Action>> itActions = actions.iterator();
 		int chosenActions = 0;
+		List<Action> relaxedPlan = new LinkedList<>();
 		while(itStates.hasNext()) {
 			state = itStates.next();
 			List<Action> localActions = itActions.next();
@@ -118,9 +121,11 @@ public class TrautmannsHeuristic extends Heuristic {
 						goal.add(atom);
 					}
 				}
+				relaxedPlan.add(a);
 				chosenActions++;
 			}
 		}
+		setPreferredOperators(node, relaxedPlan);
 		return chosenActions;
 	}
 	
@@ -17,6 +17,7 @@ import edu.kit.aquaplanning.model.ground.AtomSet;
 public class WilliamsHeuristic extends Heuristic {
 
     private GroundPlanningProblem problem;
+    private GroundRelaxedPlanningGraph graph;
 
     /**
      * This class manages applicable actions.
@@ -69,6 +70,7 @@ public class WilliamsHeuristic extends Heuristic {
      */
     public WilliamsHeuristic(GroundPlanningProblem groundProblem) {
         this.problem = groundProblem;
+        this.graph = new GroundRelaxedPlanningGraph(groundProblem);
     }
 
     /**
@@ -86,7 +88,7 @@ public class WilliamsHeuristic extends Heuristic {
         }
 
         // Traverse deletion-relaxed planning graph
-        GroundRelaxedPlanningGraph graph = new GroundRelaxedPlanningGraph(problem, state, problem.getActions());
+        graph.reset(state);
         Deque<State> states = new ArrayDeque<State>();
         states.addFirst(state);
         while (graph.hasNextLayer()) {
@@ -98,6 +100,7 @@ public class WilliamsHeuristic extends Heuristic {
             // Goal reached?
         }
         int planLength = 0;
+        List<Action> relaxedPlan = new ArrayList<>();
         AtomSet goals = new AtomSet(problem.getGoal().getAtoms(), true);
         while (!states.isEmpty()) {
             State currentState = states.removeFirst();
@@ -130,6 +133,7 @@ public class WilliamsHeuristic extends Heuristic {
                 }
                 preconditions.applyTrueAtoms(apply.getAction().getPreconditionsPos());
                 effects.applyTrueAtoms(apply.getAction().getEffectsPos());
+                relaxedPlan.add(apply.getAction());
                 possibleActions.remove(apply);
                 for (ApplicableAction pa : possibleActions) {
                     pa.removeEffects(apply.getAction().getEffectsPos());
@@ -139,6 +143,7 @@ public class WilliamsHeuristic extends Heuristic {
             goals.applyTrueAtomsAsFalse(effects);
             goals.applyTrueAtoms(preconditions);
         }
+        setPreferredOperators(node, relaxedPlan);
         return planLength;
     }
 }
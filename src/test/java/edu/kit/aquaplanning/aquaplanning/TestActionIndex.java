@@ -0,0 +1,130 @@
+package edu.kit.aquaplanning.aquaplanning;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+
+import edu.kit.aquaplanning.Configuration;
+import edu.kit.aquaplanning.grounding.PlanningGraphGrounder;
+import edu.kit.aquaplanning.model.ground.Action;
+import edu.kit.aquaplanning.model.ground.GroundPlanningProblem;
+import edu.kit.aquaplanning.model.ground.State;
+import edu.kit.aquaplanning.model.lifted.PlanningProblem;
+import edu.kit.aquaplanning.parsing.ProblemParser;
+import edu.kit.aquaplanning.planning.datastructures.ActionIndex;
+import edu.kit.aquaplanning.planning.datastructures.IncrementalActionIndex;
+import junit.framework.TestCase;
+
+public class TestActionIndex extends TestCase {
+
+	/**
+	 * Domains with simple, negative (nurikabe, openstacks, adl) and
+	 * complex (numeric RPG, derived predicates) preconditions.
+	 */
+	private static final String[][] PROBLEMS = {
+			{"testfiles/gripper/domain.pddl", "testfiles/gripper/p01.pddl"},
+			{"testfiles/nurikabe/domain.pddl", "testfiles/nurikabe/p01.pddl"},
+			{"testfiles/openstacks/domain.pddl", "testfiles/openstacks/p01.pddl"},
+			{"testfiles/adl/domain2.pddl", "testfiles/adl/p2.pddl"},
+			{"testfiles/RPG-with-numeric-fluents/domain.pddl",
+				"testfiles/RPG-with-numeric-fluents/p01.pddl"},
+			{"testfiles/derivedPredicates/domain1.pddl", "testfiles/derivedPredicates/p1.pddl"}
+	};
+
+	public void testSuccessorGenerator() throws FileNotFoundException, IOException {
+
+		for (String[] files : PROBLEMS) {
+			GroundPlanningProblem gpp = ground(files);
+			ActionIndex index = new ActionIndex(gpp);
+			ActionIndex relaxedIndex = new ActionIndex(gpp, true);
+			List<Action> result = new ArrayList<>();
+			for (State state : randomWalks(gpp, new Random(1))) {
+				index.getApplicableActions(state, result);
+				assertApplicableActions(gpp, state, false, result);
+				// Same order for equal states
+				List<Action> again = new ArrayList<>();
+				index.getApplicableActions(new State(state), again);
+				assertEquals(result, again);
+				relaxedIndex.getApplicableActions(state, result);
+				assertApplicableActions(gpp, state, true, result);
+			}
+		}
+	}
+
+	public void testIncrementalActionIndex() throws FileNotFoundException, IOException {
+
+		for (String[] files : PROBLEMS) {
+			GroundPlanningProblem gpp = ground(files);
+			Random random = new Random(1);
+			List<State> states = randomWalks(gpp, random);
+			IncrementalActionIndex index = new IncrementalActionIndex(gpp);
+			List<Action> result = new ArrayList<>();
+			// States along the walks, i.e. mostly adjacent ones
+			for (State state : states) {
+				index.getApplicableActions(state, result);
+				assertApplicableActions(gpp, state, false, result);
+			}
+			// Jumps between arbitrary states of the walks
+			for (int i = 0; i < 200; i++) {
+				State state = states.get(random.nextInt(states.size()));
+				index.getApplicableActions(state, result);
+				assertApplicableActions(gpp, state, false, result);
+			}
+		}
+	}
+
+	/**
+	 * Asserts that the provided actions are exactly the actions of the
+	 * problem which are applicable in the provided state, without duplicates.
+	 */
+	private static void assertApplicableActions(GroundPlanningProblem gpp, State state,
+			boolean relaxed, List<Action> actions) {
+
+		List<Action> expected = new ArrayList<>();
+		for (Action action : gpp.getActions()) {
+			if (relaxed ? action.isApplicableRelaxed(state) : action.isApplicable(state)) {
+				expected.add(action);
+			}
+		}
+		assertEquals("duplicate actions", actions.size(), new HashSet<>(actions).size());
+		assertEquals(new HashSet<>(expected), new HashSet<>(actions));
+	}
+
+	/**
+	 * Returns the states of random walks from the initial state,
+	 * in the order in which they are visited.
+	 */
+	private static List<State> randomWalks(GroundPlanningProblem gpp, Random random) {
+
+		List<State> states = new ArrayList<>();
+		List<Action> applicable = new ArrayList<>();
+		for (int walk = 0; walk < 10; walk++) {
+			State state = gpp.getInitialState();
+			states.add(state);
+			for (int step = 0; step < 30; step++) {
+				applicable.clear();
+				for (Action action : gpp.getActions()) {
+					if (action.isApplicable(state)) {
+						applicable.add(action);
+					}
+				}
+				if (applicable.isEmpty()) {
+					break;
+				}
+				state = applicable.get(random.nextInt(applicable.size())).apply(state);
+				states.add(state);
+			}
+		}
+		return states;
+	}
+
+	private static GroundPlanningProblem ground(String[] files)
+			throws FileNotFoundException, IOException {
+
+		PlanningProblem pp = new ProblemParser().parse(files[0], files[1]);
+		return new PlanningGraphGrounder(new Configuration()).ground(pp);
+	}
+}
@@ -0,0 +1,85 @@
+package edu.kit.aquaplanning.aquaplanning;
+
+import java.util.Collections;
+import java.util.PriorityQueue;
+import java.util.Random;
+
+import edu.kit.aquaplanning.planning.datastructures.BoundedQueue;
+import edu.kit.aquaplanning.planning.datastructures.SearchNode;
+import junit.framework.TestCase;
+
+public class TestBoundedQueue extends TestCase {
+
+	public void testKeepsBestNodes() {
+
+		// The kept priorities must be the lowest ones offered (and not polled)
+		Random random = new Random(1);
+		int capacity = 50;
+		BoundedQueue queue = new BoundedQueue(n -> n.heuristicValue, capacity);
+		PriorityQueue<Integer> reference = new PriorityQueue<>(Collections.reverseOrder());
+		long numEvictions = 0;
+		for (int i = 0; i < 10000; i++) {
+			if (random.nextInt(4) > 0 || queue.isEmpty()) {
+				int h = random.nextInt(200);
+				boolean full = reference.size() == capacity;
+				boolean better = !full || h < reference.peek();
+				assertEquals(better, queue.offer(newNode(h)));
+				reference.add(h);
+				if (full) {
+					numEvictions++;
+					reference.poll();
+				}
+			} else {
+				Integer best = Collections.min(reference);
+				reference.remove(best);
+				assertEquals((int) best, queue.peek().heuristicValue);
+				assertEquals((int) best, queue.poll().heuristicValue);
+			}
+			assertEquals(reference.size(), queue.size());
+			assertTrue(queue.size() <= capacity);
+		}
+		assertEquals(numEvictions, queue.getNumEvictions());
+
+		// Polled in ascending order of priority
+		int last = Integer.MIN_VALUE;
+		while (!reference.isEmpty()) {
+			int h = queue.poll().heuristicValue;
+			assertTrue(h >= last);
+			last = h;
+			assertTrue(reference.remove(h));
+		}
+		assertNull(queue.poll());
+	}
+
+	public void testTieBreaking() {
+
+		BoundedQueue queue = new BoundedQueue(n -> n.heuristicValue, 3);
+		SearchNode first = newNode(1), second = newNode(1), third = newNode(1);
+		assertTrue(queue.add(first));
+		assertTrue(queue.add(second));
+		assertTrue(queue.add(third));
+		// Equally bad nodes are rejected; a better node evicts the oldest worst one
+		assertFalse(queue.offer(newNode(1)));
+		assertTrue(queue.offer(newNode(0)));
+		assertEquals(2, queue.getNumEvictions());
+		assertEquals(0, queue.poll().heuristicValue);
+		assertSame(third, queue.poll());
+		assertSame(second, queue.poll());
+		assertTrue(queue.isEmpty());
+	}
+
+	public void testInvalidCapacity() {
+
+		try {
+			new BoundedQueue(n -> n.heuristicValue, 0);
+			fail();
+		} catch (IllegalArgumentException e) {}
+	}
+
+	private static SearchNode newNode(int h) {
+
+		SearchNode node = new SearchNode(null, null);
+		node.heuristicValue = h;
+		return node;
+	}
+}
@@ -0,0 +1,92 @@
+package edu.kit.aquaplanning.aquaplanning;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Random;
+
+import edu.kit.aquaplanning.planning.datastructures.BucketQueue;
+import edu.kit.aquaplanning.planning.datastructures.SearchNode;
+import edu.kit.aquaplanning.planning.datastructures.SearchStrategy.TieBreaking;
+import junit.framework.TestCase;
+
+public class TestBucketQueue extends TestCase {
+
+	public void testPriorityOrder() {
+
+		// Same order of priorities as a binary heap, for each tie-breaking rule
+		for (TieBreaking tieBreaking : TieBreaking.values()) {
+			Random random = new Random(1);
+			BucketQueue queue = new BucketQueue(n -> n.depth + n.heuristicValue, tieBreaking);
+			PriorityQueue<Integer> reference = new PriorityQueue<>();
+			for (int i = 0; i < 10000; i++) {
+				if (random.nextInt(3) > 0 || queue.isEmpty()) {
+					SearchNode node = newNode(random.nextInt(100), random.nextInt(200));
+					queue.add(node);
+					reference.add(node.depth + node.heuristicValue);
+				} else {
+					SearchNode node = queue.poll();
+					assertEquals((int) reference.poll(), node.depth + node.heuristicValue);
+				}
+				assertEquals(reference.size(), queue.size());
+				if (!reference.isEmpty()) {
+					assertEquals((int) reference.peek(), queue.getMinPriority());
+				}
+			}
+		}
+	}
+
+	public void testTieBreaking() {
+
+		List<SearchNode> nodes = new ArrayList<>();
+		for (int i = 0; i < 5; i++) {
+			nodes.add(newNode(5 - i, i));
+		}
+
+		BucketQueue lifo = new BucketQueue(n -> n.depth + n.heuristicValue, TieBreaking.lifo);
+		BucketQueue fifo = new BucketQueue(n -> n.depth + n.heuristicValue, TieBreaking.fifo);
+		BucketQueue lowestH = new BucketQueue(n -> n.depth + n.heuristicValue, TieBreaking.lowestH);
+		lifo.addAll(nodes);
+		fifo.addAll(nodes);
+		lowestH.addAll(nodes);
+		for (int i = 0; i < nodes.size(); i++) {
+			assertSame(nodes.get(nodes.size()-1 - i), lifo.poll());
+			assertSame(nodes.get(i), fifo.poll());
+			assertEquals(i, lowestH.poll().heuristicValue);
+		}
+		assertNull(lifo.poll());
+		assertNull(fifo.poll());
+		assertNull(lowestH.poll());
+	}
+
+	public void testIterator() {
+
+		BucketQueue queue = new BucketQueue(n -> n.heuristicValue, TieBreaking.lowestH);
+		int sum = 0;
+		for (int h = 0; h < 100; h += 7) {
+			queue.add(newNode(0, h));
+			sum += h;
+		}
+		for (SearchNode node : queue) {
+			sum -= node.heuristicValue;
+		}
+		assertEquals(0, sum);
+	}
+
+	public void testNegativePriority() {
+
+		BucketQueue queue = new BucketQueue(n -> n.heuristicValue, TieBreaking.lifo);
+		try {
+			queue.add(newNode(0, -1));
+			fail();
+		} catch (IllegalArgumentException e) {}
+	}
+
+	private static SearchNode newNode(int depth, int h) {
+
+		SearchNode node = new SearchNode(null, null);
+		node.depth = depth;
+		node.heuristicValue = h;
+		return node;
+	}
+}
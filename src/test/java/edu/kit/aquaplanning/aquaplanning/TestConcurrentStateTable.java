@@ -0,0 +1,137 @@
+package edu.kit.aquaplanning.aquaplanning;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+import edu.kit.aquaplanning.Configuration;
+import edu.kit.aquaplanning.grounding.PlanningGraphGrounder;
+import edu.kit.aquaplanning.model.ground.Action;
+import edu.kit.aquaplanning.model.ground.GroundPlanningProblem;
+import edu.kit.aquaplanning.model.ground.State;
+import edu.kit.aquaplanning.parsing.ProblemParser;
+import edu.kit.aquaplanning.planning.datastructures.ActionIndex;
+import edu.kit.aquaplanning.planning.datastructures.ConcurrentStateTable;
+import edu.kit.aquaplanning.planning.datastructures.SearchNode;
+import edu.kit.aquaplanning.planning.datastructures.SearchQueue;
+import edu.kit.aquaplanning.planning.datastructures.SearchStrategy;
+import edu.kit.aquaplanning.planning.datastructures.SearchStrategy.Mode;
+import junit.framework.TestCase;
+
+public class TestConcurrentStateTable extends TestCase {
+
+	private static final int NUM_THREADS = 8;
+	private static final int NUM_STATES = 20000;
+
+	public void testConcurrentAdd() throws Exception {
+
+		Random random = new Random(1);
+		List<State> states = new ArrayList<>();
+		for (int i = 0; i < NUM_STATES; i++) {
+			State state = new State(new ArrayList<>());
+			state.ensureCapacity(128, 0);
+			state.setWord(0, i);
+			state.setWord(1, random.nextLong());
+			states.add(state);
+		}
+		// Few stripes, such that the threads contend for the locks
+		ConcurrentStateTable table = new ConcurrentStateTable(states.get(0), 2, null);
+
+		// Each thread adds all states in an order of its own;
+		// each state must be newly inserted by exactly one thread
+		AtomicIntegerArray numInserted = new AtomicIntegerArray(NUM_STATES);
+		CyclicBarrier barrier = new CyclicBarrier(NUM_THREADS);
+		List<Throwable> errors = Collections.synchronizedList(new ArrayList<>());
+		List<Thread> threads = new ArrayList<>();
+		for (int t = 0; t < NUM_THREADS; t++) {
+			List<Integer> order = new ArrayList<>();
+			for (int i = 0; i < NUM_STATES; i++) {
+				order.add(i);
+			}
+			Collections.shuffle(order, new Random(t));
+			Thread thread = new Thread(() -> {
+				try {
+					barrier.await();
+					for (int i : order) {
+						// Copies, as the states are not thread-safe
+						State state = new State(states.get(i));
+						if (table.add(state)) {
+							numInserted.incrementAndGet(i);
+						}
+						assertTrue(table.contains(state));
+					}
+				} catch (Throwable e) {
+					errors.add(e);
+				}
+			});
+			threads.add(thread);
+			thread.start();
+		}
+		for (Thread thread : threads) {
+			thread.join();
+		}
+
+		assertTrue(errors.toString(), errors.isEmpty());
+		for (int i = 0; i < NUM_STATES; i++) {
+			assertEquals(1, numInserted.get(i));
+		}
+		assertEquals(NUM_STATES, table.size());
+		assertEquals(2L * NUM_THREADS * NUM_STATES, table.getNumOperations());
+		assertTrue(table.getNumContendedOperations() <= table.getNumOperations());
+	}
+
+	public void testSharedVisitedStates() throws IOException {
+
+		GroundPlanningProblem gpp = new PlanningGraphGrounder(new Configuration()).ground(
+				new ProblemParser().parse("testfiles/barman/domain.pddl", 
+						"testfiles/barman/p01.pddl"));
+		int duplicates = countDuplicateExpansions(gpp, null);
+		int sharedDuplicates = countDuplicateExpansions(gpp, 
+				new ConcurrentStateTable(gpp.getInitialState(), 2, null));
+		assertTrue(duplicates > 1);
+		// Only the initial state is expanded by both searches
+		assertEquals(1, sharedDuplicates);
+	}
+
+	/**
+	 * Lets a breadth-first and a depth-first search expand nodes in turns
+	 * (without running out of nodes) and returns the amount of states 
+	 * expanded by both searches.
+	 */
+	private static int countDuplicateExpansions(GroundPlanningProblem gpp, 
+			ConcurrentStateTable visitedStates) {
+
+		ActionIndex index = new ActionIndex(gpp);
+		List<SearchQueue> queues = new ArrayList<>();
+		List<HashSet<State>> expanded = new ArrayList<>();
+		for (Mode mode : new Mode[] {Mode.breadthFirst, Mode.depthFirst}) {
+			SearchQueue queue = new SearchQueue(new SearchStrategy(mode));
+			queue.setSharedStates(visitedStates, null);
+			queue.add(new SearchNode(null, gpp.getInitialState()));
+			queues.add(queue);
+			expanded.add(new HashSet<>());
+		}
+		List<Action> actions = new ArrayList<>();
+		for (int step = 0; step < 2000; step++) {
+			for (int q = 0; q < queues.size(); q++) {
+				SearchNode node = queues.get(q).get();
+				assertNotNull(node);
+				expanded.get(q).add(new State(node.state));
+				index.getApplicableActions(node.state, actions);
+				for (Action action : actions) {
+					SearchNode successor = new SearchNode(node, action.apply(node.state));
+					successor.depth = node.depth+1;
+					successor.lastAction = action;
+					queues.get(q).add(successor);
+				}
+			}
+		}
+		expanded.get(0).retainAll(expanded.get(1));
+		return expanded.get(0).size();
+	}
+}
@@ -0,0 +1,78 @@
+package edu.kit.aquaplanning.aquaplanning;
+
+import java.util.ArrayList;
+
+import edu.kit.aquaplanning.Configuration;
+import edu.kit.aquaplanning.Configuration.HeuristicType;
+import edu.kit.aquaplanning.model.ground.Goal;
+import edu.kit.aquaplanning.model.ground.GroundPlanningProblem;
+import edu.kit.aquaplanning.model.ground.State;
+import edu.kit.aquaplanning.planning.heuristic.HeuristicCache;
+import junit.framework.TestCase;
+
+public class TestHeuristicCache extends TestCase {
+
+	public void testClockEviction() {
+
+		// A single bucket
+		HeuristicCache cache = new HeuristicCache(4);
+		assertEquals(4, cache.capacity());
+		State[] states = new State[5];
+		for (int i = 0; i < states.length; i++) {
+			states[i] = newState(i);
+		}
+		for (int i = 0; i < 4; i++) {
+			cache.put(states[i], i, null);
+		}
+		assertEquals(0, cache.getEvictions());
+		// The first state gets a second chance, so the second one is evicted
+		assertEquals(0, cache.get(states[0]).value);
+		cache.put(states[4], 4, null);
+		assertEquals(1, cache.getEvictions());
+		assertEquals(0, cache.get(states[0]).value);
+		assertNull(cache.get(states[1]));
+		for (int i = 2; i < states.length; i++) {
+			assertEquals(i, cache.get(states[i]).value);
+		}
+
+		// Caching a state again replaces its entry
+		cache.put(states[2], 7, null);
+		assertEquals(1, cache.getEvictions());
+		assertEquals(7, cache.get(states[2]).value);
+	}
+
+	public void testSharedCache() {
+
+		GroundPlanningProblem p = new GroundPlanningProblem(newState(0), new ArrayList<>(),
+				new Goal(new ArrayList<>()), false, new ArrayList<>(), new ArrayList<>());
+		Configuration config = new Configuration();
+		config.heuristic = HeuristicType.patternDatabase;
+		config.pdbMaxAtoms = 10;
+		config.heuristicCacheSize = 64;
+		HeuristicCache cache = HeuristicCache.getSharedCache(p, config);
+		assertSame(cache, HeuristicCache.getSharedCache(p, config.copy()));
+
+		// Different heuristic values: different caches
+		Configuration other = config.copy();
+		other.pdbMaxAtoms = 20;
+		assertNotSame(cache, HeuristicCache.getSharedCache(p, other));
+		other = config.copy();
+		other.heuristic = HeuristicType.hMax;
+		assertNotSame(cache, HeuristicCache.getSharedCache(p, other));
+
+		other = config.copy();
+		other.heuristicCacheSize = 128;
+		try {
+			HeuristicCache.getSharedCache(p, other);
+			fail();
+		} catch (IllegalArgumentException e) {}
+	}
+
+	private static State newState(int word) {
+
+		State state = new State(new ArrayList<>());
+		state.ensureCapacity(64, 0);
+		state.setWord(0, word);
+		return state;
+	}
+}
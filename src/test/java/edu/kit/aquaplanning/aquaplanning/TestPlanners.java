@@ -20,6 +20,8 @@ import edu.kit.aquaplanning.parsing.ProblemParser;
 import edu.kit.aquaplanning.planning.ForwardSearchPlanner;
 import edu.kit.aquaplanning.planning.Planner;
 import edu.kit.aquaplanning.planning.datastructures.SearchStrategy.Mode;
+import edu.kit.aquaplanning.planning.datastructures.SearchStrategy.OpenList;
+import edu.kit.aquaplanning.planning.datastructures.SearchStrategy.TieBreaking;
 import edu.kit.aquaplanning.planning.sat.HegemannsSatPlanner;
 import edu.kit.aquaplanning.planning.sat.SimpleSatPlanner;
 import edu.kit.aquaplanning.planning.sat.SymbolicReachabilityPlanner;
@@ -33,6 +35,8 @@ public class TestPlanners extends TestCase {
 	public static final String[] SAT_TEST_DOMAINS = {"barman", "rover", "childsnack", 
 			"gripper", "zenotravel", "nurikabe", "GED", "floortile"};
 	public static final String[] ADL_TEST_DOMAINS = {"openstacks"};
+	public static final String[] HEURISTIC_TEST_DOMAINS = {"barman", "rover", "childsnack", 
+			"gripper", "zenotravel", "nurikabe", "GED", "floortile"};
 	
 	private PlanningProblem pp;
 	private GroundPlanningProblem gpp;
@@ -120,6 +124,165 @@ public class TestPlanners extends TestCase {
 		}
 	}
 	
+	public void testHdaStarOnDefaultDomains() throws FileNotFoundException, IOException {
+		
+		Configuration config = new Configuration();
+		config.plannerType = PlannerType.hdaStar;
+		config.numThreads = 2;
+		config.searchStrategy = Mode.bestFirst;
+		config.heuristic = HeuristicType.relaxedPathLength;
+		for (String domain : DEFAULT_TEST_DOMAINS) {
+			fullTest("testfiles/" + domain + "/domain.pddl", "testfiles/" + domain + "/p01.pddl", config);
+		}
+	}
+	
+	public void testEhcOnDefaultDomains() throws FileNotFoundException, IOException {
+		
+		Configuration config = new Configuration();
+		config.plannerType = PlannerType.ehc;
+		config.searchStrategy = Mode.bestFirst;
+		config.heuristic = HeuristicType.hFF;
+		config.preferredOperators = true;
+		for (String domain : DEFAULT_TEST_DOMAINS) {
+			fullTest("testfiles/" + domain + "/domain.pddl", "testfiles/" + domain + "/p01.pddl", config);
+		}
+	}
+	
+	public void testAnytimeOnDefaultDomains() throws FileNotFoundException, IOException {
+		
+		Configuration config = new Configuration();
+		config.plannerType = PlannerType.anytime;
+		config.searchStrategy = Mode.weightedAStar;
+		config.heuristic = HeuristicType.hFF;
+		config.heuristicWeight = 5;
+		config.searchTimeSeconds = 1;
+		for (String domain : DEFAULT_TEST_DOMAINS) {
+			fullTest("testfiles/" + domain + "/domain.pddl", "testfiles/" + domain + "/p01.pddl", config);
+		}
+	}
+	
+	public void testIdaStar() throws FileNotFoundException, IOException {
+		
+		Configuration config = new Configuration();
+		config.plannerType = PlannerType.idaStar;
+		config.searchStrategy = Mode.aStar;
+		config.heuristic = HeuristicType.hMax;
+		config.transpositionTableSize = 100000;
+		// Admissible heuristic: plans are optimal
+		fullTest("testfiles/rover/domain.pddl", "testfiles/rover/p01.pddl", config, 6, 6);
+		fullTest("testfiles/childsnack/domain.pddl", "testfiles/childsnack/p01.pddl", config, 8, 8);
+		fullTest("testfiles/gripper/domain.pddl", "testfiles/gripper/p01.pddl", config, 11, 11);
+	}
+	
+	public void testHeuristics() throws FileNotFoundException, IOException {
+		
+		HeuristicType[] heuristics = {HeuristicType.hAdd, HeuristicType.hMax, HeuristicType.hFF, 
+				HeuristicType.landmarkCount, HeuristicType.patternDatabase, HeuristicType.causalGraph};
+		for (HeuristicType heuristic : heuristics) {
+			Configuration config = new Configuration();
+			config.plannerType = PlannerType.forwardSSS;
+			config.searchStrategy = Mode.bestFirst;
+			config.heuristic = heuristic;
+			config.pdbMaxAtoms = 14;
+			for (String domain : HEURISTIC_TEST_DOMAINS) {
+				fullTest("testfiles/" + domain + "/domain.pddl", "testfiles/" + domain + "/p01.pddl", config);
+			}
+			fullTest("testfiles/RPG-with-numeric-fluents/domain.pddl", 
+					"testfiles/RPG-with-numeric-fluents/p01.pddl", config);
+		}
+	}
+	
+	public void testLazyEvaluation() throws FileNotFoundException, IOException {
+		
+		Configuration config = new Configuration();
+		config.plannerType = PlannerType.forwardSSS;
+		config.searchStrategy = Mode.bestFirst;
+		config.heuristic = HeuristicType.hFF;
+		config.lazyEvaluation = true;
+		for (String domain : new String[] {"barman", "rover", "childsnack", "gripper", "nurikabe"}) {
+			fullTest("testfiles/" + domain + "/domain.pddl", "testfiles/" + domain + "/p01.pddl", config);
+		}
+	}
+	
+	public void testParallelEvaluation() throws FileNotFoundException, IOException {
+		
+		for (boolean preferredOperators : new boolean[] {false, true}) {
+			Configuration config = new Configuration();
+			config.plannerType = PlannerType.forwardSSS;
+			config.searchStrategy = Mode.bestFirst;
+			config.heuristic = HeuristicType.hFF;
+			config.preferredOperators = preferredOperators;
+			Configuration parallelConfig = config.copy();
+			parallelConfig.parallelEvaluation = true;
+			parallelConfig.numThreads = 4;
+			for (String domain : new String[] {"barman", "rover", "childsnack", "gripper"}) {
+				pp = new ProblemParser().parse("testfiles/" + domain + "/domain.pddl", 
+						"testfiles/" + domain + "/p01.pddl");
+				gpp = new PlanningGraphGrounder(config).ground(pp);
+				ForwardSearchPlanner sequential = new ForwardSearchPlanner(config);
+				Plan plan = sequential.findPlan(gpp);
+				assertNotNull(plan);
+				assertTrue(Validator.planIsValid(gpp, plan));
+				// Parallel evaluation must not change the course of the search
+				ForwardSearchPlanner parallel = new ForwardSearchPlanner(parallelConfig);
+				Plan parallelPlan = parallel.findPlan(gpp);
+				assertNotNull(parallelPlan);
+				assertEquals(plan.toString(), parallelPlan.toString());
+				assertEquals(sequential.getNumVisitedNodes(), parallel.getNumVisitedNodes());
+			}
+		}
+	}
+	
+	public void testBoundedSearch() throws FileNotFoundException, IOException {
+		
+		for (Mode mode : new Mode[] {Mode.beamSearch, Mode.bestFirst}) {
+			Configuration config = new Configuration();
+			config.plannerType = PlannerType.forwardSSS;
+			config.searchStrategy = mode;
+			config.heuristic = HeuristicType.hFF;
+			// Small enough that nodes are discarded
+			if (mode == Mode.beamSearch) {
+				config.beamWidth = 10;
+			} else {
+				config.maxFrontierSize = 10;
+			}
+			for (String domain : HEURISTIC_TEST_DOMAINS) {
+				fullTest("testfiles/" + domain + "/domain.pddl", "testfiles/" + domain + "/p01.pddl", config);
+			}
+		}
+	}
+	
+	public void testBucketOpenList() throws FileNotFoundException, IOException {
+		
+		for (TieBreaking tieBreaking : TieBreaking.values()) {
+			Configuration config = new Configuration();
+			config.plannerType = PlannerType.forwardSSS;
+			config.searchStrategy = Mode.bestFirst;
+			config.heuristic = HeuristicType.hFF;
+			config.openList = OpenList.buckets;
+			config.tieBreaking = tieBreaking;
+			for (String domain : HEURISTIC_TEST_DOMAINS) {
+				fullTest("testfiles/" + domain + "/domain.pddl", "testfiles/" + domain + "/p01.pddl", config);
+			}
+			// Admissible heuristic: plans are optimal
+			config.searchStrategy = Mode.aStar;
+			config.heuristic = HeuristicType.hMax;
+			fullTest("testfiles/rover/domain.pddl", "testfiles/rover/p01.pddl", config, 6, 6);
+			fullTest("testfiles/gripper/domain.pddl", "testfiles/gripper/p01.pddl", config, 11, 11);
+		}
+	}
+	
+	public void testSharedClosedList() throws FileNotFoundException, IOException {
+		
+		Configuration config = new Configuration();
+		config.plannerType = PlannerType.parallel;
+		config.numThreads = 4;
+		config.sharedClosedList = true;
+		for (String domain : new String[] {"gripper", "petrinetalignment"}) {
+			fullTest("testfiles/" + domain + "/domain.pddl", "testfiles/" + domain + "/p01.pddl", config);
+		}
+	}
+	
 	public void testSatPlan() throws FileNotFoundException, IOException {
 		Grounder grounder = new PlanningGraphGrounder(new Configuration());
 		for (String domain : SAT_TEST_DOMAINS) {
@@ -207,7 +370,8 @@ public class TestPlanners extends TestCase {
 			config.searchStrategy = Mode.bestFirst;
 			config.heuristic = HeuristicType.relaxedPathLength;
 		}
-		Planner planner = new ForwardSearchPlanner(config);
+		Planner planner = config.plannerType != null ? 
+				Planner.getPlanner(config) : new ForwardSearchPlanner(config);
 		Plan plan = planner.findPlan(gpp);
 		
 		System.out.println(plan);
@@ -0,0 +1,119 @@
+package edu.kit.aquaplanning.aquaplanning;
+
+import java.util.ArrayList;
+import java.util.Random;
+
+import edu.kit.aquaplanning.model.ground.Atom;
+import edu.kit.aquaplanning.model.ground.State;
+import edu.kit.aquaplanning.planning.datastructures.StateTable;
+import junit.framework.TestCase;
+
+public class TestStateTable extends TestCase {
+
+	private static final int NUM_WORDS = 3;
+
+	public void testPutAndGet() {
+
+		Random random = new Random(1);
+		State prototype = newState(random, 2);
+		StateTable table = new StateTable(prototype, 16);
+
+		// More states than fit into a single chunk of the pool
+		int numStates = 100000;
+		State[] states = new State[numStates];
+		for (int i = 0; i < numStates; i++) {
+			states[i] = newState(random, 2);
+			assertEquals(i, table.put(states[i]));
+		}
+		assertEquals(numStates, table.size());
+
+		State target = new State(prototype);
+		for (int i = 0; i < numStates; i++) {
+			assertTrue(table.contains(states[i]));
+			assertEquals(i, table.getId(states[i]));
+			assertEquals(i, table.put(new State(states[i])));
+			table.get(i, target);
+			assertEquals(states[i], target);
+			assertEquals(states[i].getHash(), target.getHash());
+		}
+		assertEquals(numStates, table.size());
+		assertFalse(table.contains(newState(random, 2)));
+	}
+
+	public void testNumericAtoms() {
+
+		Random random = new Random(2);
+		State state = newState(random, 3);
+		State other = new State(state);
+		other.set(1, state.getNumeric(1) + 1);
+
+		StateTable table = new StateTable(state);
+		assertTrue(table.add(state));
+		assertFalse(table.add(new State(state)));
+		assertFalse(table.contains(other));
+		assertTrue(table.add(other));
+		assertEquals(2, table.size());
+
+		State target = new State(state);
+		table.get(1, target);
+		assertEquals(other, target);
+		assertEquals(other.getNumeric(1), target.getNumeric(1));
+	}
+
+	public void testClear() {
+
+		Random random = new Random(3);
+		State prototype = newState(random, 0);
+		StateTable table = new StateTable(prototype);
+		State[] states = new State[500];
+		for (int i = 0; i < states.length; i++) {
+			states[i] = newState(random, 0);
+			table.add(states[i]);
+		}
+		table.clear();
+		assertEquals(0, table.size());
+		for (State state : states) {
+			assertFalse(table.contains(state));
+		}
+		// IDs start at zero again
+		for (int i = states.length-1; i >= 0; i--) {
+			assertEquals(states.length-1 - i, table.put(states[i]));
+		}
+	}
+
+	public void testIncrementalHash() {
+
+		Random random = new Random(4);
+		State state = newState(random, 0);
+		State copy = new State(state);
+		// Change the state atom by atom; the hash must match a fresh state
+		for (int i = 0; i < 1000; i++) {
+			int atom = random.nextInt(64 * NUM_WORDS);
+			state.set(new Atom(atom, "a" + atom, random.nextBoolean()));
+			State fresh = new State(new ArrayList<>());
+			fresh.ensureCapacity(64 * NUM_WORDS, 0);
+			for (int w = 0; w < NUM_WORDS; w++) {
+				fresh.setWord(w, state.getWord(w));
+			}
+			assertEquals(fresh.getHash(), state.getHash());
+		}
+		copy.copyFrom(state);
+		assertEquals(state.getHash(), copy.getHash());
+	}
+
+	/**
+	 * A random state with the provided amount of numeric atoms.
+	 */
+	private static State newState(Random random, int numNumericAtoms) {
+
+		State state = new State(new ArrayList<>());
+		state.ensureCapacity(64 * NUM_WORDS, numNumericAtoms);
+		for (int w = 0; w < NUM_WORDS; w++) {
+			state.setWord(w, random.nextLong());
+		}
+		for (int i = 0; i < numNumericAtoms; i++) {
+			state.set(i, random.nextInt(100));
+		}
+		return state;
+	}
+}
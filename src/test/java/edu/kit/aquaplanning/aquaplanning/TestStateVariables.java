@@ -0,0 +1,108 @@
+package edu.kit.aquaplanning.aquaplanning;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import edu.kit.aquaplanning.model.ground.Action;
+import edu.kit.aquaplanning.model.ground.Atom;
+import edu.kit.aquaplanning.model.ground.Goal;
+import edu.kit.aquaplanning.model.ground.GroundPlanningProblem;
+import edu.kit.aquaplanning.model.ground.State;
+import edu.kit.aquaplanning.model.ground.StateVariables;
+import junit.framework.TestCase;
+
+public class TestStateVariables extends TestCase {
+
+	private static final int NUM_ROOMS = 3;
+	private static final int LIGHT = NUM_ROOMS;
+	private static final int CONSTANT = NUM_ROOMS + 1;
+
+	public void testPackAndUnpack() {
+
+		GroundPlanningProblem p = newProblem();
+		StateVariables vars = p.getStateVariables();
+		assertSame(vars, p.getStateVariables());
+		// The rooms form one variable, the light a binary one
+		assertEquals(2, vars.getNumVariables());
+		assertEquals(1, vars.getNumGroupVariables());
+		assertEquals(vars.getVariable(0), vars.getVariable(NUM_ROOMS-1));
+		assertEquals(-1, vars.getVariable(CONSTANT));
+
+		// Each reachable state is restored from its distinct packed form
+		Set<State> reachable = new HashSet<>();
+		Set<List<Long>> packedStates = new HashSet<>();
+		ArrayDeque<State> queue = new ArrayDeque<>();
+		queue.add(p.getInitialState());
+		reachable.add(p.getInitialState());
+		long[] packed = new long[vars.getNumPackedWords() + 1];
+		while (!queue.isEmpty()) {
+			State state = queue.poll();
+			vars.pack(state, packed, 1);
+			long[] unpacked = new long[state.numWords()];
+			vars.unpack(packed, 1, unpacked);
+			for (int w = 0; w < unpacked.length; w++) {
+				assertEquals(state.getWord(w), unpacked[w]);
+			}
+			List<Long> key = new ArrayList<>();
+			for (long word : packed) {
+				key.add(word);
+			}
+			assertTrue(packedStates.add(key));
+			for (Action action : p.getActions()) {
+				if (action.isApplicable(state)) {
+					State successor = action.apply(state);
+					if (reachable.add(successor)) {
+						queue.add(successor);
+					}
+				}
+			}
+		}
+		assertEquals(2 * NUM_ROOMS, reachable.size());
+	}
+
+	/**
+	 * A robot moving between rooms and toggling a light,
+	 * with an additional atom which is always true.
+	 */
+	private static GroundPlanningProblem newProblem() {
+
+		List<String> atomNames = new ArrayList<>();
+		for (int room = 0; room < NUM_ROOMS; room++) {
+			atomNames.add("at-r" + room);
+		}
+		atomNames.add("light");
+		atomNames.add("constant");
+
+		List<Action> actions = new ArrayList<>();
+		for (int from = 0; from < NUM_ROOMS; from++) {
+			for (int to = 0; to < NUM_ROOMS; to++) {
+				if (from != to) {
+					actions.add(new Action("move-r" + from + "-r" + to,
+							Arrays.asList(atom(atomNames, from, true), atom(atomNames, CONSTANT, true)),
+							Arrays.asList(atom(atomNames, from, false), atom(atomNames, to, true)),
+							new ArrayList<>()));
+				}
+			}
+		}
+		for (boolean on : new boolean[] {true, false}) {
+			actions.add(new Action(on ? "switch-on" : "switch-off",
+					Arrays.asList(atom(atomNames, LIGHT, !on)),
+					Arrays.asList(atom(atomNames, LIGHT, on)),
+					new ArrayList<>()));
+		}
+
+		State initState = new State(Arrays.asList(atom(atomNames, 0, true),
+				atom(atomNames, CONSTANT, true)));
+		Goal goal = new Goal(Arrays.asList(atom(atomNames, NUM_ROOMS-1, true)));
+		return new GroundPlanningProblem(initState, actions, goal, false,
+				atomNames, new ArrayList<>());
+	}
+
+	private static Atom atom(List<String> atomNames, int id, boolean value) {
+		return new Atom(id, atomNames.get(id), value);
+	}
+}
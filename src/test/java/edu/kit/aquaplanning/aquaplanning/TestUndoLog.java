@@ -0,0 +1,83 @@
+package edu.kit.aquaplanning.aquaplanning;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import edu.kit.aquaplanning.Configuration;
+import edu.kit.aquaplanning.grounding.PlanningGraphGrounder;
+import edu.kit.aquaplanning.model.ground.Action;
+import edu.kit.aquaplanning.model.ground.GroundPlanningProblem;
+import edu.kit.aquaplanning.model.ground.State;
+import edu.kit.aquaplanning.model.ground.UndoLog;
+import edu.kit.aquaplanning.model.lifted.PlanningProblem;
+import edu.kit.aquaplanning.parsing.ProblemParser;
+import junit.framework.TestCase;
+
+public class TestUndoLog extends TestCase {
+
+	public void testSimpleEffects() throws FileNotFoundException, IOException {
+		testRandomWalks("testfiles/gripper/domain.pddl", "testfiles/gripper/p01.pddl");
+	}
+
+	public void testConditionalEffects() throws FileNotFoundException, IOException {
+		testRandomWalks("testfiles/condEffects/domain1.pddl", "testfiles/condEffects/p1.pddl");
+	}
+
+	public void testNumericEffects() throws FileNotFoundException, IOException {
+		testRandomWalks("testfiles/RPG-with-numeric-fluents/domain.pddl",
+				"testfiles/RPG-with-numeric-fluents/p01.pddl");
+	}
+
+	/**
+	 * Applies random actions in place, comparing each state to the result
+	 * of apply, and then reverts all of them, comparing each state to the
+	 * corresponding state on the way forward.
+	 */
+	private void testRandomWalks(String domainFile, String problemFile)
+			throws FileNotFoundException, IOException {
+
+		PlanningProblem pp = new ProblemParser().parse(domainFile, problemFile);
+		GroundPlanningProblem gpp = new PlanningGraphGrounder(new Configuration()).ground(pp);
+		Random random = new Random(1);
+		State state = new State(gpp.getInitialState());
+		UndoLog log = new UndoLog();
+		List<Action> applicable = new ArrayList<>();
+		for (int walk = 0; walk < 20; walk++) {
+			List<State> path = new ArrayList<>();
+			for (int step = 0; step < 50; step++) {
+				applicable.clear();
+				for (Action action : gpp.getActions()) {
+					if (action.isApplicable(state)) {
+						applicable.add(action);
+					}
+				}
+				if (applicable.isEmpty()) {
+					break;
+				}
+				path.add(new State(state));
+				Action action = applicable.get(random.nextInt(applicable.size()));
+				State expected = action.apply(state);
+				action.applyInPlace(state, log);
+				assertStatesEqual(expected, state);
+			}
+			assertEquals(path.size(), log.size());
+			for (int step = path.size()-1; step >= 0; step--) {
+				Action.revert(state, log);
+				assertStatesEqual(path.get(step), state);
+			}
+			assertEquals(0, log.size());
+		}
+	}
+
+	private static void assertStatesEqual(State expected, State actual) {
+
+		assertEquals(expected, actual);
+		assertEquals(expected.getHash(), actual.getHash());
+		for (int i = 0; i < expected.numNumericAtoms(); i++) {
+			assertEquals(expected.getNumeric(i), actual.getNumeric(i));
+		}
+	}
+}